@@ -79,6 +79,7 @@ dependencies {
     implementation(project(":firestore"))
     implementation(project(":database"))
     implementation(project(":storage"))
+    annotationProcessor(project(":processor"))
 
     implementation(Config.Libs.Provider.facebook)
     // Needed to override Facebook
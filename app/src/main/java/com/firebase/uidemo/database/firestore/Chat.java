@@ -1,5 +1,6 @@
 package com.firebase.uidemo.database.firestore;
 
+import com.firebase.ui.common.GenerateSnapshotParser;
 import com.firebase.uidemo.database.AbstractChat;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 import com.google.firebase.firestore.ServerTimestamp;
@@ -10,6 +11,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 @IgnoreExtraProperties
+@GenerateSnapshotParser
 public class Chat extends AbstractChat {
     private String mName;
     private String mMessage;
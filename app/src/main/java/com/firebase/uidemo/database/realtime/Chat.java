@@ -1,5 +1,6 @@
 package com.firebase.uidemo.database.realtime;
 
+import com.firebase.ui.common.GenerateSnapshotParser;
 import com.firebase.uidemo.database.AbstractChat;
 import com.google.firebase.database.IgnoreExtraProperties;
 
@@ -7,6 +8,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 @IgnoreExtraProperties
+@GenerateSnapshotParser
 public class Chat extends AbstractChat {
     private String mName;
     private String mMessage;
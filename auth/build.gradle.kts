@@ -62,6 +62,10 @@ android {
     testOptions {
         unitTests {
             isIncludeAndroidResources = true
+            all {
+                // Benchmarks are skipped unless the build is run with -Pbenchmark
+                it.systemProperty("fui.benchmark", project.hasProperty("benchmark"))
+            }
         }
     }
     kotlinOptions {
@@ -24,6 +24,7 @@ import android.util.Log;
 
 import com.facebook.login.LoginManager;
 import com.firebase.ui.auth.data.model.FlowParameters;
+import com.firebase.ui.auth.ui.idp.AuthFlowPrewarmer;
 import com.firebase.ui.auth.ui.idp.AuthMethodPickerActivity;
 import com.firebase.ui.auth.util.ExtraConstants;
 import com.firebase.ui.auth.util.GoogleApiUtils;
@@ -61,7 +62,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.DrawableRes;
@@ -70,7 +73,9 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.StringDef;
 import androidx.annotation.StyleRes;
+import androidx.annotation.VisibleForTesting;
 import androidx.credentials.ClearCredentialStateRequest;
+import androidx.credentials.CredentialManager;
 import androidx.credentials.CredentialManagerCallback;
 import androidx.credentials.exceptions.ClearCredentialException;
 
@@ -106,6 +111,12 @@ public final class AuthUI {
      */
     public static final int NO_LOGO = -1;
 
+    /**
+     * Default time the {@link AuthMethodPickerActivity} waits for Credential Manager, see
+     * {@link AuthIntentBuilder#setCredentialManagerTimeout(long, TimeUnit)}.
+     */
+    public static final long DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS = 1000;
+
     /**
      * The set of authentication providers supported in Firebase Auth UI.
      */
@@ -147,7 +158,10 @@ public final class AuthUI {
 
     private static final IdentityHashMap<FirebaseApp, AuthUI> INSTANCES = new IdentityHashMap<>();
 
+    private static final int BACKGROUND_THREADS = 2;
+
     private static Context sApplicationContext;
+    private static Executor sBackgroundExecutor;
 
     private final FirebaseApp mApp;
     private final FirebaseAuth mAuth;
@@ -155,6 +169,11 @@ public final class AuthUI {
     private String mEmulatorHost = null;
     private int mEmulatorPort = -1;
 
+    private Task<Void> mProfileMergeTask = Tasks.forResult(null);
+
+    private CredentialManager mCredentialManager;
+    private Runnable mIdpSignOut;
+
     private AuthUI(FirebaseApp app) {
         mApp = app;
         mAuth = FirebaseAuth.getInstance(mApp);
@@ -277,13 +296,11 @@ public final class AuthUI {
         if (!playServicesAvailable) {
             Log.w(TAG, "Google Play services not available during signOut");
         }
-        signOutIdps(context);
-        Executor singleThreadExecutor = Executors.newSingleThreadExecutor();
-        return clearCredentialState(context, singleThreadExecutor).continueWith(task -> {
-            task.getResult(); // Propagate exceptions if any.
-            mAuth.signOut();
-            return null;
-        });
+        // The steps are independent, the user is signed out of Firebase even if one fails
+        Task<Void> credentialsTask = clearCredentialState(context, getBackgroundExecutor());
+        Task<Void> idpsTask = signOutIdps();
+        mAuth.signOut();
+        return whenAllSucceed(credentialsTask, idpsTask);
     }
 
     /**
@@ -301,11 +318,43 @@ public final class AuthUI {
                     String.valueOf(CommonStatusCodes.SIGN_IN_REQUIRED),
                     "No currently signed in user."));
         }
-        signOutIdps(context);
-        Executor singleThreadExecutor = Executors.newSingleThreadExecutor();
-        return clearCredentialState(context, singleThreadExecutor).continueWithTask(task -> {
-            task.getResult(); // Propagate exceptions if any.
-            return currentUser.delete();
+        Task<Void> deleteTask = currentUser.delete();
+        Task<Void> credentialsTask = clearCredentialState(context, getBackgroundExecutor());
+        Task<Void> idpsTask = signOutIdps();
+        return whenAllSucceed(deleteTask, credentialsTask, idpsTask);
+    }
+
+    /**
+     * Returns the executor running FirebaseUI's background work. Its threads are only kept alive
+     * while there is work to do, so it never needs to be shut down.
+     */
+    @NonNull
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public static synchronized Executor getBackgroundExecutor() {
+        if (sBackgroundExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    BACKGROUND_THREADS, BACKGROUND_THREADS,
+                    1, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sBackgroundExecutor = executor;
+        }
+        return sBackgroundExecutor;
+    }
+
+    /**
+     * Joins independent tasks, failing with the exception of the first one which failed in the
+     * given order, if any. Unlike {@link Tasks#whenAll(Task[])}, the original exception is kept
+     * so callers can tell why e.g. a deletion failed.
+     */
+    private static Task<Void> whenAllSucceed(final Task<?>... tasks) {
+        return Tasks.whenAllComplete(tasks).continueWithTask(ignored -> {
+            for (Task<?> task : tasks) {
+                Exception e = task.getException();
+                if (e != null) {
+                    return Tasks.forException(e);
+                }
+            }
+            return Tasks.forResult(null);
         });
     }
 
@@ -337,10 +386,41 @@ public final class AuthUI {
         return mEmulatorPort;
     }
 
-    private void signOutIdps(@NonNull Context context) {
-        if (ProviderAvailability.IS_FACEBOOK_AVAILABLE) {
-            LoginManager.getInstance().logOut();
+    /**
+     * Returns the profile merge started by the last sign in of a flow deferring them, see
+     * {@link AuthIntentBuilder#setProfileMergeDeferred(boolean)}. The task fails if the profile
+     * couldn't be updated, and is already complete if no merge was started.
+     */
+    @NonNull
+    public synchronized Task<Void> getProfileMergeTask() {
+        return mProfileMergeTask;
+    }
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public synchronized void setProfileMergeTask(@NonNull Task<Void> task) {
+        mProfileMergeTask = task;
+    }
+
+    @VisibleForTesting
+    void initializeForTesting(@Nullable CredentialManager credentialManager,
+                              @Nullable Runnable idpSignOut) {
+        mCredentialManager = credentialManager;
+        mIdpSignOut = idpSignOut;
+    }
+
+    private Task<Void> signOutIdps() {
+        final Runnable idpSignOut;
+        if (mIdpSignOut != null) {
+            idpSignOut = mIdpSignOut;
+        } else if (ProviderAvailability.IS_FACEBOOK_AVAILABLE) {
+            idpSignOut = () -> LoginManager.getInstance().logOut();
+        } else {
+            return Tasks.forResult(null);
         }
+        return Tasks.call(getBackgroundExecutor(), () -> {
+            idpSignOut.run();
+            return null;
+        });
     }
 
     /**
@@ -356,26 +436,39 @@ public final class AuthUI {
         TaskCompletionSource<Void> completionSource = new TaskCompletionSource<>();
 
         ClearCredentialStateRequest clearRequest = new ClearCredentialStateRequest();
-        GoogleApiUtils.getCredentialManager(context)
-                .clearCredentialStateAsync(
-                        clearRequest,
-                        new CancellationSignal(),
-                        executor,
-                        new CredentialManagerCallback<>() {
-                            @Override
-                            public void onResult(Void unused) {
-                                completionSource.setResult(unused);
-                            }
-
-                            @Override
-                            public void onError(@NonNull ClearCredentialException e) {
-                                completionSource.setException(e);
-                            }
-                        }
-                );
+        CredentialManager credentialManager = mCredentialManager != null
+                ? mCredentialManager : GoogleApiUtils.getCredentialManager(context);
+        credentialManager.clearCredentialStateAsync(
+                clearRequest,
+                new CancellationSignal(),
+                executor,
+                new CredentialManagerCallback<>() {
+                    @Override
+                    public void onResult(Void unused) {
+                        completionSource.setResult(unused);
+                    }
+
+                    @Override
+                    public void onError(@NonNull ClearCredentialException e) {
+                        completionSource.setException(e);
+                    }
+                }
+        );
         return completionSource.getTask();
     }
 
+    /**
+     * Prepares the sign in flow described by the given parameters on a background thread, so that
+     * launching it later shows the first screen faster.
+     *
+     * @see AuthIntentBuilder#prewarm()
+     */
+    @NonNull
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public Task<Void> prewarm(@NonNull FlowParameters params) {
+        return AuthFlowPrewarmer.prewarm(mApp.getApplicationContext(), params);
+    }
+
     /**
      * Starts the process of creating a sign in intent, with the mandatory application context
      * parameter.
@@ -1152,7 +1245,10 @@ public final class AuthUI {
         String mPrivacyPolicyUrl;
         boolean mAlwaysShowProviderChoice = false;
         boolean mLockOrientation = false;
+        boolean mEmailSingleActivity = false;
+        boolean mDeferProfileMerge = false;
         boolean mEnableCredentials = true;
+        long mCredentialManagerTimeoutMillis = DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS;
         AuthMethodPickerLayout mAuthMethodPickerLayout = null;
         ActionCodeSettings mPasswordSettings = null;
 
@@ -1289,6 +1385,24 @@ public final class AuthUI {
             return (T) this;
         }
 
+        /**
+         * Sets how long the sign-in method choice screen waits for Credential Manager to return a
+         * saved credential before letting the user choose a sign-in method. The credential is
+         * requested while the screen is created, and one returned after the timeout is still used
+         * to sign the user in.
+         * <p>
+         * <p>Defaults to {@link #DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS} milliseconds.
+         *
+         * @param timeout how long to wait, 0 to let the user choose right away.
+         * @param unit    the unit of the timeout.
+         */
+        @NonNull
+        public T setCredentialManagerTimeout(long timeout, @NonNull TimeUnit unit) {
+            Preconditions.checkArgument(timeout >= 0, "Timeout cannot be negative");
+            mCredentialManagerTimeoutMillis = unit.toMillis(timeout);
+            return (T) this;
+        }
+
         /**
          * Set a custom layout for the AuthMethodPickerActivity screen.
          * See {@link AuthMethodPickerLayout}.
@@ -1333,6 +1447,39 @@ public final class AuthUI {
             return (T) this;
         }
 
+        /**
+         * Enables or disables showing the password prompt of the email flow within the email
+         * activity, instead of starting a new activity for it. This avoids the cost of an
+         * activity transition when a returning email user signs in.
+         * <p>
+         * Only this step of the email flow is affected: the other screens of the sign in flow
+         * still start their own activities.
+         * <p>
+         * <p>This is disabled by default. It is restricted to the library until the rest of the
+         * flow can be hosted by a single activity as well.
+         */
+        @NonNull
+        @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+        public T setEmailSingleActivityEnabled(boolean enabled) {
+            mEmailSingleActivity = enabled;
+            return (T) this;
+        }
+
+        /**
+         * Enables or disables deferring the profile merge done after signing in. A user signing in
+         * without a name or photo gets the ones of the identity provider they used, which takes a
+         * network request. When deferred, the sign in result is returned without waiting for that
+         * request and the profile is updated in the background, retrying on network errors. Use
+         * {@link AuthUI#getProfileMergeTask()} to know when the profile is up to date.
+         * <p>
+         * <p>Profile merges are not deferred by default.
+         */
+        @NonNull
+        public T setProfileMergeDeferred(boolean deferred) {
+            mDeferProfileMerge = deferred;
+            return (T) this;
+        }
+
         /**
          * Set custom settings for the RecoverPasswordActivity.
          *
@@ -1347,11 +1494,28 @@ public final class AuthUI {
         @CallSuper
         @NonNull
         public Intent build() {
+            addDefaultProviderIfNeeded();
+            return KickoffActivity.createIntent(mApp.getApplicationContext(), getFlowParams());
+        }
+
+        /**
+         * Loads the provider SDKs and inflates the sign in method screen for the flow configured
+         * so far on a background thread. Call this shortly before launching the intent returned
+         * by {@link #build()}, for example when showing the screen with a sign in button, so the
+         * flow starts faster. Changing the configuration afterwards only loses the benefit.
+         *
+         * @return a task completing once the flow is prepared.
+         */
+        @NonNull
+        public Task<Void> prewarm() {
+            addDefaultProviderIfNeeded();
+            return AuthUI.this.prewarm(getFlowParams());
+        }
+
+        private void addDefaultProviderIfNeeded() {
             if (mProviders.isEmpty()) {
                 mProviders.add(new IdpConfig.EmailBuilder().build());
             }
-
-            return KickoffActivity.createIntent(mApp.getApplicationContext(), getFlowParams());
         }
 
         protected abstract FlowParameters getFlowParams();
@@ -1418,9 +1582,12 @@ public final class AuthUI {
                     mTosUrl,
                     mPrivacyPolicyUrl,
                     mEnableCredentials,
+                    mCredentialManagerTimeoutMillis,
                     mEnableAnonymousUpgrade,
                     mAlwaysShowProviderChoice,
                     mLockOrientation,
+                    mEmailSingleActivity,
+                    mDeferProfileMerge,
                     mEmailLink,
                     mPasswordSettings,
                     mAuthMethodPickerLayout);
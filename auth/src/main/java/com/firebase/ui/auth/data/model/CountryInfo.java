@@ -41,21 +41,19 @@ public final class CountryInfo implements Comparable<CountryInfo>, Parcelable {
         }
     };
 
-    private final Collator mCollator;
+    // Shared since creating a collator is expensive and there is one CountryInfo per country
+    private static Collator sCollator;
+    private static Locale sCollatorLocale;
+
     private final Locale mLocale;
     private final int mCountryCode;
 
     public CountryInfo(Locale locale, int countryCode) {
-        mCollator = Collator.getInstance(Locale.getDefault());
-        mCollator.setStrength(Collator.PRIMARY);
         mLocale = locale;
         mCountryCode = countryCode;
     }
 
     protected CountryInfo(Parcel in) {
-        mCollator = Collator.getInstance(Locale.getDefault());
-        mCollator.setStrength(Collator.PRIMARY);
-
         mLocale = (Locale) in.readSerializable();
         mCountryCode = in.readInt();
     }
@@ -112,11 +110,20 @@ public final class CountryInfo implements Comparable<CountryInfo>, Parcelable {
     @Override
     public int compareTo(CountryInfo info) {
         Locale defaultLocale = Locale.getDefault();
-        return mCollator.compare(
+        return compareNames(defaultLocale,
                 mLocale.getDisplayCountry().toUpperCase(defaultLocale),
                 info.mLocale.getDisplayCountry().toUpperCase(defaultLocale));
     }
 
+    private static synchronized int compareNames(Locale locale, String name, String other) {
+        if (sCollator == null || !locale.equals(sCollatorLocale)) {
+            sCollator = Collator.getInstance(locale);
+            sCollator.setStrength(Collator.PRIMARY);
+            sCollatorLocale = locale;
+        }
+        return sCollator.compare(name, other);
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -53,10 +53,12 @@ public class FlowParameters implements Parcelable {
             String termsOfServiceUrl = in.readString();
             String privacyPolicyUrl = in.readString();
             boolean enableCredentials = in.readInt() != 0;
-            boolean enableHints = in.readInt() != 0;
+            long credentialManagerTimeoutMillis = in.readLong();
             boolean enableAnonymousUpgrade = in.readInt() != 0;
             boolean alwaysShowProviderChoice = in.readInt() != 0;
             boolean lockOrientation = in.readInt() != 0;
+            boolean emailSingleActivity = in.readInt() != 0;
+            boolean deferProfileMerge = in.readInt() != 0;
             String emailLink = in.readString();
             ActionCodeSettings passwordResetSettings = in.readParcelable(ActionCodeSettings.class.getClassLoader());
             AuthMethodPickerLayout customLayout = in.readParcelable(AuthMethodPickerLayout.class.getClassLoader());
@@ -70,9 +72,12 @@ public class FlowParameters implements Parcelable {
                     termsOfServiceUrl,
                     privacyPolicyUrl,
                     enableCredentials,
+                    credentialManagerTimeoutMillis,
                     enableAnonymousUpgrade,
                     alwaysShowProviderChoice,
                     lockOrientation,
+                    emailSingleActivity,
+                    deferProfileMerge,
                     emailLink,
                     passwordResetSettings,
                     customLayout);
@@ -112,9 +117,12 @@ public class FlowParameters implements Parcelable {
     public final ActionCodeSettings passwordResetSettings;
 
     public final boolean enableCredentials;
+    public final long credentialManagerTimeoutMillis;
     public final boolean enableAnonymousUpgrade;
     public final boolean alwaysShowProviderChoice;
     public final boolean lockOrientation;
+    public final boolean emailSingleActivity;
+    public final boolean deferProfileMerge;
 
     @Nullable
     public final AuthMethodPickerLayout authMethodPickerLayout;
@@ -128,9 +136,12 @@ public class FlowParameters implements Parcelable {
             @Nullable String termsOfServiceUrl,
             @Nullable String privacyPolicyUrl,
             boolean enableCredentials,
+            long credentialManagerTimeoutMillis,
             boolean enableAnonymousUpgrade,
             boolean alwaysShowProviderChoice,
             boolean lockOrientation,
+            boolean emailSingleActivity,
+            boolean deferProfileMerge,
             @Nullable String emailLink,
             @Nullable ActionCodeSettings passwordResetSettings,
             @Nullable AuthMethodPickerLayout authMethodPickerLayout) {
@@ -143,9 +154,12 @@ public class FlowParameters implements Parcelable {
         this.termsOfServiceUrl = termsOfServiceUrl;
         this.privacyPolicyUrl = privacyPolicyUrl;
         this.enableCredentials = enableCredentials;
+        this.credentialManagerTimeoutMillis = credentialManagerTimeoutMillis;
         this.enableAnonymousUpgrade = enableAnonymousUpgrade;
         this.alwaysShowProviderChoice = alwaysShowProviderChoice;
         this.lockOrientation = lockOrientation;
+        this.emailSingleActivity = emailSingleActivity;
+        this.deferProfileMerge = deferProfileMerge;
         this.emailLink = emailLink;
         this.passwordResetSettings = passwordResetSettings;
         this.authMethodPickerLayout = authMethodPickerLayout;
@@ -168,9 +182,12 @@ public class FlowParameters implements Parcelable {
         dest.writeString(termsOfServiceUrl);
         dest.writeString(privacyPolicyUrl);
         dest.writeInt(enableCredentials ? 1 : 0);
+        dest.writeLong(credentialManagerTimeoutMillis);
         dest.writeInt(enableAnonymousUpgrade ? 1 : 0);
         dest.writeInt(alwaysShowProviderChoice ? 1 : 0);
         dest.writeInt(lockOrientation ? 1 : 0);
+        dest.writeInt(emailSingleActivity ? 1 : 0);
+        dest.writeInt(deferProfileMerge ? 1 : 0);
         dest.writeString(emailLink);
         dest.writeParcelable(passwordResetSettings, flags);
         dest.writeParcelable(authMethodPickerLayout, flags);
@@ -1,14 +1,20 @@
 package com.firebase.ui.auth.data.remote;
 
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 
+import com.firebase.ui.auth.AuthUI;
 import com.firebase.ui.auth.IdpResponse;
+import com.firebase.ui.auth.data.model.FlowParameters;
 import com.firebase.ui.auth.data.model.User;
 import com.firebase.ui.auth.util.data.TaskFailureLogger;
 import com.google.android.gms.tasks.Continuation;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseNetworkException;
 import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.UserProfileChangeRequest;
@@ -20,14 +26,21 @@ import androidx.annotation.RestrictTo;
  * Merges an existing account's profile with the new user's profile.
  * <p>
  * <b>Note:</b> This operation always returns a successful task to minimize login interruptions.
+ * When the flow defers profile merges, the task completes without waiting for the update which is
+ * then retried on network errors. {@link AuthUI#getProfileMergeTask()} reports its outcome.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class ProfileMerger implements Continuation<AuthResult, Task<AuthResult>> {
     private static final String TAG = "ProfileMerger";
 
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+
+    private final FlowParameters mParams;
     private final IdpResponse mResponse;
 
-    public ProfileMerger(IdpResponse response) {
+    public ProfileMerger(FlowParameters params, IdpResponse response) {
+        mParams = params;
         mResponse = response;
     }
 
@@ -46,12 +59,40 @@ public class ProfileMerger implements Continuation<AuthResult, Task<AuthResult>>
         if (TextUtils.isEmpty(name)) { name = user.getName(); }
         if (photoUri == null) { photoUri = user.getPhotoUri(); }
 
-        return firebaseUser.updateProfile(
-                new UserProfileChangeRequest.Builder()
-                        .setDisplayName(name)
-                        .setPhotoUri(photoUri)
-                        .build())
+        UserProfileChangeRequest request = new UserProfileChangeRequest.Builder()
+                .setDisplayName(name)
+                .setPhotoUri(photoUri)
+                .build();
+
+        if (mParams.deferProfileMerge) {
+            Task<Void> merge = updateProfile(firebaseUser, request, 1)
+                    .addOnFailureListener(new TaskFailureLogger(TAG, "Error updating profile"));
+            AuthUI.getInstance(mParams.appName).setProfileMergeTask(merge);
+            return Tasks.forResult(authResult);
+        }
+
+        return firebaseUser.updateProfile(request)
                 .addOnFailureListener(new TaskFailureLogger(TAG, "Error updating profile"))
                 .continueWithTask(task1 -> Tasks.forResult(authResult));
     }
+
+    private static Task<Void> updateProfile(final FirebaseUser user,
+                                            final UserProfileChangeRequest request,
+                                            final int attempt) {
+        return user.updateProfile(request).continueWithTask(task -> {
+            if (task.getException() instanceof FirebaseNetworkException
+                    && attempt < MAX_ATTEMPTS) {
+                long delay = INITIAL_RETRY_DELAY_MILLIS << (attempt - 1);
+                return delay(delay).continueWithTask(
+                        ignored -> updateProfile(user, request, attempt + 1));
+            }
+            return task;
+        });
+    }
+
+    private static Task<Void> delay(long millis) {
+        final TaskCompletionSource<Void> source = new TaskCompletionSource<>();
+        new Handler(Looper.getMainLooper()).postDelayed(() -> source.setResult(null), millis);
+        return source.getTask();
+    }
 }
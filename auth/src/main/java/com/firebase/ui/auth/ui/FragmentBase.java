@@ -1,5 +1,6 @@
 package com.firebase.ui.auth.ui;
 
+import android.content.Intent;
 import android.os.Bundle;
 
 import com.firebase.ui.auth.IdpResponse;
@@ -35,4 +36,8 @@ public abstract class FragmentBase extends Fragment implements ProgressView {
             @Nullable String password) {
         mActivity.startSaveCredentials(firebaseUser, response, password);
     }
+
+    public void finish(int resultCode, @Nullable Intent intent) {
+        mActivity.finish(resultCode, intent);
+    }
 }
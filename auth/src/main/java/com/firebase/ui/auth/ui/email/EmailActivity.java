@@ -126,6 +126,12 @@ public class EmailActivity extends AppCompatBase implements CheckEmailFragment.C
                     getFlowParams().providers, EMAIL_LINK_PROVIDER);
             showRegisterEmailLinkFragment(
                     emailConfig, user.getEmail());
+        } else if (getFlowParams().emailSingleActivity) {
+            WelcomeBackPasswordFragment fragment = WelcomeBackPasswordFragment.newInstance(
+                    new IdpResponse.Builder(user).build());
+            // Like the activity it replaces, going back from the prompt leaves the email flow
+            switchFragment(fragment, R.id.fragment_register_email,
+                    WelcomeBackPasswordFragment.TAG, true, false);
         } else {
             startActivityForResult(
                     WelcomeBackPasswordPrompt.createIntent(
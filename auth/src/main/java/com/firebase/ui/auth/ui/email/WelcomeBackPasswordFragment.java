@@ -0,0 +1,224 @@
+/*
+ * Copyright 2026 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebase.ui.auth.ui.email;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.text.SpannableStringBuilder;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.firebase.ui.auth.ErrorCodes;
+import com.firebase.ui.auth.FirebaseAuthAnonymousUpgradeException;
+import com.firebase.ui.auth.FirebaseUiException;
+import com.firebase.ui.auth.IdpResponse;
+import com.firebase.ui.auth.R;
+import com.firebase.ui.auth.ui.FragmentBase;
+import com.firebase.ui.auth.util.ExtraConstants;
+import com.firebase.ui.auth.util.FirebaseAuthError;
+import com.firebase.ui.auth.util.data.PrivacyDisclosureUtils;
+import com.firebase.ui.auth.util.data.ProviderUtils;
+import com.firebase.ui.auth.util.ui.ImeHelper;
+import com.firebase.ui.auth.util.ui.TextHelper;
+import com.firebase.ui.auth.viewmodel.ResourceObserver;
+import com.firebase.ui.auth.viewmodel.email.WelcomeBackPasswordHandler;
+import com.google.android.material.textfield.TextInputLayout;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.StringRes;
+import androidx.lifecycle.ViewModelProvider;
+
+/**
+ * Fragment asking a returning email user for their password, to sign them in and link a new IDP
+ * sign-in if there is one. Hosted by {@link WelcomeBackPasswordPrompt}, or by
+ * {@link EmailActivity} when the email password prompt is shown within it.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class WelcomeBackPasswordFragment extends FragmentBase
+        implements View.OnClickListener, ImeHelper.DonePressedListener {
+    public static final String TAG = "WelcomeBackPasswordFragment";
+
+    private IdpResponse mIdpResponse;
+    private WelcomeBackPasswordHandler mHandler;
+
+    private Button mDoneButton;
+    private ProgressBar mProgressBar;
+    private TextInputLayout mPasswordLayout;
+    private EditText mPasswordField;
+
+    public static WelcomeBackPasswordFragment newInstance(@NonNull IdpResponse response) {
+        WelcomeBackPasswordFragment fragment = new WelcomeBackPasswordFragment();
+        Bundle args = new Bundle();
+        args.putParcelable(ExtraConstants.IDP_RESPONSE, response);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater,
+                             @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fui_welcome_back_password_prompt_layout, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        mIdpResponse = requireArguments().getParcelable(ExtraConstants.IDP_RESPONSE);
+        String email = mIdpResponse.getEmail();
+
+        mDoneButton = view.findViewById(R.id.button_done);
+        mProgressBar = view.findViewById(R.id.top_progress_bar);
+        mPasswordLayout = view.findViewById(R.id.password_layout);
+        mPasswordField = view.findViewById(R.id.password);
+
+        ImeHelper.setImeOnDoneListener(mPasswordField, this);
+
+        // Create welcome back text with email bolded.
+        String bodyText = getString(R.string.fui_welcome_back_password_prompt_body, email);
+
+        SpannableStringBuilder spannableStringBuilder = new SpannableStringBuilder(bodyText);
+        TextHelper.boldAllOccurencesOfText(spannableStringBuilder, bodyText, email);
+
+        TextView bodyTextView = view.findViewById(R.id.welcome_back_password_body);
+        bodyTextView.setText(spannableStringBuilder);
+
+        // Click listeners
+        mDoneButton.setOnClickListener(this);
+        view.findViewById(R.id.trouble_signing_in).setOnClickListener(this);
+
+        TextView footerText = view.findViewById(R.id.email_footer_tos_and_pp_text);
+        PrivacyDisclosureUtils.setupTermsOfServiceFooter(
+                requireContext(), getFlowParams(), footerText);
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        Activity activity = requireActivity();
+        activity.setTitle(R.string.fui_title_welcome_back_password_prompt);
+
+        // Show keyboard
+        activity.getWindow()
+                .setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_STATE_VISIBLE);
+
+        // Initialize ViewModel with arguments
+        mHandler = new ViewModelProvider(activity).get(WelcomeBackPasswordHandler.class);
+        mHandler.init(getFlowParams());
+
+        // Observe the state of the main auth operation
+        mHandler.getOperation().observe(getViewLifecycleOwner(), new ResourceObserver<IdpResponse>(
+                this, R.string.fui_progress_dialog_signing_in) {
+            @Override
+            protected void onSuccess(@NonNull IdpResponse response) {
+                startSaveCredentials(
+                        mHandler.getCurrentUser(), response, mHandler.getPendingPassword());
+            }
+
+            @Override
+            protected void onFailure(@NonNull Exception e) {
+                if (e instanceof FirebaseAuthAnonymousUpgradeException) {
+                    IdpResponse response = ((FirebaseAuthAnonymousUpgradeException) e).getResponse();
+                    finish(ErrorCodes.ANONYMOUS_UPGRADE_MERGE_CONFLICT, response.toIntent());
+                    return;
+                }
+
+                if (e instanceof FirebaseAuthException) {
+                    FirebaseAuthException authEx = (FirebaseAuthException) e;
+                    FirebaseAuthError error = FirebaseAuthError.fromException(authEx);
+                    if (error == FirebaseAuthError.ERROR_USER_DISABLED) {
+                        IdpResponse resp = IdpResponse.from(
+                                new FirebaseUiException(ErrorCodes.ERROR_USER_DISABLED));
+                        finish(Activity.RESULT_CANCELED, resp.toIntent());
+                        return;
+                    }
+                }
+
+                mPasswordLayout.setError(getString(getErrorMessage(e)));
+            }
+        });
+    }
+
+    @StringRes
+    private int getErrorMessage(Exception exception) {
+        if (exception instanceof FirebaseAuthInvalidCredentialsException) {
+            return R.string.fui_error_invalid_password;
+        }
+
+        return R.string.fui_error_unknown;
+    }
+
+    private void onForgotPasswordClicked() {
+        startActivity(RecoverPasswordActivity.createIntent(
+                requireContext(),
+                getFlowParams(),
+                mIdpResponse.getEmail()));
+    }
+
+    @Override
+    public void onDonePressed() {
+        validateAndSignIn();
+    }
+
+    private void validateAndSignIn() {
+        validateAndSignIn(mPasswordField.getText().toString());
+    }
+
+    private void validateAndSignIn(String password) {
+        // Check for null or empty password
+        if (TextUtils.isEmpty(password)) {
+            mPasswordLayout.setError(getString(R.string.fui_error_invalid_password));
+            return;
+        } else {
+            mPasswordLayout.setError(null);
+        }
+
+        AuthCredential authCredential = ProviderUtils.getAuthCredential(mIdpResponse);
+        mHandler.startSignIn(mIdpResponse.getEmail(), password, mIdpResponse, authCredential);
+    }
+
+    @Override
+    public void onClick(View view) {
+        final int id = view.getId();
+        if (id == R.id.button_done) {
+            validateAndSignIn();
+        } else if (id == R.id.trouble_signing_in) {
+            onForgotPasswordClicked();
+        }
+    }
+
+    @Override
+    public void showProgress(int message) {
+        mDoneButton.setEnabled(false);
+        mProgressBar.setVisibility(View.VISIBLE);
+    }
+
+    @Override
+    public void hideProgress() {
+        mDoneButton.setEnabled(true);
+        mProgressBar.setVisibility(View.INVISIBLE);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebase.ui.auth.ui.idp;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.text.TextUtils;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import com.facebook.login.LoginManager;
+import com.firebase.ui.auth.AuthUI;
+import com.firebase.ui.auth.R;
+import com.firebase.ui.auth.data.model.FlowParameters;
+import com.firebase.ui.auth.util.data.CountryListCache;
+import com.firebase.ui.auth.util.data.ProviderAvailability;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.EmailAuthProvider;
+import com.google.firebase.auth.FacebookAuthProvider;
+import com.google.firebase.auth.GoogleAuthProvider;
+import com.google.firebase.auth.PhoneAuthProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import static com.firebase.ui.auth.util.ExtraConstants.GENERIC_OAUTH_BUTTON_ID;
+import static com.firebase.ui.auth.util.ExtraConstants.GENERIC_OAUTH_PROVIDER_ID;
+
+/**
+ * Does the work of starting a sign in flow ahead of time, on a background thread: loads the
+ * provider SDKs, resolves which of them are available and inflates the buttons of
+ * {@link AuthMethodPickerActivity}. The activity then takes the prepared buttons instead of
+ * inflating its own.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class AuthFlowPrewarmer {
+    /** Changes which could make a prepared button look different in the activity. */
+    private static final int RESOURCE_CONFIG_CHANGES = ActivityInfo.CONFIG_UI_MODE
+            | ActivityInfo.CONFIG_DENSITY
+            | ActivityInfo.CONFIG_FONT_SCALE
+            | ActivityInfo.CONFIG_LOCALE
+            | ActivityInfo.CONFIG_LAYOUT_DIRECTION
+            | ActivityInfo.CONFIG_ORIENTATION;
+
+    private static final Object LOCK = new Object();
+
+    // Guarded by LOCK
+    private static int sButtonsThemeId;
+    private static SparseArray<List<View>> sButtons = new SparseArray<>();
+
+    private AuthFlowPrewarmer() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * Prepares a sign in flow on a background thread. Preparing a new flow drops the buttons
+     * prepared for the previous one.
+     *
+     * @return a task completing once the flow is prepared.
+     */
+    @NonNull
+    public static Task<Void> prewarm(@NonNull Context context,
+                                     @NonNull final FlowParameters params) {
+        final Context appContext = context.getApplicationContext();
+        return Tasks.call(AuthUI.getBackgroundExecutor(), () -> {
+            loadProviders(params);
+            if (params.shouldShowProviderChoice() && params.authMethodPickerLayout == null) {
+                inflateButtons(appContext, params);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return the layout of the button starting the given provider's sign in.
+     * @throws IllegalStateException if the provider is unknown.
+     */
+    @LayoutRes
+    public static int getButtonLayout(@NonNull AuthUI.IdpConfig config) {
+        switch (config.getProviderId()) {
+            case GoogleAuthProvider.PROVIDER_ID:
+                return R.layout.fui_idp_button_google;
+            case FacebookAuthProvider.PROVIDER_ID:
+                return R.layout.fui_idp_button_facebook;
+            case AuthUI.EMAIL_LINK_PROVIDER:
+            case EmailAuthProvider.PROVIDER_ID:
+                return R.layout.fui_provider_button_email;
+            case PhoneAuthProvider.PROVIDER_ID:
+                return R.layout.fui_provider_button_phone;
+            case AuthUI.ANONYMOUS_PROVIDER:
+                return R.layout.fui_provider_button_anonymous;
+            default:
+                if (!TextUtils.isEmpty(config.getParams().getString(GENERIC_OAUTH_PROVIDER_ID))) {
+                    return config.getParams().getInt(GENERIC_OAUTH_BUTTON_ID);
+                }
+                throw new IllegalStateException("Unknown provider: " + config.getProviderId());
+        }
+    }
+
+    /**
+     * Takes a button prepared by {@link #prewarm(Context, FlowParameters)}, if one was prepared
+     * with the same theme and resource configuration as the activity.
+     *
+     * @return a button with {@link LinearLayout.LayoutParams}, or null if the activity needs to
+     * inflate its own.
+     */
+    @Nullable
+    public static View takeButton(@NonNull Context activity,
+                                  int themeId,
+                                  @LayoutRes int layout) {
+        View button;
+        synchronized (LOCK) {
+            List<View> buttons = sButtons.get(layout);
+            if (themeId != sButtonsThemeId || buttons == null || buttons.isEmpty()) {
+                return null;
+            }
+            button = buttons.remove(buttons.size() - 1);
+        }
+
+        Configuration buttonConfig = button.getContext().getResources().getConfiguration();
+        Configuration activityConfig = activity.getResources().getConfiguration();
+        if ((buttonConfig.diff(activityConfig) & RESOURCE_CONFIG_CHANGES) != 0) {
+            return null;
+        }
+        return button;
+    }
+
+    private static void loadProviders(FlowParameters params) {
+        boolean useEmulator = AuthUI.getInstance(params.appName).isUseEmulator();
+        for (AuthUI.IdpConfig config : params.providers) {
+            switch (config.getProviderId()) {
+                case FacebookAuthProvider.PROVIDER_ID:
+                    if (ProviderAvailability.IS_FACEBOOK_AVAILABLE && !useEmulator) {
+                        LoginManager.getInstance();
+                    }
+                    break;
+                case PhoneAuthProvider.PROVIDER_ID:
+                    CountryListCache.getCountries(Locale.getDefault());
+                    break;
+                default:
+                    // Nothing to load
+            }
+        }
+    }
+
+    private static void inflateButtons(Context appContext, FlowParameters params) {
+        // Same themes as the activity, see AppCompatBase
+        Context context = new ContextThemeWrapper(appContext, R.style.FirebaseUI);
+        context.getTheme().applyStyle(params.themeId, true);
+
+        // Lets the buttons get the layout params of the activity's button holder
+        LinearLayout parent = new LinearLayout(context);
+        LayoutInflater inflater = LayoutInflater.from(context);
+
+        SparseArray<List<View>> buttons = new SparseArray<>();
+        for (AuthUI.IdpConfig config : params.providers) {
+            int layout = getButtonLayout(config);
+            List<View> views = buttons.get(layout);
+            if (views == null) {
+                views = new ArrayList<>();
+                buttons.put(layout, views);
+            }
+            views.add(inflater.inflate(layout, parent, false));
+        }
+
+        synchronized (LOCK) {
+            sButtonsThemeId = params.themeId;
+            sButtons = buttons;
+        }
+    }
+}
@@ -71,6 +71,8 @@ import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException
 import com.google.firebase.auth.FirebaseAuthInvalidUserException
 import com.google.firebase.auth.GoogleAuthProvider
 import com.google.firebase.auth.PhoneAuthProvider
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 
 // Imports for the new Credential Manager types (adjust these to match your library)
@@ -84,7 +86,6 @@ import androidx.credentials.PublicKeyCredential
 import androidx.credentials.exceptions.GetCredentialException
 
 import com.firebase.ui.auth.AuthUI.EMAIL_LINK_PROVIDER
-import com.firebase.ui.auth.util.ExtraConstants.GENERIC_OAUTH_BUTTON_ID
 import com.firebase.ui.auth.util.ExtraConstants.GENERIC_OAUTH_PROVIDER_ID
 import com.firebase.ui.auth.util.GoogleApiUtils
 import com.google.android.libraries.identity.googleid.GetGoogleIdOption
@@ -103,6 +104,12 @@ class AuthMethodPickerActivity : AppCompatBase() {
 
     private var customLayout: AuthMethodPickerLayout? = null
 
+    private var mCredentialRequest: Job? = null
+    private var mCredentialDeadline: Job? = null
+    private var mShowingCredentialProgress = false
+    private var mProviderSignInStarted = false
+    private var mCredentialSignInRunning = false
+
     // For demonstration, assume that CredentialManager provides a create() method.
     private val credentialManager by lazy {
         // Replace with your actual CredentialManager instance creation.
@@ -124,6 +131,10 @@ class AuthMethodPickerActivity : AppCompatBase() {
         val params = flowParams
         customLayout = params.authMethodPickerLayout
 
+        // Start looking for a saved credential first, Credential Manager works on it while the
+        // layout is inflated.
+        attemptCredentialSignIn()
+
         mHandler = ViewModelProvider(this).get(SocialProviderResponseHandler::class.java)
         mHandler.init(params)
 
@@ -195,8 +206,9 @@ class AuthMethodPickerActivity : AppCompatBase() {
             }
         })
 
-        // Attempt sign in using the new Credential Manager API.
-        attemptCredentialSignIn()
+        if (mCredentialRequest?.isActive == true) {
+            waitForCredential(params.credentialManagerTimeoutMillis)
+        }
     }
 
     /**
@@ -217,18 +229,27 @@ class AuthMethodPickerActivity : AppCompatBase() {
                 .build()
             val request = GetCredentialRequest(listOf(getPasswordOption, googleIdOption))
 
-            lifecycleScope.launch {
+            mCredentialRequest = lifecycleScope.launch {
                 try {
                     val result = credentialManager.getCredential(
                         context = this@AuthMethodPickerActivity,
                         request = request
                     )
-                    // Handle the returned credential.
-                    handleCredentialManagerResult(result.credential)
+                    if (mProviderSignInStarted) {
+                        // The user picked a provider after the deadline, don't start a second
+                        // sign-in on top of it.
+                        Log.d(TAG, "Ignoring a credential returned after a provider was picked")
+                        onCredentialRequestFinished()
+                    } else {
+                        // Handle the returned credential, even if the picker is already shown.
+                        // The picker stays disabled until the sign-in finishes.
+                        mCredentialDeadline?.cancel()
+                        handleCredentialManagerResult(result.credential)
+                    }
                 } catch (e: GetCredentialException) {
                     handleCredentialManagerFailure(e)
                     // Fallback: show the auth method picker.
-                    showAuthMethodPicker()
+                    onCredentialRequestFinished()
                 }
             }
         } else {
@@ -236,10 +257,58 @@ class AuthMethodPickerActivity : AppCompatBase() {
         }
     }
 
+    /**
+     * Keeps the providers disabled while the Credential Manager request is pending, for at most
+     * [timeoutMillis]. The picker is then shown and the request keeps going.
+     */
+    private fun waitForCredential(timeoutMillis: Long) {
+        if (timeoutMillis <= 0) return
+
+        mShowingCredentialProgress = true
+        showProgress(R.string.fui_progress_dialog_loading)
+        mCredentialDeadline = lifecycleScope.launch {
+            delay(timeoutMillis)
+            hideCredentialProgress()
+        }
+    }
+
+    private fun onCredentialRequestFinished() {
+        mCredentialDeadline?.cancel()
+        hideCredentialProgress()
+    }
+
+    /**
+     * Disables the picker while signing in with a saved credential.
+     */
+    private fun onCredentialSignInStarted() {
+        mCredentialSignInRunning = true
+        if (!mShowingCredentialProgress) {
+            mShowingCredentialProgress = true
+            showProgress(R.string.fui_progress_dialog_signing_in)
+        }
+    }
+
+    private fun onCredentialSignInFailed() {
+        mCredentialSignInRunning = false
+        hideCredentialProgress()
+    }
+
+    /**
+     * Hides the progress shown by [waitForCredential] or for a credential sign-in, leaving any
+     * progress shown for a provider operation in place.
+     */
+    private fun hideCredentialProgress() {
+        if (!mShowingCredentialProgress) return
+
+        mShowingCredentialProgress = false
+        hideProgress()
+    }
+
     /**
      * Handles the credential returned from the Credential Manager.
      */
     private fun handleCredentialManagerResult(credential: Credential) {
+        onCredentialSignInStarted()
         when (credential) {
             is PasswordCredential -> {
                 val username = credential.id
@@ -259,6 +328,7 @@ class AuthMethodPickerActivity : AppCompatBase() {
                             // Sign out via the new API.
                             Identity.getSignInClient(application).signOut()
                         }
+                        onCredentialSignInFailed()
                     }
             }
             is CustomCredential -> {
@@ -276,17 +346,21 @@ class AuthMethodPickerActivity : AppCompatBase() {
                             }
                             .addOnFailureListener { e ->
                                 Log.e(TAG, "Failed to sign in with Google ID token", e)
+                                onCredentialSignInFailed()
                             }
                     } catch (e: GoogleIdTokenParsingException) {
                         Log.e(TAG, "Received an invalid google id token response", e)
+                        onCredentialSignInFailed()
                     }
                 } else {
                     // Catch any unrecognized custom credential type here.
                     Log.e(TAG, "Unexpected type of credential")
+                    onCredentialSignInFailed()
                 }
             }
             else -> {
                 Log.e(TAG, "Unexpected type of credential")
+                onCredentialSignInFailed()
             }
         }
     }
@@ -329,21 +403,10 @@ class AuthMethodPickerActivity : AppCompatBase() {
         // Clear any previous providers.
         mProviders.clear()
         for (idpConfig in providerConfigs) {
-            val buttonLayout = when (idpConfig.providerId) {
-                GoogleAuthProvider.PROVIDER_ID -> R.layout.fui_idp_button_google
-                FacebookAuthProvider.PROVIDER_ID -> R.layout.fui_idp_button_facebook
-                EMAIL_LINK_PROVIDER, EmailAuthProvider.PROVIDER_ID -> R.layout.fui_provider_button_email
-                PhoneAuthProvider.PROVIDER_ID -> R.layout.fui_provider_button_phone
-                AuthUI.ANONYMOUS_PROVIDER -> R.layout.fui_provider_button_anonymous
-                else -> {
-                    if (!TextUtils.isEmpty(idpConfig.params.getString(GENERIC_OAUTH_PROVIDER_ID))) {
-                        idpConfig.params.getInt(GENERIC_OAUTH_BUTTON_ID)
-                    } else {
-                        throw IllegalStateException("Unknown provider: ${idpConfig.providerId}")
-                    }
-                }
-            }
-            val loginButton = layoutInflater.inflate(buttonLayout, mProviderHolder, false)
+            val buttonLayout = AuthFlowPrewarmer.getButtonLayout(idpConfig)
+            // Reuse the button inflated by AuthUI#prewarm if there is one
+            val loginButton = AuthFlowPrewarmer.takeButton(this, flowParams.themeId, buttonLayout)
+                ?: layoutInflater.inflate(buttonLayout, mProviderHolder, false)
             handleSignInOperation(idpConfig, loginButton)
             mProviderHolder?.addView(loginButton)
         }
@@ -447,11 +510,18 @@ class AuthMethodPickerActivity : AppCompatBase() {
         })
 
         view.setOnClickListener {
+            if (mCredentialSignInRunning) {
+                // Custom layouts keep their buttons enabled while signing in with a credential
+                return@setOnClickListener
+            }
             if (isOffline()) {
                 Snackbar.make(findViewById(android.R.id.content), getString(R.string.fui_no_internet), Snackbar.LENGTH_SHORT)
                     .show()
                 return@setOnClickListener
             }
+            // The provider operation owns the progress from now on
+            mProviderSignInStarted = true
+            mShowingCredentialProgress = false
             provider.startSignIn(getAuth(), this@AuthMethodPickerActivity, idpConfig.providerId)
         }
     }
@@ -13,6 +13,7 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.firebase.ui.auth.R;
+import com.firebase.ui.auth.data.model.CountryInfo;
 import com.firebase.ui.auth.data.model.FlowParameters;
 import com.firebase.ui.auth.data.model.PhoneNumber;
 import com.firebase.ui.auth.ui.FragmentBase;
@@ -161,11 +162,12 @@ public class CheckPhoneNumberFragment extends FragmentBase implements View.OnCli
     @Nullable
     private String getPseudoValidPhoneNumber() {
         String everythingElse = mPhoneEditText.getText().toString();
-        if (TextUtils.isEmpty(everythingElse)) {
+        CountryInfo countryInfo = mCountryListSpinner.getSelectedCountryInfo();
+        if (TextUtils.isEmpty(everythingElse) || countryInfo == null) {
+            // No country is selected until the country list loads if the current one is excluded
             return null;
         }
-        return PhoneNumberUtils.format(
-                everythingElse, mCountryListSpinner.getSelectedCountryInfo());
+        return PhoneNumberUtils.format(everythingElse, countryInfo);
     }
 
     private void setupPrivacyDisclosures() {
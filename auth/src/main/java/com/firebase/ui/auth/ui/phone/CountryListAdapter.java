@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebase.ui.auth.ui.phone;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import com.firebase.ui.auth.R;
+import com.firebase.ui.auth.data.model.CountryInfo;
+import com.firebase.ui.auth.util.data.CountrySearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Adapter of the country picker, filtered with a {@link CountrySearchIndex}.
+ */
+final class CountryListAdapter extends ArrayAdapter<CountryInfo> {
+    private final Filter mFilter = new SearchFilter();
+
+    private List<CountryInfo> mCountries = new ArrayList<>();
+    // Created on the main thread, only queried on the filter's worker thread
+    @Nullable
+    private volatile CountrySearchIndex.Search mSearch;
+
+    CountryListAdapter(@NonNull Context context) {
+        super(context, R.layout.fui_dgts_country_row, android.R.id.text1);
+    }
+
+    /**
+     * @param countries   the countries to display.
+     * @param searchIndex an index containing the countries, or null if they can't be searched.
+     */
+    void setCountries(@NonNull List<CountryInfo> countries,
+                      @Nullable CountrySearchIndex searchIndex) {
+        mCountries = countries;
+        mSearch = searchIndex == null ? null : searchIndex.newSearch(countries);
+        showCountries(countries);
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return mFilter;
+    }
+
+    private void showCountries(List<CountryInfo> countries) {
+        setNotifyOnChange(false);
+        clear();
+        addAll(countries);
+        notifyDataSetChanged();
+    }
+
+    private final class SearchFilter extends Filter {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            CountrySearchIndex.Search search = mSearch;
+            FilterResults results = new FilterResults();
+            if (search == null) {
+                return results;
+            }
+
+            List<CountryInfo> countries = search.find(constraint == null ? "" : constraint);
+            results.values = countries;
+            results.count = countries.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            showCountries(results.values == null
+                    ? mCountries : (List<CountryInfo>) results.values);
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            return ((CountryInfo) resultValue).toShortString();
+        }
+    }
+}
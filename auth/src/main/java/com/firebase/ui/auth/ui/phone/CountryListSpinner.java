@@ -17,30 +17,33 @@
  */
 package com.firebase.ui.auth.ui.phone;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.util.AttributeSet;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
+import android.widget.EditText;
 
 import com.firebase.ui.auth.R;
 import com.firebase.ui.auth.data.model.CountryInfo;
 import com.firebase.ui.auth.util.ExtraConstants;
+import com.firebase.ui.auth.util.data.CountryListCache;
 import com.firebase.ui.auth.util.data.PhoneNumberUtils;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 
 import androidx.annotation.NonNull;
@@ -51,7 +54,8 @@ public final class CountryListSpinner extends TextInputEditText implements View.
     private static final String KEY_SUPER_STATE = "KEY_SUPER_STATE";
     private static final String KEY_COUNTRY_INFO = "KEY_COUNTRY_INFO";
 
-    private final ArrayAdapter<CountryInfo> mCountryListAdapter;
+    private final CountryListAdapter mCountryListAdapter;
+    private final EditText mSearchView;
     private View.OnClickListener mListener;
     private CountryInfo mSelectedCountryInfo;
 
@@ -68,16 +72,35 @@ public final class CountryListSpinner extends TextInputEditText implements View.
         this(context, attrs, R.attr.editTextStyle);
     }
 
+    // The search view is the popup's prompt, it has no parent to inflate it with
+    @SuppressLint("InflateParams")
     public CountryListSpinner(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
         super.setOnClickListener(this);
 
-        mCountryListAdapter = new ArrayAdapter<>(getContext(),
-                R.layout.fui_dgts_country_row,
-                android.R.id.text1);
+        mCountryListAdapter = new CountryListAdapter(getContext());
         mListPopupWindow = new ListPopupWindow(context, null, R.attr.listPopupWindowStyle);
         mListPopupWindow.setModal(true);
 
+        // Type-ahead search above the list, cleared every time the list is dismissed
+        mSearchView = (EditText) LayoutInflater.from(context)
+                .inflate(R.layout.fui_country_search_prompt, null, false);
+        mSearchView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                mCountryListAdapter.getFilter().filter(s);
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
+        });
+        mListPopupWindow.setPromptView(mSearchView);
+        mListPopupWindow.setPromptPosition(ListPopupWindow.POSITION_PROMPT_ABOVE);
+        mListPopupWindow.setOnDismissListener(() -> mSearchView.setText(null));
+
         // Prevent the keyboard from showing
         setInputType(EditorInfo.TYPE_NULL);
 
@@ -115,49 +138,50 @@ public final class CountryListSpinner extends TextInputEditText implements View.
 
     public void init(Bundle params, View anchorView) {
         if (params != null) {
-            List<CountryInfo> countries = getCountriesToDisplayInSpinner(params);
-            setCountriesToDisplay(countries);
-            setDefaultCountryForSpinner(countries);
+            initCountrySpinnerIsosFromParams(params);
+            setDefaultCountryForSpinner();
 
             mListPopupWindow.setAnchorView(anchorView);
             mListPopupWindow.setAdapter(mCountryListAdapter);
-        }
-    }
 
-    private List<CountryInfo> getCountriesToDisplayInSpinner(Bundle params) {
-        initCountrySpinnerIsosFromParams(params);
-        Map<String, Integer> countryInfoMap = PhoneNumberUtils.getImmutableCountryIsoMap();
-        
-        // We consider all countries to be allowed if there are no allowed
-        // or blocked countries given as input.
-        if (mAllowedCountryIsos.isEmpty() && mBlockedCountryIsos.isEmpty()) {
-            this.mAllowedCountryIsos = new HashSet<>(countryInfoMap.keySet());
+            // Sorting the countries is slow, the sorted list is built once off the main thread
+            Locale displayLocale = Locale.getDefault();
+            List<CountryInfo> countries = CountryListCache.getCachedCountries(displayLocale);
+            if (countries == null) {
+                CountryListCache.getCountriesAsync(displayLocale)
+                        .addOnSuccessListener(this::onCountriesLoaded);
+            } else {
+                onCountriesLoaded(countries);
+            }
         }
+    }
 
-        List<CountryInfo> countryInfoList = new ArrayList<>();
+    private void onCountriesLoaded(List<CountryInfo> allCountries) {
+        List<CountryInfo> countries = getCountriesToDisplayInSpinner(allCountries);
+        setCountriesToDisplay(countries);
 
-        // At this point either mAllowedCountryIsos or mBlockedCountryIsos is null.
-        // We assume no countries are to be excluded. Here, we correct this assumption based on the
-        // contents of either lists.
-        Set<String> excludedCountries = new HashSet<>();
-        if (!mBlockedCountryIsos.isEmpty()) {
-            // Exclude all countries in the mBlockedCountryIsos list.
-            excludedCountries.addAll(mBlockedCountryIsos);
-        } else {
-            // Exclude all countries that are not present in the mAllowedCountryIsos list.
-            excludedCountries.addAll(countryInfoMap.keySet());
-            excludedCountries.removeAll(mAllowedCountryIsos);
+        if (mSelectedCountryInfo == null && !countries.isEmpty()) {
+            CountryInfo countryInfo = countries.get(0);
+            setSelectedForCountry(countryInfo.getCountryCode(), countryInfo.getLocale());
         }
+    }
 
-        // Once we know which countries need to be excluded, we loop through the country isos,
-        // skipping those that have been excluded.
-        for (String countryIso : countryInfoMap.keySet()) {
-            if (!excludedCountries.contains(countryIso)) {
-                countryInfoList.add(new CountryInfo(new Locale("", countryIso),
-                        countryInfoMap.get(countryIso)));
+    /**
+     * @param allCountries every country, already sorted.
+     */
+    private List<CountryInfo> getCountriesToDisplayInSpinner(List<CountryInfo> allCountries) {
+        List<CountryInfo> countryInfoList = new ArrayList<>(allCountries.size());
+        for (CountryInfo countryInfo : allCountries) {
+            String countryIso = countryInfo.getLocale().getCountry();
+
+            // Blocked countries take precedence, otherwise only allowed countries are displayed.
+            boolean excluded = mBlockedCountryIsos.isEmpty()
+                    ? !mAllowedCountryIsos.contains(countryIso)
+                    : mBlockedCountryIsos.contains(countryIso);
+            if (!excluded) {
+                countryInfoList.add(countryInfo);
             }
         }
-        Collections.sort(countryInfoList);
         return countryInfoList;
     }
 
@@ -174,6 +198,13 @@ public final class CountryListSpinner extends TextInputEditText implements View.
         if (blockedCountries != null) {
             mBlockedCountryIsos = convertCodesToIsos(blockedCountries);
         }
+
+        // We consider all countries to be allowed if there are no allowed
+        // or blocked countries given as input.
+        if (mAllowedCountryIsos.isEmpty() && mBlockedCountryIsos.isEmpty()) {
+            mAllowedCountryIsos =
+                    new HashSet<>(PhoneNumberUtils.getImmutableCountryIsoMap().keySet());
+        }
     }
 
     private Set<String> convertCodesToIsos(@NonNull List<String> codes) {
@@ -189,19 +220,19 @@ public final class CountryListSpinner extends TextInputEditText implements View.
     }
 
     public void setCountriesToDisplay(List<CountryInfo> countries) {
-        mCountryListAdapter.addAll(countries);
-        mCountryListAdapter.notifyDataSetChanged();
+        mCountryListAdapter.setCountries(countries,
+                CountryListCache.getSearchIndex(Locale.getDefault()));
     }
 
-    private void setDefaultCountryForSpinner(List<CountryInfo> countries) {
+    /**
+     * Selects the current country if it can be displayed. Otherwise, the first displayed country
+     * is selected once the countries are loaded.
+     */
+    private void setDefaultCountryForSpinner() {
         CountryInfo countryInfo = PhoneNumberUtils.getCurrentCountryInfo(getContext());
         if (isValidIso(countryInfo.getLocale().getCountry())) {
             setSelectedForCountry(countryInfo.getCountryCode(),
                     countryInfo.getLocale());
-        } else if (countries.iterator().hasNext()) {
-            countryInfo = countries.iterator().next();
-            setSelectedForCountry(countryInfo.getCountryCode(),
-                    countryInfo.getLocale());
         }
     }
 
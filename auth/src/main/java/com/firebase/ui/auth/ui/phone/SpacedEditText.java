@@ -21,6 +21,7 @@ package com.firebase.ui.auth.ui.phone;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.text.Editable;
+import android.text.InputFilter;
 import android.text.Spannable;
 import android.text.SpannableStringBuilder;
 import android.text.style.ScaleXSpan;
@@ -29,14 +30,25 @@ import android.util.AttributeSet;
 import com.firebase.ui.auth.R;
 import com.google.android.material.textfield.TextInputEditText;
 
+import java.util.Arrays;
+
 /**
  * This element inserts spaces between characters in the edit text and expands the width of the
  * spaces using spannables. This is required since Android's letter spacing is not available until
  * API 21.
  */
 public final class SpacedEditText extends TextInputEditText {
+    private static final char SPACE = ' ';
+    private static final String SPACE_STRING = String.valueOf(SPACE);
+    // Enough for verification codes
+    private static final int INITIAL_SPANS = 8;
+    private static final InputFilter[] NO_FILTERS = new InputFilter[0];
+
     private float mProportion;
-    private SpannableStringBuilder mOriginalText = new SpannableStringBuilder("");
+    // Not initialized inline since TextView's constructor already calls setText
+    private SpannableStringBuilder mOriginalText;
+    /** The spans of the injected spaces, by index of the space. Reused across changes. */
+    private ScaleXSpan[] mSpans;
 
     public SpacedEditText(Context context) {
         super(context);
@@ -52,12 +64,35 @@ public final class SpacedEditText extends TextInputEditText {
         // Controls the ScaleXSpan applied on the injected spaces
         mProportion = array.getFloat(R.styleable.SpacedEditText_spacingProportion, 1f);
         array.recycle();
+
+        // Spans created by TextView's constructor used the default proportion
+        Editable spacedText = getEditableText();
+        if (mSpans != null && spacedText != null) {
+            for (ScaleXSpan span : mSpans) {
+                if (span != null) {
+                    spacedText.removeSpan(span);
+                }
+            }
+            mSpans = null;
+            updateSpacedText(spacedText);
+        }
     }
 
     @Override
     public void setText(CharSequence text, BufferType type) {
-        mOriginalText = new SpannableStringBuilder(text);
-        super.setText(getSpacedOutString(text), BufferType.SPANNABLE);
+        if (text == null) {
+            text = "";
+        }
+
+        Editable spacedText = getEditableText();
+        if (mOriginalText == null || spacedText == null) {
+            mOriginalText = new SpannableStringBuilder(text);
+            super.setText(getSpacedOutString(text), BufferType.SPANNABLE);
+        } else if (text != mOriginalText) {
+            // Typing only changes a few characters, edit the current text instead of replacing it
+            mOriginalText.replace(0, mOriginalText.length(), text);
+            updateSpacedText(spacedText);
+        }
     }
 
     /**
@@ -103,9 +138,9 @@ public final class SpacedEditText extends TextInputEditText {
         //Scale the space without scaling the character to preserve font appearance
         for (int i = 0; i < textLength - 1; i++) {
             builder.append(text.charAt(i));
-            builder.append(" ");
+            builder.append(SPACE);
             lastSpaceIndex += 2;
-            builder.setSpan(new ScaleXSpan(mProportion), lastSpaceIndex, lastSpaceIndex + 1,
+            builder.setSpan(getSpan(i), lastSpaceIndex, lastSpaceIndex + 1,
                     Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
         }
 
@@ -115,6 +150,72 @@ public final class SpacedEditText extends TextInputEditText {
         return builder;
     }
 
+    /**
+     * Makes the spaced text match the original text by only rewriting the characters that differ.
+     * The user's edit may have shifted characters and spaces, so every position is checked.
+     */
+    private void updateSpacedText(Editable spacedText) {
+        int textLength = mOriginalText.length();
+        int spacedLength = Math.max(textLength * 2 - 1, 0);
+
+        // The editable's filters include the key listener's, e.g. the digits only filter of a
+        // number input type would remove the spaces and placeholders. Like setText, skip them.
+        InputFilter[] filters = spacedText.getFilters();
+        spacedText.setFilters(NO_FILTERS);
+        beginBatchEdit();
+        try {
+            if (spacedText.length() > spacedLength) {
+                spacedText.delete(spacedLength, spacedText.length());
+            }
+
+            for (int index = 0; index < spacedLength; index++) {
+                boolean isSpace = index % 2 == 1;
+                int textIndex = index / 2;
+                char expected = isSpace ? SPACE : mOriginalText.charAt(textIndex);
+
+                if (index == spacedText.length()) {
+                    spacedText.append(expected);
+                } else if (spacedText.charAt(index) != expected) {
+                    if (isSpace) {
+                        spacedText.replace(index, index + 1, SPACE_STRING);
+                    } else {
+                        spacedText.replace(
+                                index, index + 1, mOriginalText, textIndex, textIndex + 1);
+                    }
+                }
+
+                if (isSpace) {
+                    // Moves the span if it is already attached
+                    spacedText.setSpan(getSpan(textIndex), index, index + 1,
+                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+            }
+
+            // Spans of the spaces removed from the end
+            for (int i = Math.max(textLength - 1, 0); mSpans != null && i < mSpans.length; i++) {
+                if (mSpans[i] != null) {
+                    spacedText.removeSpan(mSpans[i]);
+                }
+            }
+        } finally {
+            endBatchEdit();
+            spacedText.setFilters(filters);
+        }
+    }
+
+    private ScaleXSpan getSpan(int spaceIndex) {
+        if (mSpans == null) {
+            mSpans = new ScaleXSpan[Math.max(spaceIndex + 1, INITIAL_SPANS)];
+        } else if (spaceIndex >= mSpans.length) {
+            mSpans = Arrays.copyOf(mSpans, Math.max(spaceIndex + 1, mSpans.length * 2));
+        }
+
+        if (mSpans[spaceIndex] == null) {
+            mSpans[spaceIndex] = new ScaleXSpan(mProportion);
+        }
+        return mSpans[spaceIndex];
+    }
+
     public Editable getUnspacedText() {
         return mOriginalText;
     }
@@ -8,11 +8,15 @@ import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GoogleApiAvailability;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.credentials.CredentialManager;
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public final class GoogleApiUtils {
+    private static CredentialManager sCredentialManager;
+
     private GoogleApiUtils() {
         throw new AssertionError("No instance for you!");
     }
@@ -29,6 +33,12 @@ public final class GoogleApiUtils {
 
     @NonNull
     public static CredentialManager getCredentialManager(@NonNull Context context) {
-        return CredentialManager.create(context);
+        CredentialManager credentialManager = sCredentialManager;
+        return credentialManager != null ? credentialManager : CredentialManager.create(context);
+    }
+
+    @VisibleForTesting
+    public static void setCredentialManagerForTesting(@Nullable CredentialManager manager) {
+        sCredentialManager = manager;
     }
 }
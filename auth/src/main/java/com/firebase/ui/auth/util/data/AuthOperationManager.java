@@ -65,6 +65,7 @@ public class AuthOperationManager {
                                                                  @NonNull FlowParameters flowParameters,
                                                                  @NonNull String email,
                                                                  @NonNull String password) {
+        SignInMethodCache.getInstance().invalidate(auth, email);
         if (canUpgradeAnonymous(auth, flowParameters)) {
             AuthCredential credential = EmailAuthProvider.getCredential(email, password);
             return auth.getCurrentUser().linkWithCredential(credential);
@@ -76,6 +77,7 @@ public class AuthOperationManager {
     public Task<AuthResult> signInAndLinkWithCredential(@NonNull FirebaseAuth auth,
                                                         @NonNull FlowParameters flowParameters,
                                                         @NonNull AuthCredential credential) {
+        SignInMethodCache.getInstance().invalidate(auth);
         if (canUpgradeAnonymous(auth, flowParameters)) {
             return auth.getCurrentUser().linkWithCredential(credential);
         } else {
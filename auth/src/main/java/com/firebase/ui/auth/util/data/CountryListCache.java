@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebase.ui.auth.util.data;
+
+import com.firebase.ui.auth.AuthUI;
+import com.firebase.ui.auth.data.model.CountryInfo;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Caches the list of every supported country, sorted by display name, for each display locale.
+ * Sorting uses one {@link Collator} and precomputed {@link CollationKey}s, so the list is only
+ * built once per locale instead of every time the country picker is shown. The
+ * {@link CountrySearchIndex} of the list is built along with it.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class CountryListCache {
+    private static final Map<Locale, Task<List<CountryInfo>>> TASKS = new HashMap<>();
+    private static final Map<Locale, List<CountryInfo>> COUNTRIES = new HashMap<>();
+    private static final Map<Locale, CountrySearchIndex> SEARCH_INDEXES = new HashMap<>();
+
+    private CountryListCache() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * Builds the countries for the given locale on a background thread, unless they are already
+     * cached or being built.
+     *
+     * @return a task resolving to the sorted, unmodifiable list of countries.
+     */
+    @NonNull
+    public static synchronized Task<List<CountryInfo>> getCountriesAsync(
+            @NonNull final Locale displayLocale) {
+        List<CountryInfo> countries = COUNTRIES.get(displayLocale);
+        if (countries != null) {
+            return Tasks.forResult(countries);
+        }
+
+        Task<List<CountryInfo>> task = TASKS.get(displayLocale);
+        if (task == null) {
+            task = Tasks.call(AuthUI.getBackgroundExecutor(), () -> getCountries(displayLocale));
+            TASKS.put(displayLocale, task);
+        }
+        return task;
+    }
+
+    /**
+     * @return the cached countries for the given locale, or null if they haven't been built yet.
+     */
+    @Nullable
+    public static synchronized List<CountryInfo> getCachedCountries(@NonNull Locale displayLocale) {
+        return COUNTRIES.get(displayLocale);
+    }
+
+    /**
+     * @return the search index of the countries for the given locale, or null if the countries
+     * haven't been built yet.
+     */
+    @Nullable
+    public static synchronized CountrySearchIndex getSearchIndex(@NonNull Locale displayLocale) {
+        return SEARCH_INDEXES.get(displayLocale);
+    }
+
+    /**
+     * Builds the countries for the given locale on the calling thread if they aren't cached.
+     * Prefer {@link #getCountriesAsync(Locale)} on the main thread.
+     */
+    @NonNull
+    public static List<CountryInfo> getCountries(@NonNull Locale displayLocale) {
+        List<CountryInfo> countries = getCachedCountries(displayLocale);
+        if (countries != null) {
+            return countries;
+        }
+
+        // Built outside the lock, a concurrent caller may build the same list which is harmless
+        countries = createSortedCountries(displayLocale);
+        CountrySearchIndex searchIndex = new CountrySearchIndex(countries, displayLocale);
+        synchronized (CountryListCache.class) {
+            List<CountryInfo> existing = COUNTRIES.get(displayLocale);
+            if (existing != null) {
+                return existing;
+            }
+            COUNTRIES.put(displayLocale, countries);
+            SEARCH_INDEXES.put(displayLocale, searchIndex);
+            TASKS.remove(displayLocale);
+        }
+        return countries;
+    }
+
+    private static List<CountryInfo> createSortedCountries(Locale displayLocale) {
+        Map<String, Integer> countryIsoMap = PhoneNumberUtils.getImmutableCountryIsoMap();
+
+        // Same ordering as CountryInfo#compareTo, with a single collator
+        Collator collator = Collator.getInstance(displayLocale);
+        collator.setStrength(Collator.PRIMARY);
+
+        SortableCountry[] sortable = new SortableCountry[countryIsoMap.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : countryIsoMap.entrySet()) {
+            Locale locale = new Locale("", entry.getKey());
+            String name = locale.getDisplayCountry(displayLocale).toUpperCase(displayLocale);
+            sortable[i++] = new SortableCountry(
+                    collator.getCollationKey(name), new CountryInfo(locale, entry.getValue()));
+        }
+        Arrays.sort(sortable);
+
+        List<CountryInfo> countries = new ArrayList<>(sortable.length);
+        for (SortableCountry country : sortable) {
+            countries.add(country.mCountryInfo);
+        }
+        return Collections.unmodifiableList(countries);
+    }
+
+    private static final class SortableCountry implements Comparable<SortableCountry> {
+        private final CollationKey mKey;
+        private final CountryInfo mCountryInfo;
+
+        SortableCountry(CollationKey key, CountryInfo countryInfo) {
+            mKey = key;
+            mCountryInfo = countryInfo;
+        }
+
+        @Override
+        public int compareTo(SortableCountry other) {
+            return mKey.compareTo(other.mKey);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2026 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebase.ui.auth.util.data;
+
+import android.util.SparseArray;
+
+import com.firebase.ui.auth.data.model.CountryInfo;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Type-ahead index over the countries of a display locale. A country matches a query when one of
+ * the words of its name, its ISO code or its dial code starts with the query, ignoring case,
+ * accents and punctuation. For example, "united k", "gb" and "+44" all match the United Kingdom.
+ * <p>
+ * The index is immutable and built once per locale by {@link CountryListCache}. Queries go through
+ * a {@link Search}, which narrows its previous results as the user types.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class CountrySearchIndex {
+    private static final char SEPARATOR = ' ';
+
+    private final List<CountryInfo> mCountries;
+    private final Map<CountryInfo, Integer> mPositions;
+    /** Normalized words of each country, each preceded by a separator. */
+    private final String[] mSearchTexts;
+    /** For each first character of a word, the positions of the countries having such a word. */
+    private final SparseArray<int[]> mInitials = new SparseArray<>();
+
+    /**
+     * @param countries     the countries to index, in display order.
+     * @param displayLocale the locale of the country names.
+     */
+    public CountrySearchIndex(@NonNull List<CountryInfo> countries, @NonNull Locale displayLocale) {
+        mCountries = countries;
+        mPositions = new HashMap<>(countries.size());
+        mSearchTexts = new String[countries.size()];
+
+        SparseArray<List<Integer>> initials = new SparseArray<>();
+        for (int i = 0; i < countries.size(); i++) {
+            CountryInfo country = countries.get(i);
+            mPositions.put(country, i);
+
+            String searchText = SEPARATOR + normalize(
+                    country.getLocale().getDisplayCountry(displayLocale)
+                            + SEPARATOR + country.getLocale().getCountry()
+                            + SEPARATOR + country.getCountryCode());
+            mSearchTexts[i] = searchText;
+
+            for (int j = 0; j < searchText.length() - 1; j++) {
+                if (searchText.charAt(j) != SEPARATOR) { continue; }
+
+                char initial = searchText.charAt(j + 1);
+                List<Integer> positions = initials.get(initial);
+                if (positions == null) {
+                    positions = new ArrayList<>();
+                    initials.put(initial, positions);
+                }
+                // Several words of a country may start with the same character
+                if (positions.isEmpty() || positions.get(positions.size() - 1) != i) {
+                    positions.add(i);
+                }
+            }
+        }
+
+        for (int i = 0; i < initials.size(); i++) {
+            List<Integer> positions = initials.valueAt(i);
+            int[] array = new int[positions.size()];
+            for (int j = 0; j < array.length; j++) {
+                array[j] = positions.get(j);
+            }
+            mInitials.put(initials.keyAt(i), array);
+        }
+    }
+
+    /**
+     * Lower cases the text, strips accents and replaces runs of other characters than letters and
+     * digits by a single separator.
+     */
+    @NonNull
+    static String normalize(@NonNull CharSequence text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean separate = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c)) {
+                if (separate && normalized.length() > 0) {
+                    normalized.append(SEPARATOR);
+                }
+                separate = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                separate = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Starts a search restricted to some of the indexed countries.
+     *
+     * @param countries the countries which may be returned, in display order.
+     */
+    @NonNull
+    public Search newSearch(@NonNull List<CountryInfo> countries) {
+        int[] positions = new int[countries.size()];
+        int count = 0;
+        for (CountryInfo country : countries) {
+            Integer position = mPositions.get(country);
+            if (position != null) {
+                positions[count++] = position;
+            }
+        }
+        Arrays.sort(positions, 0, count);
+        return new Search(Arrays.copyOf(positions, count));
+    }
+
+    /**
+     * A search over the index. Each query is matched against the results of the longest previous
+     * query it extends, so typing a character only rescans the countries still matching.
+     * <p>
+     * Not thread safe, queries should be made from a single thread at a time.
+     */
+    public final class Search {
+        private final int[] mAllowedPositions;
+        private final boolean[] mAllowed = new boolean[mCountries.size()];
+
+        private final List<String> mQueries = new ArrayList<>();
+        private final List<int[]> mResults = new ArrayList<>();
+
+        Search(int[] allowedPositions) {
+            mAllowedPositions = allowedPositions;
+            for (int position : allowedPositions) {
+                mAllowed[position] = true;
+            }
+        }
+
+        /**
+         * @return the countries matching the query, in display order. All the countries of the
+         * search for an empty query.
+         */
+        @NonNull
+        public List<CountryInfo> find(@NonNull CharSequence rawQuery) {
+            String query = normalize(rawQuery);
+            if (query.isEmpty()) {
+                mQueries.clear();
+                mResults.clear();
+                return toCountries(mAllowedPositions);
+            }
+
+            // Drop the previous queries this one doesn't extend, e.g. after a deletion
+            int depth = mQueries.size();
+            while (depth > 0 && !query.startsWith(mQueries.get(depth - 1))) {
+                depth--;
+            }
+            mQueries.subList(depth, mQueries.size()).clear();
+            mResults.subList(depth, mResults.size()).clear();
+
+            int[] results;
+            if (depth == 0) {
+                int[] candidates = mInitials.get(query.charAt(0));
+                results = candidates == null ? new int[0] : narrow(candidates, query, true);
+            } else if (query.equals(mQueries.get(depth - 1))) {
+                return toCountries(mResults.get(depth - 1));
+            } else {
+                results = narrow(mResults.get(depth - 1), query, false);
+            }
+
+            mQueries.add(query);
+            mResults.add(results);
+            return toCountries(results);
+        }
+
+        private int[] narrow(int[] candidates, String query, boolean checkAllowed) {
+            String wordPrefix = SEPARATOR + query;
+            int[] results = new int[candidates.length];
+            int count = 0;
+            for (int position : candidates) {
+                if ((!checkAllowed || mAllowed[position])
+                        && mSearchTexts[position].contains(wordPrefix)) {
+                    results[count++] = position;
+                }
+            }
+            return Arrays.copyOf(results, count);
+        }
+
+        private List<CountryInfo> toCountries(int[] positions) {
+            List<CountryInfo> countries = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                countries.add(mCountries.get(position));
+            }
+            return Collections.unmodifiableList(countries);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import android.util.SparseArray;
 import com.firebase.ui.auth.data.model.CountryInfo;
 import com.firebase.ui.auth.data.model.PhoneNumber;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -50,11 +51,6 @@ public final class PhoneNumberUtils {
     private static final int MAX_COUNTRIES = 248;
     private static final int MAX_LENGTH_COUNTRY_CODE = 3;
 
-    private static final SparseArray<List<String>> COUNTRY_TO_REGION_CODES =
-            createCountryCodeToRegionCodeMap();
-
-    private static Map<String, Integer> COUNTRY_TO_ISO_CODES;
-
     /**
      * This method works as follow: <ol><li>When the android version is LOLLIPOP or greater, the
      * reliable {{@link android.telephony.PhoneNumberUtils#formatNumberToE164}} is used to
@@ -67,11 +63,19 @@ public final class PhoneNumberUtils {
     public static String format(@NonNull String phoneNumber, @NonNull CountryInfo countryInfo) {
         if (phoneNumber.startsWith("+")) {
             return phoneNumber;
-        } else {
-            return "+"
-                    + String.valueOf(countryInfo.getCountryCode())
-                    + phoneNumber.replaceAll("[^\\d.]", "");
         }
+
+        StringBuilder formatted =
+                new StringBuilder(1 + MAX_LENGTH_COUNTRY_CODE + phoneNumber.length())
+                        .append('+')
+                        .append(countryInfo.getCountryCode());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (isDigit(c) || c == '.') {
+                formatted.append(c);
+            }
+        }
+        return formatted.toString();
     }
 
     /**
@@ -103,28 +107,33 @@ public final class PhoneNumberUtils {
     }
 
     /**
-     * This method should not be called on UI thread. Potentially creates a country code by iso map
-     * which can take long in some devices
+     * The country code tables are built on first use, so the first call may be slower.
      *
      * @param providedPhoneNumber works best when formatted as e164
      * @return an instance of the PhoneNumber using the SIM information
      */
     public static PhoneNumber getPhoneNumber(@NonNull String providedPhoneNumber) {
-        String countryCode = DEFAULT_COUNTRY_CODE;
-        String countryIso = DEFAULT_LOCALE.getCountry();
-
-        String phoneNumber = providedPhoneNumber;
         if (providedPhoneNumber.startsWith("+")) {
-            countryCode = getCountryCodeForPhoneNumberOrDefault(providedPhoneNumber);
-            countryIso = getCountryIsoForCountryCode(countryCode);
-            phoneNumber = stripCountryCode(providedPhoneNumber, countryCode);
+            CountryCodeTrie trie = CountryCodes.TRIE;
+            int node = trie.findShortestPrefix(providedPhoneNumber, 1);
+            if (node != CountryCodeTrie.NO_MATCH) {
+                String countryCode = trie.getCountryCodeString(node);
+                return new PhoneNumber(
+                        providedPhoneNumber.substring(1 + countryCode.length()),
+                        getCountryIsoForCountryCode(trie.getCountryCode(node)),
+                        countryCode);
+            }
         }
 
-        return new PhoneNumber(phoneNumber, countryIso, countryCode);
+        // Without a country code, there is nothing to strip and the number is assumed to be
+        // from the default country.
+        return new PhoneNumber(
+                providedPhoneNumber, DEFAULT_LOCALE.getCountry(), DEFAULT_COUNTRY_CODE);
     }
 
     public static boolean isValid(@NonNull String number) {
-        return number.startsWith("+") && getCountryCodeForPhoneNumber(number) != null;
+        return number.startsWith("+")
+                && CountryCodes.TRIE.findShortestPrefix(number, 1) != CountryCodeTrie.NO_MATCH;
     }
 
     public static boolean isValidIso(@Nullable String iso) {
@@ -152,22 +161,16 @@ public final class PhoneNumberUtils {
 
     @Nullable
     public static Integer getCountryCode(String countryIso) {
-        if (COUNTRY_TO_ISO_CODES == null) {
-            initCountryCodeByIsoMap();
-        }
         return countryIso == null
-                ? null : COUNTRY_TO_ISO_CODES.get(countryIso.toUpperCase(Locale.getDefault()));
+                ? null : IsoCodes.MAP.get(countryIso.toUpperCase(Locale.getDefault()));
     }
 
     public static Map<String, Integer> getImmutableCountryIsoMap() {
-        if (COUNTRY_TO_ISO_CODES == null) {
-            initCountryCodeByIsoMap();
-        }
-        return COUNTRY_TO_ISO_CODES;
+        return IsoCodes.MAP;
     }
 
-    private static String getCountryIsoForCountryCode(String countryCode) {
-        List<String> countries = COUNTRY_TO_REGION_CODES.get(Integer.parseInt(countryCode));
+    private static String getCountryIsoForCountryCode(int countryCode) {
+        List<String> countries = CountryCodes.REGION_CODES.get(countryCode);
         if (countries != null) {
             return countries.get(0);
         }
@@ -177,42 +180,15 @@ public final class PhoneNumberUtils {
     @Nullable
     public static List<String> getCountryIsosFromCountryCode(String countryCode) {
         return !isValid(countryCode) ? null :
-                COUNTRY_TO_REGION_CODES.get(Integer.parseInt(countryCode.substring(1)));
-    }
-
-    /**
-     * Country code extracted using shortest matching prefix like libPhoneNumber. See:
-     * https://github.com/googlei18n/libphonenumber/blob/master/java/libphonenumber/src/com
-     * /google/i18n/phonenumbers/PhoneNumberUtil.java#L2395
-     */
-    @Nullable
-    private static String getCountryCodeForPhoneNumber(String normalizedPhoneNumber) {
-        String phoneWithoutPlusPrefix = normalizedPhoneNumber.replaceFirst("^\\+", "");
-        int numberLength = phoneWithoutPlusPrefix.length();
-
-        for (int i = 1; i <= MAX_LENGTH_COUNTRY_CODE && i <= numberLength; i++) {
-            String potentialCountryCode = phoneWithoutPlusPrefix.substring(0, i);
-            Integer countryCodeKey = Integer.valueOf(potentialCountryCode);
-
-            if (COUNTRY_TO_REGION_CODES.indexOfKey(countryCodeKey) >= 0) {
-                return potentialCountryCode;
-            }
-        }
-        return null;
-    }
-
-    @NonNull
-    private static String getCountryCodeForPhoneNumberOrDefault(String normalizedPhoneNumber) {
-        String code = getCountryCodeForPhoneNumber(normalizedPhoneNumber);
-        return code == null ? DEFAULT_COUNTRY_CODE : code;
+                CountryCodes.REGION_CODES.get(Integer.parseInt(countryCode.substring(1)));
     }
 
-    private static String stripCountryCode(String phoneNumber, String countryCode) {
-        return phoneNumber.replaceFirst("^\\+?" + countryCode, "");
+    private static String stripPlusSign(String phoneNumber) {
+        return phoneNumber.startsWith("+") ? phoneNumber.substring(1) : phoneNumber;
     }
 
-    private static String stripPlusSign(String phoneNumber) {
-        return phoneNumber.replaceFirst("^\\+?", "");
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     private static Locale getSimBasedLocale(@NonNull Context context) {
@@ -450,12 +426,12 @@ public final class PhoneNumberUtils {
         return map;
     }
 
-    private static void initCountryCodeByIsoMap() {
+    private static Map<String, Integer> createCountryCodeByIsoMap() {
         Map<String, Integer> map = new HashMap<>(MAX_COUNTRIES);
 
-        for (int i = 0; i < COUNTRY_TO_REGION_CODES.size(); i++) {
-            int code = COUNTRY_TO_REGION_CODES.keyAt(i);
-            List<String> regions = COUNTRY_TO_REGION_CODES.get(code);
+        for (int i = 0; i < CountryCodes.REGION_CODES.size(); i++) {
+            int code = CountryCodes.REGION_CODES.keyAt(i);
+            List<String> regions = CountryCodes.REGION_CODES.valueAt(i);
 
             for (String region : regions) {
                 if (region.equals("001")) { continue; }
@@ -473,6 +449,112 @@ public final class PhoneNumberUtils {
         map.put("HM", 672);
         map.put("GS", 500);
 
-        COUNTRY_TO_ISO_CODES = Collections.unmodifiableMap(map);
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Country code tables, built when first accessed. Class initialization makes this lazy and
+     * thread safe without locking.
+     */
+    private static final class CountryCodes {
+        static final SparseArray<List<String>> REGION_CODES = createCountryCodeToRegionCodeMap();
+        static final CountryCodeTrie TRIE = new CountryCodeTrie(REGION_CODES);
+    }
+
+    /**
+     * Kept apart from {@link CountryCodes} since parsing numbers does not need it.
+     */
+    private static final class IsoCodes {
+        static final Map<String, Integer> MAP = createCountryCodeByIsoMap();
+    }
+
+    /**
+     * Digit trie of the country codes, stored in flat arrays so lookups neither allocate nor box.
+     * {@code mChildren[node * 10 + digit]} is the child of a node for a digit, 0 if there is none
+     * since the root is never a child. A node ending a country code holds it in {@code mCodes}.
+     */
+    private static final class CountryCodeTrie {
+        static final int NO_MATCH = -1;
+
+        private static final int ROOT = 0;
+        private static final int RADIX = 10;
+
+        private final int[] mChildren;
+        private final int[] mCodes;
+        private final String[] mCodeStrings;
+
+        CountryCodeTrie(SparseArray<List<String>> regionCodes) {
+            // At most one node per digit of each code, plus the root
+            int maxNodes = 1 + regionCodes.size() * MAX_LENGTH_COUNTRY_CODE;
+            int[] children = new int[maxNodes * RADIX];
+            int[] codes = new int[maxNodes];
+            int nodeCount = 1;
+
+            for (int i = 0; i < regionCodes.size(); i++) {
+                int code = regionCodes.keyAt(i);
+                int node = ROOT;
+                for (int divisor = getLeadingDigitDivisor(code); divisor > 0; divisor /= RADIX) {
+                    int slot = node * RADIX + code / divisor % RADIX;
+                    if (children[slot] == 0) {
+                        children[slot] = nodeCount++;
+                    }
+                    node = children[slot];
+                }
+                codes[node] = code;
+            }
+
+            mChildren = Arrays.copyOf(children, nodeCount * RADIX);
+            mCodes = Arrays.copyOf(codes, nodeCount);
+            mCodeStrings = new String[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                if (mCodes[node] != 0) {
+                    mCodeStrings[node] = String.valueOf(mCodes[node]);
+                }
+            }
+        }
+
+        private static int getLeadingDigitDivisor(int code) {
+            int divisor = 1;
+            while (code / divisor >= RADIX) {
+                divisor *= RADIX;
+            }
+            return divisor;
+        }
+
+        /**
+         * Country code extracted using shortest matching prefix like libPhoneNumber. See:
+         * https://github.com/googlei18n/libphonenumber/blob/master/java/libphonenumber/src/com
+         * /google/i18n/phonenumbers/PhoneNumberUtil.java#L2395
+         *
+         * @param start the index of the first digit of the country code in the number.
+         * @return the node of the country code, or {@link #NO_MATCH}.
+         */
+        int findShortestPrefix(CharSequence number, int start) {
+            int end = Math.min(number.length(), start + MAX_LENGTH_COUNTRY_CODE);
+            int node = ROOT;
+            for (int i = start; i < end; i++) {
+                char c = number.charAt(i);
+                if (!isDigit(c)) {
+                    return NO_MATCH;
+                }
+
+                node = mChildren[node * RADIX + c - '0'];
+                if (node == 0) {
+                    return NO_MATCH;
+                }
+                if (mCodes[node] != 0) {
+                    return node;
+                }
+            }
+            return NO_MATCH;
+        }
+
+        int getCountryCode(int node) {
+            return mCodes[node];
+        }
+
+        String getCountryCodeString(int node) {
+            return mCodeStrings[node];
+        }
     }
 }
@@ -191,7 +191,7 @@ public final class ProviderUtils {
             return Tasks.forException(new NullPointerException("Email cannot be empty"));
         }
 
-        return auth.fetchSignInMethodsForEmail(email)
+        return SignInMethodCache.getInstance().fetchSignInMethodsForEmail(auth, email)
                 .continueWithTask(new Continuation<SignInMethodQueryResult, Task<List<String>>>() {
                     @Override
                     public Task<List<String>> then(@NonNull Task<SignInMethodQueryResult> task) {
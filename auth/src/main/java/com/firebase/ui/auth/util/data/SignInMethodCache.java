@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebase.ui.auth.util.data;
+
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.SignInMethodQueryResult;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Short lived cache of {@link FirebaseAuth#fetchSignInMethodsForEmail(String)} results, keyed by
+ * normalized email. Moving between the sign in screens looks up the same email several times,
+ * those lookups share a single request.
+ * <p>
+ * Lookups made while a request is in flight share its task, and failed requests aren't cached.
+ * Entries must be invalidated whenever an account is created or linked since its sign in methods
+ * change.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class SignInMethodCache {
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static SignInMethodCache sInstance;
+
+    private final Map<FirebaseAuth, Map<String, Entry>> mEntries = new WeakHashMap<>();
+
+    private SignInMethodCache() {}
+
+    public static synchronized SignInMethodCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new SignInMethodCache();
+        }
+        return sInstance;
+    }
+
+    @NonNull
+    private static String normalize(@NonNull String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the pending or recent lookup of the email's sign in methods, or a new one.
+     */
+    @NonNull
+    public synchronized Task<SignInMethodQueryResult> fetchSignInMethodsForEmail(
+            @NonNull FirebaseAuth auth, @NonNull String email) {
+        Map<String, Entry> entries = mEntries.get(auth);
+        if (entries == null) {
+            entries = new HashMap<>();
+            mEntries.put(auth, entries);
+        }
+
+        String key = normalize(email);
+        long now = SystemClock.elapsedRealtime();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isUsable(now)) {
+            return entry.mTask;
+        }
+
+        removeStaleEntries(entries, now);
+        Task<SignInMethodQueryResult> task = auth.fetchSignInMethodsForEmail(email);
+        entries.put(key, new Entry(task, now));
+        return task;
+    }
+
+    /**
+     * Forgets the sign in methods of an email, e.g. after creating or linking its account.
+     */
+    public synchronized void invalidate(@NonNull FirebaseAuth auth, @NonNull String email) {
+        Map<String, Entry> entries = mEntries.get(auth);
+        if (entries != null) {
+            entries.remove(normalize(email));
+        }
+    }
+
+    /**
+     * Forgets the sign in methods of every email, e.g. after linking a credential whose email
+     * isn't known.
+     */
+    public synchronized void invalidate(@NonNull FirebaseAuth auth) {
+        mEntries.remove(auth);
+    }
+
+    private static void removeStaleEntries(Map<String, Entry> entries, long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().isUsable(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Task<SignInMethodQueryResult> mTask;
+        private final long mRequestTime;
+
+        Entry(Task<SignInMethodQueryResult> task, long requestTime) {
+            mTask = task;
+            mRequestTime = requestTime;
+        }
+
+        boolean isUsable(long now) {
+            if (!mTask.isComplete()) {
+                return true;
+            }
+            // The TTL starts with the request so results are never older than it
+            return mTask.isSuccessful() && now - mRequestTime < TTL_MILLIS;
+        }
+    }
+}
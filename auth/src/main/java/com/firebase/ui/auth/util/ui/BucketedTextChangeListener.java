@@ -18,13 +18,12 @@
 
 package com.firebase.ui.auth.util.ui;
 
-import android.annotation.SuppressLint;
 import android.text.Editable;
-import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.widget.EditText;
 
-import java.util.Collections;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 
 import androidx.annotation.RestrictTo;
 
@@ -37,6 +36,9 @@ import androidx.annotation.RestrictTo;
  * 7641--
  * 76417-
  * 764176
+ * <p>
+ * The content is rebuilt in a reused buffer on each change, so typing doesn't allocate. Combined
+ * with {@link com.firebase.ui.auth.ui.phone.SpacedEditText}, the field is then updated in place.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public final class BucketedTextChangeListener implements TextWatcher {
@@ -56,62 +58,69 @@ public final class BucketedTextChangeListener implements TextWatcher {
         void whileIncomplete();
     }
 
+    private static final char SPACE = ' ';
+
     private final EditText mEditText;
     private final ContentChangeCallback mCallback;
-    private final String[] mPostFixes;
-    private final String mPlaceHolder;
+    private final char mPlaceHolder;
     private final int mExpectedContentLength;
 
+    /** The entered characters followed by placeholders, reused for every change. */
+    private final char[] mContent;
+    private final CharSequence mContentSequence;
+
+    private boolean mIsUpdating;
+
+    /**
+     * @param placeHolder a single character shown in place of the characters not entered yet.
+     */
     public BucketedTextChangeListener(EditText editText, int expectedContentLength, String
             placeHolder, ContentChangeCallback callback) {
         mEditText = editText;
         mExpectedContentLength = expectedContentLength;
-        mPostFixes = generatePostfixArray(placeHolder, expectedContentLength);
         mCallback = callback;
-        mPlaceHolder = placeHolder;
+        mPlaceHolder = placeHolder.charAt(0);
+        mContent = new char[expectedContentLength];
+        mContentSequence = CharBuffer.wrap(mContent);
     }
 
-    /**
-     * For example, passing in ("-", 6) would return the following result:
-     * {"", "-", "--", "---", "----", "-----", "------"}
-     *
-     * @param repeatableChar the char to repeat to the specified length
-     * @param length         the maximum length of repeated chars
-     * @return an increasing sequence array of chars up the specified length
-     */
-    private static String[] generatePostfixArray(CharSequence repeatableChar, int length) {
-        final String[] ret = new String[length + 1];
-
-        for (int i = 0; i <= length; i++) {
-            ret[i] = TextUtils.join("", Collections.nCopies(i, repeatableChar));
-        }
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
-        return ret;
-    }
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {}
 
-    @SuppressLint("SetTextI18n")
     @Override
-    public void onTextChanged(
-            CharSequence s, int ignoredParam1, int ignoredParam2, int ignoredParam3) {
+    public void afterTextChanged(Editable s) {
         // The listener is expected to be used in conjunction with the SpacedEditText.
+        if (mIsUpdating) {
+            // Our own change below
+            return;
+        }
 
         // Approach
-        // 1) Strip all spaces and hyphens introduced by the SET for aesthetics
-        final String numericContents = s.toString()
-                .replaceAll(" ", "")
-                .replaceAll(mPlaceHolder, "");
-
-        // 2) Trim the content to acceptable length.
-        final int enteredContentLength = Math.min(numericContents.length(), mExpectedContentLength);
-        final String enteredContent = numericContents.substring(0, enteredContentLength);
-
-        // 3) Reset the text to be the content + required hyphens. The SET automatically inserts
-        // spaces requires for aesthetics. This requires removing and resetting the listener to
-        // avoid recursion.
-        mEditText.removeTextChangedListener(this);
-        mEditText.setText(enteredContent + mPostFixes[mExpectedContentLength - enteredContentLength]);
-        mEditText.setSelection(enteredContentLength);
-        mEditText.addTextChangedListener(this);
+        // 1) Keep the characters other than the spaces and hyphens introduced by the SET for
+        // aesthetics, up to the acceptable length.
+        int enteredContentLength = 0;
+        for (int i = 0; i < s.length() && enteredContentLength < mExpectedContentLength; i++) {
+            char c = s.charAt(i);
+            if (c != SPACE && c != mPlaceHolder) {
+                mContent[enteredContentLength++] = c;
+            }
+        }
+
+        // 2) Fill the rest with hyphens
+        Arrays.fill(mContent, enteredContentLength, mExpectedContentLength, mPlaceHolder);
+
+        // 3) Reset the text to be the content + required hyphens. The SET applies the change in
+        // place and automatically inserts spaces required for aesthetics.
+        mIsUpdating = true;
+        try {
+            mEditText.setText(mContentSequence);
+            mEditText.setSelection(enteredContentLength);
+        } finally {
+            mIsUpdating = false;
+        }
 
         // 4) Callback listeners waiting on content to be of expected length
         if (enteredContentLength == mExpectedContentLength && mCallback != null) {
@@ -120,10 +129,4 @@ public final class BucketedTextChangeListener implements TextWatcher {
             mCallback.whileIncomplete();
         }
     }
-
-    @Override
-    public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-
-    @Override
-    public void afterTextChanged(Editable s) {}
 }
@@ -6,6 +6,7 @@ import com.firebase.ui.auth.ErrorCodes;
 import com.firebase.ui.auth.FirebaseAuthAnonymousUpgradeException;
 import com.firebase.ui.auth.IdpResponse;
 import com.firebase.ui.auth.data.model.Resource;
+import com.firebase.ui.auth.util.data.SignInMethodCache;
 import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.AuthResult;
 
@@ -24,6 +25,8 @@ public abstract class SignInViewModelBase extends AuthViewModelBase<IdpResponse>
     }
 
     public void handleSuccess(@NonNull IdpResponse response, @NonNull AuthResult result) {
+        // The flow may have created the account or linked credentials to it
+        SignInMethodCache.getInstance().invalidate(getAuth());
         setResult(Resource.forSuccess(response.withResult(result)));
     }
 
@@ -178,7 +178,7 @@ public class EmailLinkSignInHandler extends SignInViewModelBase {
                         }
                         return task.getResult().getUser()
                                 .linkWithCredential(storedCredentialForLink)
-                                .continueWithTask(new ProfileMerger(response))
+                                .continueWithTask(new ProfileMerger(getArguments(), response))
                                 .addOnFailureListener(new TaskFailureLogger(TAG,
                                         "linkWithCredential+merge failed."));
                     })
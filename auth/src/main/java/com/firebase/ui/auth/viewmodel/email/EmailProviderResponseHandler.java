@@ -56,7 +56,7 @@ public class EmailProviderResponseHandler extends SignInViewModelBase {
                 getArguments(),
                 email,
                 password)
-                .continueWithTask(new ProfileMerger(response))
+                .continueWithTask(new ProfileMerger(getArguments(), response))
                 .addOnFailureListener(new TaskFailureLogger(TAG, "Error creating user"))
                 .addOnSuccessListener(result -> handleSuccess(response, result))
                 .addOnFailureListener(e -> {
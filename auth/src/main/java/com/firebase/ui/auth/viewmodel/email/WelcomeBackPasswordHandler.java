@@ -105,7 +105,8 @@ public class WelcomeBackPasswordHandler extends SignInViewModelBase {
                         } else {
                             return result.getUser()
                                     .linkWithCredential(credential)
-                                    .continueWithTask(new ProfileMerger(outputResponse))
+                                    .continueWithTask(
+                                            new ProfileMerger(getArguments(), outputResponse))
                                     .addOnFailureListener(new TaskFailureLogger(TAG,
                                             "linkWithCredential+merge failed."));
                         }
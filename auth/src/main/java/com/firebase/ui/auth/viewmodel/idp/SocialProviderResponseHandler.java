@@ -70,7 +70,7 @@ public class SocialProviderResponseHandler extends SignInViewModelBase {
                 getAuth(),
                 getArguments(),
                 credential)
-                .continueWithTask(new ProfileMerger(response))
+                .continueWithTask(new ProfileMerger(getArguments(), response))
                 .addOnSuccessListener(result -> handleSuccess(response, result))
                 .addOnFailureListener(e -> {
                     // For some reason disabled users can hit FirebaseAuthUserCollisionException
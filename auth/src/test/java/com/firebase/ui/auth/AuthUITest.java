@@ -14,15 +14,24 @@
 
 package com.firebase.ui.auth;
 
+import android.os.Looper;
+import android.os.Parcel;
+
 import com.firebase.ui.auth.AuthUI.IdpConfig;
 import com.firebase.ui.auth.AuthUI.SignInIntentBuilder;
 import com.firebase.ui.auth.data.model.FlowParameters;
 import com.firebase.ui.auth.testhelpers.TestConstants;
 import com.firebase.ui.auth.testhelpers.TestHelper;
 import com.firebase.ui.auth.util.ExtraConstants;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.ActionCodeSettings;
 import com.google.firebase.auth.EmailAuthProvider;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthInvalidUserException;
+import com.google.firebase.auth.FirebaseUser;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -31,11 +40,27 @@ import org.robolectric.RobolectricTestRunner;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.credentials.CredentialManager;
+import androidx.credentials.CredentialManagerCallback;
+import androidx.credentials.exceptions.ClearCredentialException;
+import androidx.test.core.app.ApplicationProvider;
 
 import static com.google.common.truth.Truth.assertThat;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
 
 @RunWith(RobolectricTestRunner.class)
 public class AuthUITest {
@@ -46,6 +71,13 @@ public class AuthUITest {
     public void setUp() {
         TestHelper.initialize();
         mAuthUi = AuthUI.getInstance(TestHelper.MOCK_APP);
+        clearInvocations(mAuthUi.getAuth());
+    }
+
+    @After
+    public void tearDown() {
+        mAuthUi.initializeForTesting(null, null);
+        reset(mAuthUi.getAuth());
     }
 
     @Test
@@ -136,6 +168,61 @@ public class AuthUITest {
                 flowParameters.getDefaultOrFirstProvider());
     }
 
+    @Test
+    public void testCreatingStartIntent_withCredentialManagerTimeout() {
+        FlowParameters defaultParameters = mAuthUi
+                .createSignInIntentBuilder()
+                .build()
+                .getParcelableExtra(ExtraConstants.FLOW_PARAMS);
+        assertEquals(AuthUI.DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS,
+                defaultParameters.credentialManagerTimeoutMillis);
+
+        FlowParameters flowParameters = mAuthUi
+                .createSignInIntentBuilder()
+                .setCredentialManagerTimeout(2, TimeUnit.SECONDS)
+                .build()
+                .getParcelableExtra(ExtraConstants.FLOW_PARAMS);
+        assertEquals(2000, flowParameters.credentialManagerTimeoutMillis);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreatingStartIntent_withNegativeCredentialManagerTimeout_expectThrows() {
+        mAuthUi.createSignInIntentBuilder()
+                .setCredentialManagerTimeout(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testFlowParameters_parcelRoundTrip() {
+        FlowParameters flowParameters = mAuthUi
+                .createSignInIntentBuilder()
+                .setAvailableProviders(Arrays.asList(
+                        new IdpConfig.EmailBuilder().build(),
+                        new IdpConfig.AnonymousBuilder().build()))
+                .setAlwaysShowSignInMethodScreen(true)
+                .setLockOrientation(true)
+                .setCredentialManagerTimeout(250, TimeUnit.MILLISECONDS)
+                .setEmailSingleActivityEnabled(true)
+                .setProfileMergeDeferred(true)
+                .setEmailLink(URL)
+                .build()
+                .getParcelableExtra(ExtraConstants.FLOW_PARAMS);
+
+        Parcel parcel = Parcel.obtain();
+        flowParameters.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        FlowParameters copy = FlowParameters.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertEquals(flowParameters.providers, copy.providers);
+        assertFalse(copy.enableAnonymousUpgrade);
+        assertTrue(copy.alwaysShowProviderChoice);
+        assertTrue(copy.lockOrientation);
+        assertEquals(250, copy.credentialManagerTimeoutMillis);
+        assertTrue(copy.emailSingleActivity);
+        assertTrue(copy.deferProfileMerge);
+        assertEquals(URL, copy.emailLink);
+    }
+
     @Test(expected = NullPointerException.class)
     public void testCreatingStartIntent_withNullTos_expectEnforcesNonNullTosUrl() {
         SignInIntentBuilder startIntent = mAuthUi.createSignInIntentBuilder();
@@ -356,4 +443,126 @@ public class AuthUITest {
                 .setAvailableProviders(Arrays.asList(config))
                 .enableAnonymousUsersAutoUpgrade();
     }
+
+    @Test
+    public void testSignOut_credentialsFailure_stillSignsOutOfFirebase() throws Exception {
+        AtomicReference<CredentialManagerCallback<Void, ClearCredentialException>> callback =
+                new AtomicReference<>();
+        mAuthUi.initializeForTesting(mockCredentialManager(callback), () -> {});
+
+        Task<Void> task = mAuthUi.signOut(ApplicationProvider.getApplicationContext());
+        ClearCredentialException exception = mock(ClearCredentialException.class);
+        callback.get().onError(exception);
+
+        verify(mAuthUi.getAuth()).signOut();
+        awaitComplete(task);
+        assertThat(task.getException()).isSameAs(exception);
+    }
+
+    @Test
+    public void testSignOut_runsStepsInParallel() throws Exception {
+        AtomicReference<CredentialManagerCallback<Void, ClearCredentialException>> callback =
+                new AtomicReference<>();
+        CountDownLatch idpsSignedOut = new CountDownLatch(1);
+        mAuthUi.initializeForTesting(mockCredentialManager(callback), idpsSignedOut::countDown);
+
+        Task<Void> task = mAuthUi.signOut(ApplicationProvider.getApplicationContext());
+
+        // Neither step waits for the credentials to be cleared
+        verify(mAuthUi.getAuth()).signOut();
+        assertTrue(idpsSignedOut.await(5, TimeUnit.SECONDS));
+        shadowOf(Looper.getMainLooper()).idle();
+        assertFalse(task.isComplete());
+
+        callback.get().onResult(null);
+        awaitComplete(task);
+        assertTrue(task.isSuccessful());
+    }
+
+    @Test
+    public void testSignOut_signsOutOfIdpsInBackground() throws Exception {
+        AtomicReference<CredentialManagerCallback<Void, ClearCredentialException>> callback =
+                new AtomicReference<>();
+        AtomicReference<Thread> idpThread = new AtomicReference<>();
+        mAuthUi.initializeForTesting(mockCredentialManager(callback),
+                () -> idpThread.set(Thread.currentThread()));
+
+        Task<Void> task = mAuthUi.signOut(ApplicationProvider.getApplicationContext());
+        callback.get().onResult(null);
+
+        awaitComplete(task);
+        assertTrue(task.isSuccessful());
+        assertThat(idpThread.get()).isNotNull();
+        assertThat(idpThread.get()).isNotSameAs(Looper.getMainLooper().getThread());
+    }
+
+    @Test
+    public void testDelete_deleteFailure_keepsException() throws Exception {
+        FirebaseAuthInvalidUserException exception =
+                new FirebaseAuthInvalidUserException("ERROR_USER_NOT_FOUND", "Not found");
+        FirebaseUser user = TestHelper.getMockFirebaseUser();
+        when(user.delete()).thenReturn(Tasks.forException(exception));
+        when(mAuthUi.getAuth().getCurrentUser()).thenReturn(user);
+        AtomicReference<CredentialManagerCallback<Void, ClearCredentialException>> callback =
+                new AtomicReference<>();
+        mAuthUi.initializeForTesting(mockCredentialManager(callback), () -> {});
+
+        Task<Void> task = mAuthUi.delete(ApplicationProvider.getApplicationContext());
+        callback.get().onResult(null);
+
+        awaitComplete(task);
+        assertThat(task.getException()).isSameAs(exception);
+    }
+
+    @Test
+    public void testDelete_credentialsFailure_keepsException() throws Exception {
+        FirebaseUser user = TestHelper.getMockFirebaseUser();
+        when(user.delete()).thenReturn(Tasks.forResult(null));
+        when(mAuthUi.getAuth().getCurrentUser()).thenReturn(user);
+        AtomicReference<CredentialManagerCallback<Void, ClearCredentialException>> callback =
+                new AtomicReference<>();
+        mAuthUi.initializeForTesting(mockCredentialManager(callback), () -> {});
+
+        Task<Void> task = mAuthUi.delete(ApplicationProvider.getApplicationContext());
+        ClearCredentialException exception = mock(ClearCredentialException.class);
+        callback.get().onError(exception);
+
+        verify(user).delete();
+        awaitComplete(task);
+        assertThat(task.getException()).isSameAs(exception);
+    }
+
+    @Test
+    public void testDelete_withoutUser_fails() {
+        FirebaseAuth auth = mAuthUi.getAuth();
+        when(auth.getCurrentUser()).thenReturn(null);
+
+        Task<Void> task = mAuthUi.delete(ApplicationProvider.getApplicationContext());
+
+        assertThat(task.getException()).isInstanceOf(FirebaseAuthInvalidUserException.class);
+    }
+
+    /**
+     * Returns a credential manager handing the callback of a clear request to {@code callback},
+     * for the test to complete it.
+     */
+    private static CredentialManager mockCredentialManager(
+            AtomicReference<CredentialManagerCallback<Void, ClearCredentialException>> callback) {
+        CredentialManager credentialManager = mock(CredentialManager.class);
+        doAnswer(invocation -> {
+            callback.set(invocation.getArgument(3));
+            return null;
+        }).when(credentialManager).clearCredentialStateAsync(any(), any(), any(), any());
+        return credentialManager;
+    }
+
+    private static void awaitComplete(Task<?> task) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (!task.isComplete() && System.currentTimeMillis() < deadline) {
+            // The joined task completes on the main thread once the background steps are done
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(10);
+        }
+        assertTrue(task.isComplete());
+    }
 }
@@ -0,0 +1,112 @@
+package com.firebase.ui.auth.data;
+
+import android.os.Looper;
+
+import com.firebase.ui.auth.AuthUI;
+import com.firebase.ui.auth.IdpResponse;
+import com.firebase.ui.auth.data.model.FlowParameters;
+import com.firebase.ui.auth.data.model.User;
+import com.firebase.ui.auth.data.remote.ProfileMerger;
+import com.firebase.ui.auth.testhelpers.TestConstants;
+import com.firebase.ui.auth.testhelpers.TestHelper;
+import com.firebase.ui.auth.util.ExtraConstants;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.GoogleAuthProvider;
+import com.google.firebase.auth.UserProfileChangeRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class ProfileMergerTest {
+    @Mock FirebaseUser mMockUser;
+    @Mock AuthResult mMockResult;
+
+    private AuthUI mAuthUi;
+    private IdpResponse mResponse;
+
+    @Before
+    public void setUp() {
+        TestHelper.initialize();
+        MockitoAnnotations.initMocks(this);
+        mAuthUi = AuthUI.getInstance(TestHelper.MOCK_APP);
+        mResponse = new IdpResponse.Builder(
+                new User.Builder(GoogleAuthProvider.PROVIDER_ID, TestConstants.EMAIL)
+                        .setName(TestConstants.NAME)
+                        .build())
+                .setToken(TestConstants.TOKEN)
+                .build();
+
+        when(mMockResult.getUser()).thenReturn(mMockUser);
+    }
+
+    @Test
+    public void testThen_deferred_returnsBeforeProfileUpdate() {
+        Task<Void> pending = Tasks.forException(new FirebaseNetworkException("Offline"));
+        when(mMockUser.updateProfile(any(UserProfileChangeRequest.class)))
+                .thenReturn(pending, pending, Tasks.forResult(null));
+
+        Task<AuthResult> task = new ProfileMerger(getFlowParameters(true), mResponse)
+                .then(Tasks.forResult(mMockResult));
+        assertThat(task.isSuccessful()).isTrue();
+        assertThat(task.getResult()).isSameAs(mMockResult);
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(10));
+
+        Task<Void> merge = mAuthUi.getProfileMergeTask();
+        assertThat(merge.isSuccessful()).isTrue();
+        verify(mMockUser, times(3)).updateProfile(any(UserProfileChangeRequest.class));
+    }
+
+    @Test
+    public void testThen_deferred_reportsFailure() {
+        when(mMockUser.updateProfile(any(UserProfileChangeRequest.class)))
+                .thenReturn(Tasks.forException(new IllegalStateException("Invalid user")));
+
+        new ProfileMerger(getFlowParameters(true), mResponse).then(Tasks.forResult(mMockResult));
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(10));
+
+        assertThat(mAuthUi.getProfileMergeTask().getException())
+                .isInstanceOf(IllegalStateException.class);
+        verify(mMockUser, times(1)).updateProfile(any(UserProfileChangeRequest.class));
+    }
+
+    @Test
+    public void testThen_notDeferred_waitsForProfileUpdate() {
+        when(mMockUser.updateProfile(any(UserProfileChangeRequest.class)))
+                .thenReturn(Tasks.forResult(null));
+
+        Task<AuthResult> task = new ProfileMerger(getFlowParameters(false), mResponse)
+                .then(Tasks.forResult(mMockResult));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertThat(task.getResult()).isSameAs(mMockResult);
+        verify(mMockUser).updateProfile(any(UserProfileChangeRequest.class));
+    }
+
+    private FlowParameters getFlowParameters(boolean deferProfileMerge) {
+        return mAuthUi.createSignInIntentBuilder()
+                .setProfileMergeDeferred(deferProfileMerge)
+                .build()
+                .getParcelableExtra(ExtraConstants.FLOW_PARAMS);
+    }
+}
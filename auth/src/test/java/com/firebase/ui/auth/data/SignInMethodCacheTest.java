@@ -0,0 +1,103 @@
+package com.firebase.ui.auth.data;
+
+import com.firebase.ui.auth.testhelpers.AutoCompleteTask;
+import com.firebase.ui.auth.testhelpers.FakeSignInMethodQueryResult;
+import com.firebase.ui.auth.testhelpers.TestConstants;
+import com.firebase.ui.auth.util.data.SignInMethodCache;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.EmailAuthProvider;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.SignInMethodQueryResult;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class SignInMethodCacheTest {
+    @Mock FirebaseAuth mMockAuth;
+
+    private SignInMethodCache mCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mCache = SignInMethodCache.getInstance();
+
+        when(mMockAuth.fetchSignInMethodsForEmail(anyString()))
+                .thenAnswer(invocation -> AutoCompleteTask.forSuccess(
+                        new FakeSignInMethodQueryResult(Collections.singletonList(
+                                EmailAuthProvider.EMAIL_PASSWORD_SIGN_IN_METHOD))));
+    }
+
+    @Test
+    public void testFetch_sharesResultsForNormalizedEmail() {
+        Task<SignInMethodQueryResult> task =
+                mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+
+        assertThat(mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL))
+                .isSameAs(task);
+        assertThat(mCache.fetchSignInMethodsForEmail(
+                mMockAuth, " " + TestConstants.EMAIL.toUpperCase() + " ")).isSameAs(task);
+        verify(mMockAuth, times(1)).fetchSignInMethodsForEmail(anyString());
+    }
+
+    @Test
+    public void testFetch_sharesPendingRequest() {
+        Task<SignInMethodQueryResult> pending = new AutoCompleteTask<>(null, false, null);
+        when(mMockAuth.fetchSignInMethodsForEmail(anyString())).thenReturn(pending);
+
+        mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+        ShadowSystemClock.advanceBy(Duration.ofMinutes(1));
+
+        assertThat(mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL))
+                .isSameAs(pending);
+        verify(mMockAuth, times(1)).fetchSignInMethodsForEmail(anyString());
+    }
+
+    @Test
+    public void testFetch_expiresAfterTtl() {
+        Task<SignInMethodQueryResult> task =
+                mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+        ShadowSystemClock.advanceBy(Duration.ofMinutes(1));
+
+        assertThat(mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL))
+                .isNotSameAs(task);
+        verify(mMockAuth, times(2)).fetchSignInMethodsForEmail(anyString());
+    }
+
+    @Test
+    public void testFetch_doesNotCacheFailures() {
+        when(mMockAuth.fetchSignInMethodsForEmail(anyString()))
+                .thenReturn(AutoCompleteTask.forFailure(new Exception("Network error")));
+
+        mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+        mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+
+        verify(mMockAuth, times(2)).fetchSignInMethodsForEmail(anyString());
+    }
+
+    @Test
+    public void testInvalidate() {
+        mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+        mCache.invalidate(mMockAuth, TestConstants.EMAIL.toUpperCase());
+        mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+        mCache.invalidate(mMockAuth);
+        mCache.fetchSignInMethodsForEmail(mMockAuth, TestConstants.EMAIL);
+
+        verify(mMockAuth, times(3)).fetchSignInMethodsForEmail(anyString());
+    }
+}
@@ -133,6 +133,15 @@ public final class TestHelper {
                                                    boolean enableAnonymousUpgrade,
                                                    AuthMethodPickerLayout customLayout,
                                                    boolean hasDefaultEmail) {
+        return getFlowParameters(
+                providerIds, enableAnonymousUpgrade, customLayout, hasDefaultEmail, false);
+    }
+
+    public static FlowParameters getFlowParameters(Collection<String> providerIds,
+                                                   boolean enableAnonymousUpgrade,
+                                                   AuthMethodPickerLayout customLayout,
+                                                   boolean hasDefaultEmail,
+                                                   boolean emailSingleActivity) {
         List<IdpConfig> idpConfigs = new ArrayList<>();
         for (String providerId : providerIds) {
             switch (providerId) {
@@ -184,9 +193,12 @@ public final class TestHelper {
                 null,
                 null,
                 true,
+                AuthUI.DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS,
                 enableAnonymousUpgrade,
                 false,
                 true,
+                emailSingleActivity,
+                false,
                 null,
                 null,
                 customLayout);
@@ -162,6 +162,26 @@ public class EmailActivityTest {
                 nextIntent.intent.getComponent().getClassName());
     }
 
+    @Test
+    public void testOnExistingEmailUser_emailSingleActivity_expectWelcomeBackPasswordFragment() {
+        Intent startIntent = EmailActivity.createIntent(
+                ApplicationProvider.getApplicationContext(),
+                TestHelper.getFlowParameters(Collections.singletonList(
+                        EmailAuthProvider.PROVIDER_ID), false, null, false, true));
+        ActivityController<EmailActivity> controller =
+                Robolectric.buildActivity(EmailActivity.class, startIntent);
+        controller.get().setTheme(R.style.Theme_AppCompat);
+        EmailActivity emailActivity = controller.create().start().visible().get();
+
+        emailActivity.onExistingEmailUser(
+                new User.Builder(EmailAuthProvider.PROVIDER_ID, TestConstants.EMAIL).build());
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertThat(emailActivity.getSupportFragmentManager()
+                .findFragmentByTag(WelcomeBackPasswordFragment.TAG)).isNotNull();
+        assertThat(Shadows.shadowOf(emailActivity).getNextStartedActivityForResult()).isNull();
+    }
+
     @Test
     public void testSetDefaultEmail_expectRegisterEmailFragment() {
         EmailActivity emailActivity = createActivity(EmailAuthProvider.PROVIDER_ID, false, true);
@@ -62,7 +62,7 @@ public class WelcomeBackPasswordPromptTest {
                 Robolectric.buildActivity(WelcomeBackPasswordPrompt.class, startIntent);
         WelcomeBackPasswordPrompt activity = controller.get();
         activity.setTheme(R.style.Theme_AppCompat); 
-        return controller.create().visible().get();
+        return controller.create().start().visible().get();
     }
 
     @Test
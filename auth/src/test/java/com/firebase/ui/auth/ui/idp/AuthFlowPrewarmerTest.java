@@ -0,0 +1,75 @@
+package com.firebase.ui.auth.ui.idp;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import com.firebase.ui.auth.AuthUI;
+import com.firebase.ui.auth.R;
+import com.firebase.ui.auth.data.model.FlowParameters;
+import com.firebase.ui.auth.testhelpers.TestHelper;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.EmailAuthProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class AuthFlowPrewarmerTest {
+    private Context mContext;
+    private FlowParameters mParams;
+
+    @Before
+    public void setUp() {
+        TestHelper.initialize();
+        mContext = ApplicationProvider.getApplicationContext();
+        mParams = TestHelper.getFlowParameters(
+                Arrays.asList(EmailAuthProvider.PROVIDER_ID, AuthUI.ANONYMOUS_PROVIDER));
+    }
+
+    @Test
+    public void testGetButtonLayout() {
+        assertThat(AuthFlowPrewarmer.getButtonLayout(mParams.providers.get(0)))
+                .isEqualTo(R.layout.fui_provider_button_email);
+        assertThat(AuthFlowPrewarmer.getButtonLayout(mParams.providers.get(1)))
+                .isEqualTo(R.layout.fui_provider_button_anonymous);
+    }
+
+    @Test
+    public void testTakeButton_preparedOnce() throws InterruptedException {
+        awaitCompletion(AuthFlowPrewarmer.prewarm(mContext, mParams));
+
+        View button = AuthFlowPrewarmer.takeButton(
+                mContext, mParams.themeId, R.layout.fui_provider_button_email);
+        assertThat(button).isNotNull();
+        assertThat(button.getId()).isEqualTo(R.id.email_button);
+        assertThat(button.getLayoutParams()).isInstanceOf(LinearLayout.LayoutParams.class);
+
+        assertThat(AuthFlowPrewarmer.takeButton(
+                mContext, mParams.themeId, R.layout.fui_provider_button_email)).isNull();
+    }
+
+    @Test
+    public void testTakeButton_otherTheme() throws InterruptedException {
+        awaitCompletion(AuthFlowPrewarmer.prewarm(mContext, mParams));
+
+        assertThat(AuthFlowPrewarmer.takeButton(
+                mContext, R.style.Theme_AppCompat, R.layout.fui_provider_button_email)).isNull();
+    }
+
+    private static void awaitCompletion(Task<?> task) throws InterruptedException {
+        // Tasks.await can't be called from the main thread, which runs the tests
+        for (int i = 0; i < 500 && !task.isComplete(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(task.isSuccessful()).isTrue();
+    }
+}
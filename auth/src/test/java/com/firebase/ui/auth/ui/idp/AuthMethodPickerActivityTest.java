@@ -14,20 +14,29 @@
 
 package com.firebase.ui.auth.ui.idp;
 
+import android.app.Application;
+import android.content.Context;
 import android.content.Intent;
+import android.os.Bundle;
+import android.os.Looper;
 import android.widget.Button;
 import android.widget.LinearLayout;
 
 import com.firebase.ui.auth.AuthMethodPickerLayout;
 import com.firebase.ui.auth.AuthUI;
+import com.firebase.ui.auth.KickoffActivity;
 import com.firebase.ui.auth.R;
+import com.firebase.ui.auth.data.model.Resource;
+import com.firebase.ui.auth.data.remote.SignInKickstarter;
 import com.firebase.ui.auth.testhelpers.TestHelper;
 import com.firebase.ui.auth.ui.email.EmailActivity;
 import com.firebase.ui.auth.ui.phone.PhoneActivity;
+import com.firebase.ui.auth.util.GoogleApiUtils;
 import com.google.firebase.auth.EmailAuthProvider;
 import com.google.firebase.auth.PhoneAuthProvider;
 import com.google.firebase.auth.TwitterAuthProvider;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -35,22 +44,49 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.android.controller.ActivityController;
 import org.robolectric.Shadows;
+import org.robolectric.annotation.LooperMode;
 import org.robolectric.shadows.ShadowActivity;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import androidx.credentials.Credential;
+import androidx.credentials.CredentialManager;
+import androidx.credentials.CustomCredential;
+import androidx.credentials.GetCredentialRequest;
+import androidx.credentials.GetCredentialResponse;
+import androidx.credentials.PasswordCredential;
 import androidx.test.core.app.ApplicationProvider;
+import kotlin.coroutines.Continuation;
+import kotlin.coroutines.intrinsics.IntrinsicsKt;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
 
 @RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
 public class AuthMethodPickerActivityTest {
+    private Continuation<Object> mCredentialContinuation;
+
     @Before
     public void setUp() {
         TestHelper.initialize();
     }
 
+    @After
+    public void tearDown() {
+        GoogleApiUtils.setCredentialManagerForTesting(null);
+        KickoffActivity.mKickstarter = null;
+    }
+
     @Test
     public void testAllProvidersArePopulated() {
         // Exclude Facebook until the `NoClassDefFoundError: com/facebook/common/R$style` exception
@@ -192,4 +228,99 @@ public class AuthMethodPickerActivityTest {
         activity.setTheme(R.style.Theme_AppCompat); 
         return controller.create().visible().get();
     }
+
+    @Test
+    public void testCredentialRequest_disablesProvidersUntilDeadline() {
+        mockPendingCredentialRequest();
+
+        AuthMethodPickerActivity activity =
+                createActivity(Collections.singletonList(EmailAuthProvider.PROVIDER_ID));
+
+        Button emailButton = activity.findViewById(R.id.email_button);
+        assertFalse(emailButton.isEnabled());
+
+        shadowOf(Looper.getMainLooper()).idleFor(
+                Duration.ofMillis(AuthUI.DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS));
+        assertTrue(emailButton.isEnabled());
+    }
+
+    @Test
+    public void testLateCredential_ignoredAfterProviderPicked() {
+        mockPendingCredentialRequest();
+
+        AuthMethodPickerActivity activity =
+                createActivity(Collections.singletonList(EmailAuthProvider.PROVIDER_ID));
+        shadowOf(Looper.getMainLooper()).idleFor(
+                Duration.ofMillis(AuthUI.DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS));
+
+        Button emailButton = activity.findViewById(R.id.email_button);
+        emailButton.performClick();
+        resumeCredentialRequest(new PasswordCredential("test@example.com", "password"));
+
+        assertNull(KickoffActivity.mKickstarter.getOperation().getValue());
+        ShadowActivity.IntentForResult nextIntent =
+                Shadows.shadowOf(activity).getNextStartedActivityForResult();
+        assertEquals(
+                EmailActivity.class.getName(),
+                nextIntent.intent.getComponent().getClassName());
+    }
+
+    @Test
+    public void testLateCredential_keepsProvidersDisabledWhileSigningIn() {
+        mockPendingCredentialRequest();
+
+        AuthMethodPickerActivity activity =
+                createActivity(Collections.singletonList(EmailAuthProvider.PROVIDER_ID));
+        shadowOf(Looper.getMainLooper()).idleFor(
+                Duration.ofMillis(AuthUI.DEFAULT_CREDENTIAL_MANAGER_TIMEOUT_MILLIS));
+
+        resumeCredentialRequest(new PasswordCredential("test@example.com", "password"));
+
+        Button emailButton = activity.findViewById(R.id.email_button);
+        assertFalse(emailButton.isEnabled());
+        assertEquals(Resource.forLoading(), KickoffActivity.mKickstarter.getOperation().getValue());
+
+        emailButton.performClick();
+        assertNull(Shadows.shadowOf(activity).getNextStartedActivityForResult());
+    }
+
+    @Test
+    public void testUnsupportedCredential_enablesProviders() {
+        mockPendingCredentialRequest();
+
+        AuthMethodPickerActivity activity =
+                createActivity(Collections.singletonList(EmailAuthProvider.PROVIDER_ID));
+
+        resumeCredentialRequest(new CustomCredential("unsupported", new Bundle()));
+
+        Button emailButton = activity.findViewById(R.id.email_button);
+        assertTrue(emailButton.isEnabled());
+
+        emailButton.performClick();
+        ShadowActivity.IntentForResult nextIntent =
+                Shadows.shadowOf(activity).getNextStartedActivityForResult();
+        assertEquals(
+                EmailActivity.class.getName(),
+                nextIntent.intent.getComponent().getClassName());
+    }
+
+    /**
+     * Makes Credential Manager requests suspend until {@link #resumeCredentialRequest} is called.
+     */
+    private void mockPendingCredentialRequest() {
+        CredentialManager credentialManager = mock(CredentialManager.class);
+        when(credentialManager.getCredential(
+                any(Context.class), any(GetCredentialRequest.class), any(Continuation.class)))
+                .thenAnswer(invocation -> {
+                    mCredentialContinuation = invocation.getArgument(2);
+                    return IntrinsicsKt.getCOROUTINE_SUSPENDED();
+                });
+        GoogleApiUtils.setCredentialManagerForTesting(credentialManager);
+        KickoffActivity.mKickstarter =
+                new SignInKickstarter((Application) ApplicationProvider.getApplicationContext());
+    }
+
+    private void resumeCredentialRequest(Credential credential) {
+        mCredentialContinuation.resumeWith(new GetCredentialResponse(credential));
+    }
 }
@@ -17,25 +17,30 @@
  */
 package com.firebase.ui.auth.ui.phone;
 
+import android.text.SpannableStringBuilder;
 import android.widget.EditText;
+import android.widget.TextView;
 
 import com.firebase.ui.auth.util.ui.BucketedTextChangeListener;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InOrder;
 import org.robolectric.RobolectricTestRunner;
 
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(RobolectricTestRunner.class)
 public class BucketedTextChangeListenerTest {
     private static final int EXPECTED_LENGTH = 6;
     private static final String PLACE_HOLDER = "-";
-    private static final int ANY_INT = -1;
 
     private EditText mEditText;
     private BucketedTextChangeListener.ContentChangeCallback mContentChangeCallback;
@@ -51,63 +56,87 @@ public class BucketedTextChangeListenerTest {
 
     @Test
     public void testTextChange_empty() {
-        mTextChangeListener.onTextChanged("------", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("------"));
         testListener(mEditText, "------", 0, false);
     }
 
     @Test
     public void testTextChange_atIndex0() {
-        mTextChangeListener.onTextChanged("1------", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("1------"));
         testListener(mEditText, "1-----", 1, false);
     }
 
     @Test
     public void testTextChange_atIndex1() {
-        mTextChangeListener.onTextChanged("12-----", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("12-----"));
         testListener(mEditText, "12----", 2, false);
     }
 
     @Test
     public void testTextChange_atIndex5() {
-        mTextChangeListener.onTextChanged("123456-", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("123456-"));
         testListener(mEditText, "123456", 6, true);
     }
 
     @Test
     public void testTextChange_exceedingMaxLength() {
-        mTextChangeListener.onTextChanged("1234567", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("1234567"));
         testListener(mEditText, "123456", 6, true);
     }
 
     @Test
     public void testTextChange_onClear() {
-        mTextChangeListener.onTextChanged("", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder(""));
         testListener(mEditText, "------", 0, false);
     }
 
     @Test
     public void testTextChange_onPartialClear() {
-        mTextChangeListener.onTextChanged("123", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("123"));
         testListener(mEditText, "123---", 3, false);
     }
 
     @Test
     public void testTextChange_onIncorrectInsertion() {
-        mTextChangeListener.onTextChanged("1--3--", ANY_INT, ANY_INT, ANY_INT);
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("1--3--"));
         testListener(mEditText, "13----", 2, false);
     }
 
+    @Test
+    public void testTextChange_ignoresOwnChanges() {
+        doAnswer(invocation -> {
+            mTextChangeListener.afterTextChanged(
+                    new SpannableStringBuilder(invocation.<CharSequence>getArgument(0)));
+            return null;
+        }).when(mEditText).setText(anyText(), anyBufferType());
+
+        mTextChangeListener.afterTextChanged(new SpannableStringBuilder("1"));
+        verify(mEditText, times(1)).setText(anyText(), anyBufferType());
+        verify(mContentChangeCallback, times(1)).whileIncomplete();
+    }
+
     private void testListener(EditText editText, String expectedText, int expectedSelection,
                               boolean isComplete) {
         final InOrder inOrder = inOrder(editText);
-        inOrder.verify(editText).removeTextChangedListener(mTextChangeListener);
-        inOrder.verify(editText).setText(expectedText);
+        // setText(CharSequence) is final and delegates to this overload
+        inOrder.verify(editText).setText(
+                ArgumentMatchers.<CharSequence>argThat(expectedText::contentEquals),
+                anyBufferType());
         inOrder.verify(editText).setSelection(expectedSelection);
-        inOrder.verify(editText).addTextChangedListener(mTextChangeListener);
+        // Changes are applied in place, the listener stays registered
+        verify(editText, never()).removeTextChangedListener(mTextChangeListener);
         if (isComplete) {
             verify(mContentChangeCallback).whenComplete();
         } else {
             verify(mContentChangeCallback).whileIncomplete();
         }
     }
+
+    private static CharSequence anyText() {
+        return ArgumentMatchers.any();
+    }
+
+    private static TextView.BufferType anyBufferType() {
+        return ArgumentMatchers.any();
+    }
 }
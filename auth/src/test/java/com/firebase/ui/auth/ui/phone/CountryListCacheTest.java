@@ -0,0 +1,53 @@
+package com.firebase.ui.auth.ui.phone;
+
+import com.firebase.ui.auth.data.model.CountryInfo;
+import com.firebase.ui.auth.util.data.CountryListCache;
+import com.firebase.ui.auth.util.data.PhoneNumberUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class CountryListCacheTest {
+    @Test
+    public void testGetCountries_containsEveryCountry() {
+        List<CountryInfo> countries = CountryListCache.getCountries(Locale.getDefault());
+
+        List<String> isos = new ArrayList<>();
+        for (CountryInfo country : countries) {
+            isos.add(country.getLocale().getCountry());
+        }
+        assertThat(isos).containsExactlyElementsIn(
+                PhoneNumberUtils.getImmutableCountryIsoMap().keySet());
+    }
+
+    @Test
+    public void testGetCountries_sortedLikeCountryInfo() {
+        List<CountryInfo> countries = CountryListCache.getCountries(Locale.getDefault());
+
+        List<CountryInfo> expected = new ArrayList<>(countries);
+        Collections.sort(expected);
+        // Countries with the same primary collation order may be in either order
+        for (int i = 0; i < countries.size(); i++) {
+            assertThat(countries.get(i).compareTo(expected.get(i))).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testGetCountries_cached() {
+        List<CountryInfo> countries = CountryListCache.getCountries(Locale.FRANCE);
+
+        assertThat(CountryListCache.getCachedCountries(Locale.FRANCE)).isSameAs(countries);
+        assertThat(CountryListCache.getCountries(Locale.FRANCE)).isSameAs(countries);
+        assertThat(CountryListCache.getCountriesAsync(Locale.FRANCE).getResult())
+                .isSameAs(countries);
+    }
+}
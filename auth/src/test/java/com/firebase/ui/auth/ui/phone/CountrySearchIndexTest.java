@@ -0,0 +1,79 @@
+package com.firebase.ui.auth.ui.phone;
+
+import com.firebase.ui.auth.data.model.CountryInfo;
+import com.firebase.ui.auth.util.data.CountrySearchIndex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class CountrySearchIndexTest {
+    private static final CountryInfo IVORY_COAST = new CountryInfo(new Locale("", "CI"), 225);
+    private static final CountryInfo GERMANY = new CountryInfo(new Locale("", "DE"), 49);
+    private static final CountryInfo UAE = new CountryInfo(new Locale("", "AE"), 971);
+    private static final CountryInfo UK = new CountryInfo(new Locale("", "GB"), 44);
+    private static final CountryInfo US = new CountryInfo(new Locale("", "US"), 1);
+
+    private static final List<CountryInfo> COUNTRIES =
+            Arrays.asList(IVORY_COAST, GERMANY, UAE, UK, US);
+
+    private CountrySearchIndex.Search mSearch;
+
+    @Before
+    public void setUp() {
+        mSearch = new CountrySearchIndex(COUNTRIES, Locale.US).newSearch(COUNTRIES);
+    }
+
+    @Test
+    public void testFind_emptyQueryReturnsEveryCountry() {
+        assertThat(mSearch.find("")).containsExactlyElementsIn(COUNTRIES).inOrder();
+        assertThat(mSearch.find("  ")).containsExactlyElementsIn(COUNTRIES).inOrder();
+    }
+
+    @Test
+    public void testFind_byNameWordPrefix() {
+        assertThat(mSearch.find("uni")).containsExactly(UAE, UK, US).inOrder();
+        assertThat(mSearch.find("united k")).containsExactly(UK);
+        assertThat(mSearch.find("kingdom")).containsExactly(UK);
+        assertThat(mSearch.find("ingdom")).isEmpty();
+    }
+
+    @Test
+    public void testFind_ignoresCaseAndPunctuation() {
+        assertThat(mSearch.find("GERM")).containsExactly(GERMANY);
+        assertThat(mSearch.find("united-states")).containsExactly(US);
+    }
+
+    @Test
+    public void testFind_byIsoAndDialCode() {
+        assertThat(mSearch.find("gb")).containsExactly(UK);
+        assertThat(mSearch.find("+44")).containsExactly(UK);
+        assertThat(mSearch.find("97")).containsExactly(UAE);
+    }
+
+    @Test
+    public void testFind_narrowsAndWidensAsQueryChanges() {
+        assertThat(mSearch.find("u")).containsExactly(UAE, UK, US).inOrder();
+        assertThat(mSearch.find("united s")).containsExactly(US);
+        // Deleting characters goes back to the previous results
+        assertThat(mSearch.find("united")).containsExactly(UAE, UK, US).inOrder();
+        assertThat(mSearch.find("g")).containsExactly(GERMANY, UK).inOrder();
+    }
+
+    @Test
+    public void testNewSearch_restrictedToGivenCountries() {
+        CountrySearchIndex.Search search = new CountrySearchIndex(COUNTRIES, Locale.US)
+                .newSearch(Arrays.asList(UAE, US));
+
+        assertThat(search.find("")).containsExactly(UAE, US).inOrder();
+        assertThat(search.find("united")).containsExactly(UAE, US).inOrder();
+    }
+}
@@ -0,0 +1,157 @@
+package com.firebase.ui.auth.ui.phone;
+
+import android.util.SparseArray;
+
+import com.firebase.ui.auth.data.model.PhoneNumber;
+import com.firebase.ui.auth.util.data.PhoneNumberUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares {@link PhoneNumberUtils#getPhoneNumber(String)} with the previous regex-based
+ * implementation over 1M numbers. Skipped unless run with {@code ./gradlew :auth:testDebugUnitTest
+ * --tests '*PhoneNumberUtilsBenchmark' -Pbenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PhoneNumberUtilsBenchmark {
+    private static final int ITERATIONS = 1_000_000;
+    private static final int WARMUP_ITERATIONS = 100_000;
+    private static final int DISTINCT_NUMBERS = 10_000;
+
+    private final SparseArray<List<String>> mRegionCodes = new SparseArray<>();
+    private final List<String> mNumbers = new ArrayList<>(DISTINCT_NUMBERS);
+
+    @Before
+    public void setUp() {
+        assumeTrue("Benchmarks are disabled", Boolean.getBoolean("fui.benchmark"));
+
+        List<Integer> codes = new ArrayList<>();
+        for (int code = 1; code < 1000; code++) {
+            List<String> isos = PhoneNumberUtils.getCountryIsosFromCountryCode("+" + code);
+            if (isos != null) {
+                mRegionCodes.put(code, isos);
+                codes.add(code);
+            }
+        }
+
+        // Mostly valid E.164 numbers, with some national and unknown ones mixed in
+        Random random = new Random(42);
+        for (int i = 0; i < DISTINCT_NUMBERS; i++) {
+            StringBuilder number = new StringBuilder();
+            int kind = random.nextInt(10);
+            if (kind < 8) {
+                number.append('+').append(codes.get(random.nextInt(codes.size())));
+            } else if (kind == 8) {
+                // No country code starts with 28
+                number.append("+28");
+            }
+            for (int digit = 0; digit < 9; digit++) {
+                number.append(random.nextInt(10));
+            }
+            mNumbers.add(number.toString());
+        }
+    }
+
+    @Test
+    public void getPhoneNumber() {
+        for (String number : mNumbers) {
+            PhoneNumber expected = LegacyParser.getPhoneNumber(mRegionCodes, number);
+            PhoneNumber actual = PhoneNumberUtils.getPhoneNumber(number);
+            assertEquals(expected.getPhoneNumber(), actual.getPhoneNumber());
+            assertEquals(expected.getCountryIso(), actual.getCountryIso());
+            assertEquals(expected.getCountryCode(), actual.getCountryCode());
+        }
+
+        long legacy = measure(number -> LegacyParser.getPhoneNumber(mRegionCodes, number));
+        long current = measure(PhoneNumberUtils::getPhoneNumber);
+
+        System.out.println(String.format(Locale.US,
+                "getPhoneNumber x %d: legacy %d ms, current %d ms (%.1fx)",
+                ITERATIONS,
+                legacy / 1_000_000,
+                current / 1_000_000,
+                (double) legacy / current));
+    }
+
+    /**
+     * @return the time taken to parse {@link #ITERATIONS} numbers, in nanoseconds.
+     */
+    private long measure(Parser parser) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += parser.parse(mNumbers.get(i % DISTINCT_NUMBERS)).getCountryCode().length();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += parser.parse(mNumbers.get(i % DISTINCT_NUMBERS)).getCountryCode().length();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Keeps the JIT from discarding the parsing
+        if (sink == 42) {
+            System.out.println(sink);
+        }
+        return elapsed;
+    }
+
+    private interface Parser {
+        PhoneNumber parse(String number);
+    }
+
+    /**
+     * The regex-based parsing PhoneNumberUtils used before it switched to a trie.
+     */
+    private static final class LegacyParser {
+        private static final String DEFAULT_COUNTRY_CODE = "1";
+        private static final int MAX_LENGTH_COUNTRY_CODE = 3;
+
+        static PhoneNumber getPhoneNumber(SparseArray<List<String>> regionCodes,
+                                          String providedPhoneNumber) {
+            String countryCode = DEFAULT_COUNTRY_CODE;
+            String countryIso = Locale.US.getCountry();
+
+            String phoneNumber = providedPhoneNumber;
+            if (providedPhoneNumber.startsWith("+")) {
+                countryCode = getCountryCodeForPhoneNumber(regionCodes, providedPhoneNumber);
+                if (countryCode == null) {
+                    countryCode = DEFAULT_COUNTRY_CODE;
+                }
+                List<String> countries = regionCodes.get(Integer.parseInt(countryCode));
+                if (countries != null) {
+                    countryIso = countries.get(0);
+                }
+                phoneNumber = providedPhoneNumber.replaceFirst("^\\+?" + countryCode, "");
+            }
+
+            return new PhoneNumber(phoneNumber, countryIso, countryCode);
+        }
+
+        private static String getCountryCodeForPhoneNumber(SparseArray<List<String>> regionCodes,
+                                                           String normalizedPhoneNumber) {
+            String phoneWithoutPlusPrefix = normalizedPhoneNumber.replaceFirst("^\\+", "");
+            int numberLength = phoneWithoutPlusPrefix.length();
+
+            for (int i = 1; i <= MAX_LENGTH_COUNTRY_CODE && i <= numberLength; i++) {
+                String potentialCountryCode = phoneWithoutPlusPrefix.substring(0, i);
+                Integer countryCodeKey = Integer.valueOf(potentialCountryCode);
+
+                if (regionCodes.indexOfKey(countryCodeKey) >= 0) {
+                    return potentialCountryCode;
+                }
+            }
+            return null;
+        }
+    }
+}
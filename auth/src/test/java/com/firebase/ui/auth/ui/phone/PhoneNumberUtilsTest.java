@@ -37,7 +37,10 @@ import static com.firebase.ui.auth.util.data.PhoneNumberUtils.format;
 import static com.firebase.ui.auth.util.data.PhoneNumberUtils.getCountryCode;
 import static com.firebase.ui.auth.util.data.PhoneNumberUtils.getCurrentCountryInfo;
 import static com.firebase.ui.auth.util.data.PhoneNumberUtils.getPhoneNumber;
+import static com.firebase.ui.auth.util.data.PhoneNumberUtils.isValid;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -76,6 +79,32 @@ public class PhoneNumberUtilsTest {
         assertEquals(PhoneTestConstants.US_ISO2, number.getCountryIso());
     }
 
+    @Test
+    public void testGetPhoneNumber_countryCodeWithLeadingZero() {
+        final PhoneNumber number = getPhoneNumber("+0" + PhoneTestConstants
+                .PHONE_NO_COUNTRY_CODE);
+        assertEquals("+0" + PhoneTestConstants.PHONE_NO_COUNTRY_CODE, number.getPhoneNumber());
+        assertEquals(PhoneTestConstants.US_COUNTRY_CODE, number.getCountryCode());
+        assertEquals(PhoneTestConstants.US_ISO2, number.getCountryIso());
+    }
+
+    @Test
+    public void testIsValid() {
+        assertTrue(isValid(PhoneTestConstants.YE_RAW_PHONE));
+        assertFalse(isValid(PhoneTestConstants.PHONE));
+        assertFalse(isValid("+"));
+        assertFalse(isValid("+0" + PhoneTestConstants.PHONE_NO_COUNTRY_CODE));
+        assertFalse(isValid("+a" + PhoneTestConstants.PHONE_NO_COUNTRY_CODE));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals(PhoneTestConstants.RAW_PHONE,
+                format(PhoneTestConstants.RAW_PHONE, new CountryInfo(Locale.US, 1)));
+        assertEquals(PhoneTestConstants.RAW_PHONE,
+                format("(234) 56-789", new CountryInfo(Locale.US, 1)));
+    }
+
     @Test
     public void testGetCountryCode() {
         assertEquals(Integer.valueOf(86), getCountryCode(Locale.CHINA.getCountry()));
@@ -20,11 +20,13 @@ package com.firebase.ui.auth.ui.phone;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.text.Editable;
+import android.text.InputType;
 import android.text.style.ScaleXSpan;
 import android.util.AttributeSet;
 
 import com.firebase.ui.auth.R;
 import com.firebase.ui.auth.TestApplication;
+import com.firebase.ui.auth.util.ui.BucketedTextChangeListener;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -36,6 +38,8 @@ import org.robolectric.annotation.Config;
 import androidx.test.core.app.ApplicationProvider;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
@@ -104,6 +108,68 @@ public class SpacedEditTextTest {
         assertEquals(5, mSpacedEditText.getSelectionStart());
     }
 
+    @Test
+    public void testSpacedEditText_setTextUpdatesInPlace() {
+        mSpacedEditText.setText("1-----");
+        Editable editable = mSpacedEditText.getText();
+
+        mSpacedEditText.setText("12----");
+        assertSame(editable, mSpacedEditText.getText());
+        testSpacing("1 2 - - - -", "12----", mSpacedEditText);
+
+        mSpacedEditText.setText("12");
+        assertSame(editable, mSpacedEditText.getText());
+        testSpacing("1 2", "12", mSpacedEditText);
+
+        mSpacedEditText.setText("1234");
+        testSpacing("1 2 3 4", "1234", mSpacedEditText);
+    }
+
+    @Test
+    public void testSpacedEditText_bucketedTyping() {
+        mSpacedEditText.setText("------");
+        mSpacedEditText.addTextChangedListener(
+                new BucketedTextChangeListener(mSpacedEditText, 6, "-", null));
+        Editable editable = mSpacedEditText.getText();
+
+        editable.insert(0, "1");
+        testSpacing("1 - - - - -", "1-----", mSpacedEditText);
+        assertEquals(1, mSpacedEditText.getSelectionStart());
+
+        editable.insert(mSpacedEditText.getSelectionStart(), "2");
+        testSpacing("1 2 - - - -", "12----", mSpacedEditText);
+        assertEquals(3, mSpacedEditText.getSelectionStart());
+
+        editable.delete(2, 3);
+        testSpacing("1 - - - - -", "1-----", mSpacedEditText);
+        assertSame(editable, mSpacedEditText.getText());
+    }
+
+    @Test
+    public void testSpacedEditText_numberInputType() {
+        // Like fui_confirmation_code_layout, adds a digits only filter to the editable
+        mSpacedEditText.setInputType(InputType.TYPE_CLASS_NUMBER);
+        mSpacedEditText.setText("------");
+        mSpacedEditText.addTextChangedListener(
+                new BucketedTextChangeListener(mSpacedEditText, 6, "-", null));
+        Editable editable = mSpacedEditText.getText();
+        assertTrue(editable.getFilters().length > 0);
+
+        editable.insert(0, "1");
+        testSpacing("1 - - - - -", "1-----", mSpacedEditText);
+
+        editable.insert(mSpacedEditText.getSelectionStart(), "2");
+        testSpacing("1 2 - - - -", "12----", mSpacedEditText);
+
+        editable.delete(2, 3);
+        testSpacing("1 - - - - -", "1-----", mSpacedEditText);
+
+        mSpacedEditText.setText("123456");
+        testSpacing("1 2 3 4 5 6", "123456", mSpacedEditText);
+        assertSame(editable, mSpacedEditText.getText());
+        assertTrue(editable.getFilters().length > 0);
+    }
+
     /**
      * 1. Tests whether the content is set to the expected value.
      * 2. Tests whether the original content is set to the original value.
@@ -117,6 +183,7 @@ public class SpacedEditTextTest {
 
         assertEquals(expectedSpacedText, editable.toString());
         assertEquals(expectedOriginalText, editText.getUnspacedText().toString());
+        assertEquals(Math.max(expectedOriginalText.length() - 1, 0), spans.length);
 
         for (ScaleXSpan span : spans) {
             assertEquals(SPACING_PROPORTION, span.getScaleX());
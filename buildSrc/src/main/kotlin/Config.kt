@@ -30,9 +30,11 @@ object Config {
             const val customTabs = "androidx.browser:browser:1.3.0"
             const val cardView = "androidx.cardview:cardview:1.0.0"
             const val constraint = "androidx.constraintlayout:constraintlayout:2.0.4"
+            const val exifInterface = "androidx.exifinterface:exifinterface:1.3.2"
             const val fragment = "androidx.fragment:fragment:1.3.5"
             const val lifecycleCompiler = "androidx.lifecycle:lifecycle-compiler:2.3.1"
             const val lifecycleExtensions = "androidx.lifecycle:lifecycle-extensions:2.2.0"
+            const val lifecycleLiveData = "androidx.lifecycle:lifecycle-livedata:2.3.1"
             const val lifecycleRuntime = "androidx.lifecycle:lifecycle-runtime:2.3.1"
             const val lifecycleViewModel = "androidx.lifecycle:lifecycle-viewmodel:2.3.1"
             const val legacySupportv4 = "androidx.legacy:legacy-support-v4:1.0.0"
@@ -68,6 +70,7 @@ object Config {
 
             const val glide = "com.github.bumptech.glide:glide:$glideVersion"
             const val glideCompiler = "com.github.bumptech.glide:compiler:$glideVersion"
+            const val glideRecyclerView = "com.github.bumptech.glide:recyclerview-integration:$glideVersion"
 
             const val permissions = "pub.devrel:easypermissions:3.0.0"
         }
@@ -78,6 +81,7 @@ object Config {
             const val truth = "com.google.truth:truth:0.42"
             const val mockito = "org.mockito:mockito-android:2.21.0"
             const val robolectric = "org.robolectric:robolectric:4.14"
+            const val compileTesting = "com.google.testing.compile:compile-testing:0.21.0"
 
             const val core = "androidx.test:core:1.5.0"
             const val archCoreTesting = "androidx.arch.core:core-testing:2.1.0"
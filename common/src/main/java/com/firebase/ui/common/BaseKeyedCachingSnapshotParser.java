@@ -0,0 +1,123 @@
+package com.firebase.ui.common;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Implementation of {@link BaseSnapshotParser} that caches results by snapshot id for snapshots
+ * which are never updated in place, like the pages of a paging adapter.
+ * <p>
+ * Unlike {@link BaseCachingSnapshotParser}, which relies on explicit invalidation, a cached model
+ * is only reused for the very snapshot it was parsed from. When a reloaded page delivers a new
+ * snapshot for the same id, it is parsed again and replaces the cached model.
+ * <p>
+ * Content fingerprints are cached per snapshot instance as well, so diffing pages compares each
+ * snapshot's content once instead of parsing it on every comparison.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public abstract class BaseKeyedCachingSnapshotParser<S, T> implements BaseSnapshotParser<S, T> {
+
+    private static final int DEFAULT_MAX_CACHE_SIZE = 200;
+
+    private final LruCache<String, Entry<S, T>> mObjectCache;
+    private final LruCache<IdentityKey, Long> mFingerprintCache;
+    private final BaseSnapshotParser<S, T> mParser;
+
+    public BaseKeyedCachingSnapshotParser(@NonNull BaseSnapshotParser<S, T> parser) {
+        this(parser, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public BaseKeyedCachingSnapshotParser(@NonNull BaseSnapshotParser<S, T> parser, int maxSize) {
+        mParser = parser;
+        mObjectCache = new LruCache<>(maxSize);
+        // Diffing needs the fingerprints of both the old and the new snapshots
+        mFingerprintCache = new LruCache<>(2 * maxSize);
+    }
+
+    /**
+     * Get a unique identifier for a snapshot, should not depend on snapshot content.
+     */
+    @NonNull
+    public abstract String getId(@NonNull S snapshot);
+
+    /**
+     * Compute a fingerprint of the snapshot's content, see {@link ContentFingerprint}.
+     */
+    protected abstract long computeFingerprint(@NonNull S snapshot);
+
+    @NonNull
+    @Override
+    public T parseSnapshot(@NonNull S snapshot) {
+        T result = getCached(snapshot);
+        if (result == null) {
+            result = mParser.parseSnapshot(snapshot);
+            mObjectCache.put(getId(snapshot), new Entry<>(snapshot, result));
+        }
+        return result;
+    }
+
+    /**
+     * @return the model parsed from this exact snapshot, or null if it was not parsed yet.
+     */
+    @Nullable
+    public T getCached(@NonNull S snapshot) {
+        Entry<S, T> entry = mObjectCache.get(getId(snapshot));
+        return entry != null && entry.mSnapshot == snapshot ? entry.mModel : null;
+    }
+
+    /**
+     * @return a fingerprint of the snapshot's content, computed once per snapshot instance.
+     * Snapshots with the same content have the same fingerprint.
+     */
+    public long getFingerprint(@NonNull S snapshot) {
+        IdentityKey key = new IdentityKey(snapshot);
+        Long fingerprint = mFingerprintCache.get(key);
+        if (fingerprint == null) {
+            fingerprint = computeFingerprint(snapshot);
+            mFingerprintCache.put(key, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Clear all data in the cache.
+     */
+    public void clear() {
+        mObjectCache.evictAll();
+        mFingerprintCache.evictAll();
+    }
+
+    /**
+     * Snapshots may implement equality by content, which is what fingerprints avoid comparing.
+     */
+    private static final class IdentityKey {
+        private final Object mObject;
+
+        IdentityKey(@NonNull Object object) {
+            mObject = object;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).mObject == mObject;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mObject);
+        }
+    }
+
+    private static final class Entry<S, T> {
+        final S mSnapshot;
+        final T mModel;
+
+        Entry(@NonNull S snapshot, T model) {
+            mSnapshot = snapshot;
+            mModel = model;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.firebase.ui.common;
+
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Computes 64-bit fingerprints of snapshot data, so two snapshots can be compared in constant
+ * time once their fingerprints are known.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class ContentFingerprint {
+
+    private static final long NULL_FINGERPRINT = 0x9E3779B97F4A7C15L;
+    private static final long LIST_SEED = 0x632BE59BD9B4E019L;
+    private static final long MAP_SEED = 0x85EBCA77C2B2AE63L;
+
+    private ContentFingerprint() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * Fingerprint a value as returned by the SDKs: maps, lists and leaf values whose
+     * {@code hashCode} depends on their content (strings, numbers, timestamps...).
+     */
+    public static long of(@Nullable Object value) {
+        if (value == null) {
+            return NULL_FINGERPRINT;
+        }
+
+        if (value instanceof Map) {
+            // Order independent, maps from the SDKs have no defined iteration order
+            long result = MAP_SEED;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                result += mix(of(entry.getKey()) * 31 + of(entry.getValue()));
+            }
+            return mix(result);
+        }
+
+        if (value instanceof List) {
+            long result = LIST_SEED;
+            for (Object element : (List<?>) value) {
+                result = mix(result * 31 + of(element));
+            }
+            return result;
+        }
+
+        // Tell apart 1L and 1.0, which may be equal after hashing
+        return mix(value.getClass().getName().hashCode() * 31L + value.hashCode());
+    }
+
+    /**
+     * The finalizer of MurmurHash3, spreads every input bit over the whole result.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,23 @@
+package com.firebase.ui.common;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class for which the {@code firebase-ui-processor} annotation processor generates
+ * a reflection-free {@code SnapshotParser}. The {@code ClassSnapshotParser} of the Realtime
+ * Database and Cloud Firestore modules, and so every options builder given a model class, use the
+ * generated parser automatically when it exists.
+ * <p>
+ * The model must have a no-argument constructor, and its properties must be public fields or
+ * public setters of supported types. Otherwise the processor warns and parsing falls back to
+ * reflection.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateSnapshotParser {
+}
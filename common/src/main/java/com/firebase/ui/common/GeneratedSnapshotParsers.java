@@ -0,0 +1,38 @@
+package com.firebase.ui.common;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Finds the parsers generated for classes annotated with {@link GenerateSnapshotParser}.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class GeneratedSnapshotParsers {
+
+    private GeneratedSnapshotParsers() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @param suffix the suffix the processor appends to the model's class name.
+     * @return an instance of the generated parser, or null if none was generated.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <P> P find(@NonNull Class<?> modelClass, @NonNull String suffix) {
+        Class<?> parserClass;
+        try {
+            parserClass = Class.forName(
+                    modelClass.getName() + suffix, true, modelClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        try {
+            return (P) parserClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + parserClass.getName(), e);
+        }
+    }
+}
@@ -1 +1,6 @@
 -dontwarn com.firebase.ui.database.paging.**
+
+# Parsers generated by firebase-ui-processor are looked up by name, see ClassSnapshotParser
+-keep class **_DatabaseSnapshotParser { <init>(); }
+-if class **_DatabaseSnapshotParser
+-keepnames class <1>
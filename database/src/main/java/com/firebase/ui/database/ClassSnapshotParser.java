@@ -1,5 +1,6 @@
 package com.firebase.ui.database;
 
+import com.firebase.ui.common.GeneratedSnapshotParsers;
 import com.firebase.ui.common.Preconditions;
 import com.google.firebase.database.DataSnapshot;
 
@@ -9,19 +10,31 @@ import androidx.annotation.Nullable;
 /**
  * A convenience implementation of {@link SnapshotParser} that converts a {@link DataSnapshot} to
  * the parametrized class via {@link DataSnapshot#getValue(Class)}.
+ * <p>
+ * If the class is annotated with {@link com.firebase.ui.common.GenerateSnapshotParser} and the
+ * {@code firebase-ui-processor} annotation processor is used, the generated parser is used
+ * instead, which reads the snapshot without reflection.
  *
  * @param <T> the POJO class to create from snapshots.
  */
 public class ClassSnapshotParser<T> implements SnapshotParser<T> {
+    /** Must match the suffix used by the annotation processor. */
+    private static final String GENERATED_PARSER_SUFFIX = "_DatabaseSnapshotParser";
+
     private Class<T> mClass;
+    @Nullable private final SnapshotParser<T> mGeneratedParser;
 
     public ClassSnapshotParser(@NonNull Class<T> clazz) {
         mClass = Preconditions.checkNotNull(clazz);
+        mGeneratedParser = GeneratedSnapshotParsers.find(clazz, GENERATED_PARSER_SUFFIX);
     }
 
     @Nullable
     @Override
     public T parseSnapshot(@NonNull DataSnapshot snapshot) {
+        if (mGeneratedParser != null) {
+            return mGeneratedParser.parseSnapshot(snapshot);
+        }
         // In FirebaseUI controlled usages, we can guarantee that our getValue calls will be nonnull
         // because we check for nullity with ValueEventListeners and use ChildEventListeners.
         // However, since this API is public, devs could use it for any snapshot including null
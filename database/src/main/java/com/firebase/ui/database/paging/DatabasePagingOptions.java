@@ -138,11 +138,14 @@ public final class DatabasePagingOptions<T> {
                 throw new IllegalStateException("Must call setQuery() before calling build().");
             }
 
+            // Shared by the adapter and the diff callback
+            SnapshotParser<T> parser = new PagingSnapshotParser<>(mParser);
+
             if (mDiffCallback == null) {
-                mDiffCallback = new DefaultSnapshotDiffCallback<>(mParser);
+                mDiffCallback = new DefaultSnapshotDiffCallback<>(parser);
             }
 
-            return new DatabasePagingOptions<>(mData, mParser, mDiffCallback, mOwner);
+            return new DatabasePagingOptions<>(mData, parser, mDiffCallback, mOwner);
         }
 
     }
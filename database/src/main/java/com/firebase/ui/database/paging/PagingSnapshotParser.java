@@ -0,0 +1,32 @@
+package com.firebase.ui.database.paging;
+
+import com.firebase.ui.common.BaseKeyedCachingSnapshotParser;
+import com.firebase.ui.common.BaseSnapshotParser;
+import com.firebase.ui.common.ContentFingerprint;
+import com.firebase.ui.database.SnapshotParser;
+import com.google.firebase.database.DataSnapshot;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Caches the models parsed for {@link FirebaseRecyclerPagingAdapter}, so scrolling back to an
+ * item does not parse its snapshot again.
+ */
+class PagingSnapshotParser<T> extends BaseKeyedCachingSnapshotParser<DataSnapshot, T>
+        implements SnapshotParser<T> {
+
+    PagingSnapshotParser(@NonNull BaseSnapshotParser<DataSnapshot, T> parser) {
+        super(parser);
+    }
+
+    @NonNull
+    @Override
+    public String getId(@NonNull DataSnapshot snapshot) {
+        return snapshot.getKey();
+    }
+
+    @Override
+    protected long computeFingerprint(@NonNull DataSnapshot snapshot) {
+        return ContentFingerprint.of(snapshot.getValue());
+    }
+}
@@ -1 +1,6 @@
 -dontwarn com.firebase.ui.firestore.paging.**
+
+# Parsers generated by firebase-ui-processor are looked up by name, see ClassSnapshotParser
+-keep class **_FirestoreSnapshotParser { <init>(); }
+-if class **_FirestoreSnapshotParser
+-keepnames class <1>
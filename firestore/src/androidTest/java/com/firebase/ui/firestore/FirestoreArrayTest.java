@@ -21,6 +21,7 @@ import android.util.Log;
 import com.firebase.ui.common.ChangeEventType;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
@@ -41,11 +42,13 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
@@ -189,6 +192,84 @@ public class FirestoreArrayTest {
         });
     }
 
+    /**
+     * Create an array for a query that resolves later and confirm it only listens once the query
+     * is available.
+     */
+    @Test
+    public void testPendingQuery_listensOnceResolved() throws Exception {
+        TaskCompletionSource<Query> query = new TaskCompletionSource<>();
+        FirestoreArray<IntegerDocument> array = new FirestoreArray<>(
+                query.getTask(), new ClassSnapshotParser<>(IntegerDocument.class));
+
+        final Semaphore dataChanged = new Semaphore(0);
+        ChangeEventListener listener = array.addChangeEventListener(new LoggingListener() {
+            @Override
+            public void onDataChanged() {
+                dataChanged.release();
+            }
+        });
+
+        try {
+            assertEquals(0, array.size());
+
+            query.setResult(mCollectionRef.orderBy("field", Query.Direction.ASCENDING));
+
+            assertTrue("Timed out waiting for data.",
+                    dataChanged.tryAcquire(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertEquals(INITIAL_SIZE, array.size());
+            assertEquals(0, array.get(0).field);
+        } finally {
+            array.removeChangeEventListener(listener);
+        }
+    }
+
+    /**
+     * A query that could not be found, like a missing named query, is reported as an error.
+     */
+    @Test
+    public void testMissingQuery_reportsNotFound() throws Exception {
+        FirebaseFirestoreException e = awaitError(Tasks.forResult(null));
+
+        assertEquals(FirebaseFirestoreException.Code.NOT_FOUND, e.getCode());
+    }
+
+    /**
+     * A query that failed to resolve, like a bundle that failed to load, is reported as an error.
+     */
+    @Test
+    public void testFailedQuery_reportsError() throws Exception {
+        Exception cause = new Exception("Could not load bundle");
+        FirebaseFirestoreException e = awaitError(Tasks.forException(cause));
+
+        assertEquals(FirebaseFirestoreException.Code.UNKNOWN, e.getCode());
+        assertEquals(cause, e.getCause());
+    }
+
+    private FirebaseFirestoreException awaitError(Task<Query> query) throws Exception {
+        FirestoreArray<IntegerDocument> array = new FirestoreArray<>(
+                query, new ClassSnapshotParser<>(IntegerDocument.class));
+
+        final Semaphore errored = new Semaphore(0);
+        final AtomicReference<FirebaseFirestoreException> error = new AtomicReference<>();
+        ChangeEventListener listener = array.addChangeEventListener(new LoggingListener() {
+            @Override
+            public void onError(@NonNull FirebaseFirestoreException e) {
+                error.set(e);
+                errored.release();
+            }
+        });
+
+        try {
+            assertTrue("Timed out waiting for error.",
+                    errored.tryAcquire(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertEquals(0, array.size());
+            return error.get();
+        } finally {
+            array.removeChangeEventListener(listener);
+        }
+    }
+
     /**
      * Runs some setup action, waits until it is complete, and then waits for a verification
      * condition to be met. Times out after {@link #TIMEOUT}.
@@ -0,0 +1,173 @@
+package com.firebase.ui.firestore;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class FirestoreMergedArrayTest {
+
+    private Query mFirstQuery;
+    private Query mSecondQuery;
+    private FirestoreMergedArray<String> mArray;
+    private final List<String> mEvents = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mFirstQuery = mockQuery();
+        mSecondQuery = mockQuery();
+        mArray = new FirestoreMergedArray<>(
+                Arrays.asList(mFirstQuery, mSecondQuery),
+                (a, b) -> Long.compare(a.getLong("value"), b.getLong("value")),
+                snapshot -> snapshot.getId());
+
+        mArray.addChangeEventListener(new ChangeEventListener() {
+            @Override
+            public void onChildChanged(@NonNull ChangeEventType type,
+                                       @NonNull DocumentSnapshot snapshot,
+                                       int newIndex,
+                                       int oldIndex) {
+                mEvents.add(type + " " + snapshot.getId() + " " + newIndex + " " + oldIndex);
+            }
+
+            @Override
+            public void onDataChanged() {}
+
+            @Override
+            public void onError(@NonNull FirebaseFirestoreException e) {}
+        });
+    }
+
+    @Test
+    public void testMergesInOrder() {
+        send(mFirstQuery, added("a", 1), added("c", 3));
+        send(mSecondQuery, added("b", 2), added("d", 0));
+
+        assertEquals(Arrays.asList("d", "a", "b", "c"), new ArrayList<>(mArray));
+        assertEquals(Arrays.asList(
+                "ADDED a 0 -1", "ADDED c 1 -1", "ADDED b 1 -1", "ADDED d 0 -1"), mEvents);
+    }
+
+    @Test
+    public void testDeduplicates() {
+        send(mFirstQuery, added("a", 1));
+        send(mSecondQuery, added("a", 1));
+        assertEquals(Collections.singletonList("a"), new ArrayList<>(mArray));
+
+        // Still matched by the second query
+        send(mFirstQuery, removed("a", 1));
+        assertEquals(Collections.singletonList("a"), new ArrayList<>(mArray));
+
+        send(mSecondQuery, removed("a", 1));
+        assertEquals(0, mArray.size());
+        assertEquals(Arrays.asList("ADDED a 0 -1", "REMOVED a -1 0"), mEvents);
+    }
+
+    @Test
+    public void testModifiedMoves() {
+        send(mFirstQuery, added("a", 1), added("b", 2));
+        send(mSecondQuery, added("c", 3));
+        mEvents.clear();
+
+        send(mFirstQuery, modified("a", 4));
+
+        assertEquals(Arrays.asList("b", "c", "a"), new ArrayList<>(mArray));
+        assertEquals(Arrays.asList("MOVED a 2 0", "CHANGED a 2 2"), mEvents);
+    }
+
+    @Test
+    public void testModifiedByOverlappingQueries_notifiesOnce() {
+        send(mFirstQuery, added("a", 1), added("b", 2));
+        send(mSecondQuery, added("a", 1));
+        mEvents.clear();
+
+        send(mFirstQuery, modified("a", 3));
+        send(mSecondQuery, modified("a", 3));
+
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(mArray));
+        assertEquals(Arrays.asList("MOVED a 1 0", "CHANGED a 1 1"), mEvents);
+    }
+
+    @Test
+    public void testAddedWithSameData_notifiesOnce() {
+        send(mFirstQuery, added("a", 1));
+        send(mSecondQuery, added("a", 1));
+
+        assertEquals(Collections.singletonList("ADDED a 0 -1"), mEvents);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void send(Query query, DocumentChange... changes) {
+        ArgumentCaptor<EventListener<QuerySnapshot>> captor =
+                ArgumentCaptor.forClass(EventListener.class);
+        verify(query).addSnapshotListener(eq(MetadataChanges.EXCLUDE), captor.capture());
+
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocumentChanges(MetadataChanges.EXCLUDE))
+                .thenReturn(Arrays.asList(changes));
+        captor.getValue().onEvent(snapshot, null);
+    }
+
+    private static Query mockQuery() {
+        Query query = mock(Query.class);
+        when(query.addSnapshotListener(any(MetadataChanges.class), any(EventListener.class)))
+                .thenReturn(mock(ListenerRegistration.class));
+        return query;
+    }
+
+    private static DocumentChange added(String id, long value) {
+        return change(DocumentChange.Type.ADDED, id, value);
+    }
+
+    private static DocumentChange removed(String id, long value) {
+        return change(DocumentChange.Type.REMOVED, id, value);
+    }
+
+    private static DocumentChange modified(String id, long value) {
+        return change(DocumentChange.Type.MODIFIED, id, value);
+    }
+
+    private static DocumentChange change(DocumentChange.Type type, String id, long value) {
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getPath()).thenReturn("items/" + id);
+
+        QueryDocumentSnapshot snapshot = mock(QueryDocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(id);
+        when(snapshot.getReference()).thenReturn(reference);
+        when(snapshot.getLong("value")).thenReturn(value);
+        when(snapshot.getData()).thenReturn(Collections.singletonMap("value", value));
+
+        DocumentChange change = mock(DocumentChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getDocument()).thenReturn(snapshot);
+        return change;
+    }
+}
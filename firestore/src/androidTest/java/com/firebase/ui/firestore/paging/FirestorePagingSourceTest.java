@@ -1,7 +1,15 @@
 package com.firebase.ui.firestore.paging;
 
+import com.firebase.ui.firestore.FirestoreBundle;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateQuery;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.LoadBundleTask;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.Source;
@@ -12,20 +20,32 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import androidx.paging.PagingConfig;
 import androidx.paging.PagingSource;
 import androidx.paging.PagingSource.LoadParams.Append;
+import androidx.paging.PagingSource.LoadParams.Prepend;
 import androidx.paging.PagingSource.LoadParams.Refresh;
 import androidx.paging.PagingSource.LoadResult.Page;
+import androidx.paging.PagingState;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(AndroidJUnit4.class)
@@ -105,17 +125,252 @@ public class FirestorePagingSourceTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testLoadBefore_success() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
+        mockQuerySuccess(mMockSnapshots);
+        PageKey pageKey = new PageKey(null, mMockSnapshots.get(0));
+        Page<PageKey, DocumentSnapshot> expected = new Page<>(mMockSnapshots, pageKey, null);
+
+        Prepend<PageKey> prependRequest = new Prepend<>(pageKey, 2, false);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(prependRequest).blockingGet();
+
+        assertTrue(actual instanceof Page);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testLoadBefore_startReached() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
+        mockQuerySuccess(mMockSnapshots);
+        PageKey pageKey = new PageKey(null, mMockSnapshots.get(0));
+        Page<PageKey, DocumentSnapshot> expected = new Page<>(mMockSnapshots, null, null);
+
+        Prepend<PageKey> prependRequest = new Prepend<>(pageKey, 3, false);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(prependRequest).blockingGet();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGetRefreshKey_nearTop() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
+        PagingState<PageKey, DocumentSnapshot> state = getPagingState(1);
+
+        assertNull(pagingSource.getRefreshKey(state));
+    }
+
+    @Test
+    public void testGetRefreshKey_anchored() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
+        PagingState<PageKey, DocumentSnapshot> state = getPagingState(3);
+
+        // Initial load size is 2, so the refreshed window starts right after the anchor's
+        // predecessor
+        assertEquals(new PageKey(mMockSnapshots.get(1), null), pagingSource.getRefreshKey(state));
+    }
+
+    @Test
+    public void testLoadInitial_placeholderCounts() {
+        FirestorePagingSource pagingSource =
+                new FirestorePagingSource(mMockQuery, Source.DEFAULT, null, true);
+        mockQuerySuccess(mMockSnapshots);
+        mockCount(10);
+        Page<PageKey, DocumentSnapshot> expected =
+                new Page<>(mMockSnapshots, null, new PageKey(null, null), 0, 8);
+
+        Refresh<PageKey> refreshRequest = new Refresh<>(null, 2, true);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(refreshRequest).blockingGet();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testLoadInitial_placeholderCountsFailure() {
+        FirestorePagingSource pagingSource =
+                new FirestorePagingSource(mMockQuery, Source.DEFAULT, null, true);
+        mockQuerySuccess(mMockSnapshots);
+        AggregateQuery countQuery = mock(AggregateQuery.class);
+        when(countQuery.get(AggregateSource.SERVER)).thenReturn(Tasks.forException(mMockException));
+        when(mMockQuery.count()).thenReturn(countQuery);
+        Page<PageKey, DocumentSnapshot> expected =
+                new Page<>(mMockSnapshots, null, new PageKey(null, null));
+
+        Refresh<PageKey> refreshRequest = new Refresh<>(null, 2, true);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(refreshRequest).blockingGet();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testLoadInitial_placeholderCountsWithDocumentIdCursor() {
+        List<FieldPath> fields = Arrays.asList(FieldPath.of("score"), FieldPath.documentId());
+        FirestorePagingSource pagingSource =
+                new FirestorePagingSource(mMockQuery, Source.DEFAULT, fields, true);
+        List<DocumentSnapshot> snapshots = Arrays.asList(
+                mockCursorSnapshot("b", 2L), mockCursorSnapshot("c", 3L));
+        mockCount(10);
+        Query countBeforeQuery = mock(Query.class);
+        AggregateQuerySnapshot countBeforeSnapshot = mock(AggregateQuerySnapshot.class);
+        when(countBeforeSnapshot.getCount()).thenReturn(3L);
+        AggregateQuery countBeforeAggregate = mock(AggregateQuery.class);
+        when(countBeforeAggregate.get(AggregateSource.SERVER))
+                .thenReturn(Tasks.forResult(countBeforeSnapshot));
+        when(countBeforeQuery.count()).thenReturn(countBeforeAggregate);
+
+        // Document id cursor values must be strings, Firestore rejects references
+        when(mMockQuery.getFirestore()).thenReturn(mock(FirebaseFirestore.class));
+        when(mMockQuery.startAfter(1L, "a")).thenReturn(mMockQuery);
+        when(mMockQuery.endAt(1L, "a")).thenReturn(countBeforeQuery);
+        mockQuerySuccess(snapshots);
+
+        PageKey key = PageKey.fromCursors(PageCursor.of(mockCursorSnapshot("a", 1L), fields), null);
+        Refresh<PageKey> refreshRequest = new Refresh<>(key, 2, true);
+        Page<PageKey, DocumentSnapshot> actual =
+                (Page<PageKey, DocumentSnapshot>) pagingSource.loadSingle(refreshRequest)
+                        .blockingGet();
+
+        assertEquals(snapshots, actual.getData());
+        assertEquals(3, actual.getItemsBefore());
+        assertEquals(5, actual.getItemsAfter());
+    }
+
+    @Test
+    public void testLoadInitial_primedPageUnchanged_notReloaded() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(
+                mMockQuery, Source.DEFAULT, null, true, mockBundle());
+        List<DocumentSnapshot> cached = Arrays.asList(
+                mockDataSnapshot("a", 1), mockDataSnapshot("b", 2));
+        List<DocumentSnapshot> fresh = Arrays.asList(
+                mockDataSnapshot("a", 1), mockDataSnapshot("b", 2));
+        mockQuerySuccess(Source.CACHE, cached);
+        mockQuerySuccess(Source.DEFAULT, fresh);
+        Page<PageKey, DocumentSnapshot> expected =
+                new Page<>(cached, null, new PageKey(cached.get(1), null));
+
+        Refresh<PageKey> refreshRequest = new Refresh<>(null, 2, true);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(refreshRequest).blockingGet();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        // Counts alone must not reload a page that is already shown
+        assertEquals(expected, actual);
+        assertFalse(pagingSource.getInvalid());
+        verify(mMockQuery, never()).count();
+    }
+
+    @Test
+    public void testLoadInitial_primedPageChanged_reloaded() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(
+                mMockQuery, Source.DEFAULT, null, false, mockBundle());
+        List<DocumentSnapshot> cached = Arrays.asList(
+                mockDataSnapshot("a", 1), mockDataSnapshot("b", 2));
+        List<DocumentSnapshot> fresh = Arrays.asList(
+                mockDataSnapshot("a", 1), mockDataSnapshot("b", 3));
+        mockQuerySuccess(Source.CACHE, cached);
+        mockQuerySuccess(Source.DEFAULT, fresh);
+
+        Refresh<PageKey> refreshRequest = new Refresh<>(null, 2, false);
+        Page<PageKey, DocumentSnapshot> actual =
+                (Page<PageKey, DocumentSnapshot>) pagingSource.loadSingle(refreshRequest)
+                        .blockingGet();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(cached, actual.getData());
+        assertTrue(pagingSource.getInvalid());
+    }
+
+    @Test
+    public void testLoadInitial_primedPageNotCached_loadsFromSource() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(
+                mMockQuery, Source.DEFAULT, null, true, mockBundle());
+        mockQuerySuccess(Source.CACHE, Collections.<DocumentSnapshot>emptyList());
+        mockQuerySuccess(mMockSnapshots);
+        mockCount(10);
+        Page<PageKey, DocumentSnapshot> expected =
+                new Page<>(mMockSnapshots, null, new PageKey(mMockSnapshots.get(1), null), 0, 8);
+
+        Refresh<PageKey> refreshRequest = new Refresh<>(null, 2, true);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(refreshRequest).blockingGet();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(expected, actual);
+        assertFalse(pagingSource.getInvalid());
+    }
+
+    private FirestoreBundle mockBundle() {
+        LoadBundleTask loadTask = mock(LoadBundleTask.class);
+        when(loadTask.isComplete()).thenReturn(true);
+        when(loadTask.isSuccessful()).thenReturn(true);
+        FirebaseFirestore firestore = mock(FirebaseFirestore.class);
+        when(firestore.loadBundle(any(InputStream.class))).thenReturn(loadTask);
+        return FirestoreBundle.fromStream(firestore, new ByteArrayInputStream(new byte[0]));
+    }
+
+    private DocumentSnapshot mockDataSnapshot(String id, int value) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(id);
+        when(snapshot.getData())
+                .thenReturn(Collections.<String, Object>singletonMap("value", value));
+        return snapshot;
+    }
+
+    private DocumentSnapshot mockCursorSnapshot(String id, long score) {
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getPath()).thenReturn("items/" + id);
+
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(id);
+        when(snapshot.getReference()).thenReturn(reference);
+        when(snapshot.get(FieldPath.of("score"))).thenReturn(score);
+        return snapshot;
+    }
+
+    private void mockCount(long count) {
+        AggregateQuerySnapshot countSnapshot = mock(AggregateQuerySnapshot.class);
+        when(countSnapshot.getCount()).thenReturn(count);
+        AggregateQuery countQuery = mock(AggregateQuery.class);
+        when(countQuery.get(AggregateSource.SERVER)).thenReturn(Tasks.forResult(countSnapshot));
+        when(mMockQuery.count()).thenReturn(countQuery);
+    }
+
+    private PagingState<PageKey, DocumentSnapshot> getPagingState(int anchorPosition) {
+        List<DocumentSnapshot> data = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+            when(snapshot.getId()).thenReturn("doc" + i);
+            data.add(snapshot);
+        }
+        mMockSnapshots.clear();
+        mMockSnapshots.addAll(data);
+
+        Page<PageKey, DocumentSnapshot> page = new Page<>(data, null, null);
+        PagingConfig config = new PagingConfig(2, 1, false, 2);
+        return new PagingState<>(Collections.singletonList(page), anchorPosition, config, 0);
+    }
+
     private void initMockQuery() {
         when(mMockQuery.startAfter(any(DocumentSnapshot.class))).thenReturn(mMockQuery);
         when(mMockQuery.endBefore(any(DocumentSnapshot.class))).thenReturn(mMockQuery);
+        when(mMockQuery.endAt(any(DocumentSnapshot.class))).thenReturn(mMockQuery);
         when(mMockQuery.limit(anyLong())).thenReturn(mMockQuery);
+        when(mMockQuery.limitToLast(anyLong())).thenReturn(mMockQuery);
     }
 
     private void mockQuerySuccess(List<DocumentSnapshot> snapshots) {
+        mockQuerySuccess(Source.DEFAULT, snapshots);
+    }
+
+    private void mockQuerySuccess(Source source, List<DocumentSnapshot> snapshots) {
         QuerySnapshot mockSnapshot = mock(QuerySnapshot.class);
         when(mockSnapshot.getDocuments()).thenReturn(snapshots);
 
-        when(mMockQuery.get(Source.DEFAULT)).thenReturn(Tasks.forResult(mockSnapshot));
+        when(mMockQuery.get(source)).thenReturn(Tasks.forResult(mockSnapshot));
     }
 
     private void mockQueryFailure(Exception exception) {
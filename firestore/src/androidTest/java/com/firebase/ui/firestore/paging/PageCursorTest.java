@@ -0,0 +1,93 @@
+package com.firebase.ui.firestore.paging;
+
+import android.os.Parcel;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class PageCursorTest {
+
+    private static final FieldPath SCORE = FieldPath.of("score");
+    private static final FieldPath CREATED = FieldPath.of("created");
+    private static final FieldPath NAME = FieldPath.of("name");
+
+    @Test
+    public void testOf_readsOrderedValues() {
+        PageCursor cursor = PageCursor.of(mockSnapshot(), Arrays.asList(SCORE, NAME));
+
+        assertEquals("items/abc", cursor.getPath());
+        assertEquals("abc", cursor.getId());
+        assertArrayEquals(
+                new Object[]{42L, "Item"}, cursor.getValues(mock(FirebaseFirestore.class)));
+    }
+
+    @Test
+    public void testOf_documentIdIsString() {
+        PageCursor cursor = PageCursor.of(
+                mockSnapshot(), Arrays.asList(SCORE, FieldPath.documentId()));
+
+        assertArrayEquals(
+                new Object[]{42L, "abc"}, cursor.getValues(mock(FirebaseFirestore.class)));
+    }
+
+    @Test
+    public void testOf_collectionGroupDocumentIdIsPath() {
+        PageCursor cursor = PageCursor.of(
+                mockSnapshot(), Arrays.asList(SCORE, FieldPath.documentId()), true);
+
+        assertArrayEquals(
+                new Object[]{42L, "items/abc"}, cursor.getValues(mock(FirebaseFirestore.class)));
+    }
+
+    @Test
+    public void testParcel_roundTrip() {
+        List<FieldPath> fields = Arrays.asList(SCORE, CREATED, NAME, FieldPath.documentId());
+        PageCursor cursor = PageCursor.of(mockSnapshot(), fields);
+
+        Parcel parcel = Parcel.obtain();
+        cursor.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        PageCursor restored = PageCursor.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertEquals(cursor, restored);
+    }
+
+    @Test
+    public void testPageKey_equalsById() {
+        DocumentSnapshot snapshot = mockSnapshot();
+        PageCursor cursor = PageCursor.of(snapshot, Arrays.asList(SCORE, NAME));
+
+        assertEquals(new PageKey(snapshot, null), PageKey.fromCursors(cursor, null));
+    }
+
+    private DocumentSnapshot mockSnapshot() {
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getPath()).thenReturn("items/abc");
+
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn("abc");
+        when(snapshot.getReference()).thenReturn(reference);
+        when(snapshot.get(SCORE)).thenReturn(42L);
+        when(snapshot.get(CREATED)).thenReturn(new Timestamp(1000, 5));
+        when(snapshot.get(NAME)).thenReturn("Item");
+        return snapshot;
+    }
+}
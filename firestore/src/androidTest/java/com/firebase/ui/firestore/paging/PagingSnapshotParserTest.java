@@ -0,0 +1,94 @@
+package com.firebase.ui.firestore.paging;
+
+import com.firebase.ui.firestore.SnapshotParser;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class PagingSnapshotParserTest {
+
+    private int mParseCount;
+    private PagingSnapshotParser<String> mParser;
+
+    @Before
+    public void setUp() {
+        SnapshotParser<String> parser = snapshot -> {
+            mParseCount++;
+            return snapshot.getString("value");
+        };
+        mParser = new PagingSnapshotParser<>(parser);
+    }
+
+    @Test
+    public void testParseSnapshot_cachesSameSnapshot() {
+        DocumentSnapshot snapshot = mockSnapshot("items/a", "first");
+
+        String first = mParser.parseSnapshot(snapshot);
+        String second = mParser.parseSnapshot(snapshot);
+
+        assertSame(first, second);
+        assertEquals(1, mParseCount);
+    }
+
+    @Test
+    public void testParseSnapshot_reparsesNewSnapshotForSameId() {
+        DocumentSnapshot oldSnapshot = mockSnapshot("items/a", "first");
+        DocumentSnapshot newSnapshot = mockSnapshot("items/a", "second");
+
+        assertEquals("first", mParser.parseSnapshot(oldSnapshot));
+        assertEquals("second", mParser.parseSnapshot(newSnapshot));
+        assertEquals(2, mParseCount);
+
+        // The old snapshot is no longer cached
+        assertNull(mParser.getCached(oldSnapshot));
+        assertEquals("second", mParser.getCached(newSnapshot));
+    }
+
+    @Test
+    public void testFingerprint_comparesContent() {
+        DocumentSnapshot first = mockSnapshot("items/a", "first");
+        DocumentSnapshot same = mockSnapshot("items/a", "first");
+        DocumentSnapshot changed = mockSnapshot("items/a", "second");
+
+        assertEquals(mParser.getFingerprint(first), mParser.getFingerprint(same));
+        assertNotEquals(mParser.getFingerprint(first), mParser.getFingerprint(changed));
+    }
+
+    @Test
+    public void testDiffCallback_doesNotParse() {
+        DefaultSnapshotDiffCallback<String> callback = new DefaultSnapshotDiffCallback<>(mParser);
+        DocumentSnapshot first = mockSnapshot("items/a", "first");
+
+        assertTrue(callback.areContentsTheSame(first, mockSnapshot("items/a", "first")));
+        assertFalse(callback.areContentsTheSame(first, mockSnapshot("items/a", "second")));
+        assertEquals(0, mParseCount);
+    }
+
+    private static DocumentSnapshot mockSnapshot(String path, String value) {
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getPath()).thenReturn(path);
+
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.getReference()).thenReturn(reference);
+        when(snapshot.getString("value")).thenReturn(value);
+        when(snapshot.getData()).thenReturn(Collections.singletonMap("value", value));
+        return snapshot;
+    }
+}
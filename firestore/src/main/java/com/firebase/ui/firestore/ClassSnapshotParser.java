@@ -1,25 +1,39 @@
 package com.firebase.ui.firestore;
 
+import com.firebase.ui.common.GeneratedSnapshotParsers;
 import com.firebase.ui.common.Preconditions;
 import com.google.firebase.firestore.DocumentSnapshot;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * An implementation of {@link SnapshotParser} that converts {@link DocumentSnapshot} to
  * a class using {@link DocumentSnapshot#toObject(Class)}.
+ * <p>
+ * If the class is annotated with {@link com.firebase.ui.common.GenerateSnapshotParser} and the
+ * {@code firebase-ui-processor} annotation processor is used, the generated parser is used
+ * instead, which reads the document without reflection.
  */
 public class ClassSnapshotParser<T> implements SnapshotParser<T> {
 
+    /** Must match the suffix used by the annotation processor. */
+    private static final String GENERATED_PARSER_SUFFIX = "_FirestoreSnapshotParser";
+
     private final Class<T> mModelClass;
+    @Nullable private final SnapshotParser<T> mGeneratedParser;
 
     public ClassSnapshotParser(@NonNull Class<T> modelClass) {
         mModelClass = Preconditions.checkNotNull(modelClass);
+        mGeneratedParser = GeneratedSnapshotParsers.find(modelClass, GENERATED_PARSER_SUFFIX);
     }
 
     @NonNull
     @Override
     public T parseSnapshot(@NonNull DocumentSnapshot snapshot) {
+        if (mGeneratedParser != null) {
+            return mGeneratedParser.parseSnapshot(snapshot);
+        }
         return snapshot.toObject(mModelClass);
     }
 
@@ -1,6 +1,9 @@
 package com.firebase.ui.firestore;
 
 import com.firebase.ui.common.ChangeEventType;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.EventListener;
@@ -22,10 +25,17 @@ import androidx.annotation.Nullable;
  */
 public class FirestoreArray<T> extends ObservableSnapshotArray<T>
         implements EventListener<QuerySnapshot> {
-    private Query mQuery;
+    private final Task<Query> mQuery;
     private final MetadataChanges mMetadataChanges;
     private ListenerRegistration mRegistration;
 
+    private final OnCompleteListener<Query> mQueryListener = task -> {
+        // The array may have stopped or already started listening in the meantime
+        if (isListening() && mRegistration == null) {
+            listen(task);
+        }
+    };
+
     private final List<DocumentSnapshot> mSnapshots = new ArrayList<>();
 
     /**
@@ -46,6 +56,28 @@ public class FirestoreArray<T> extends ObservableSnapshotArray<T>
     public FirestoreArray(@NonNull Query query,
                           @NonNull MetadataChanges changes,
                           @NonNull SnapshotParser<T> parser) {
+        this(Tasks.forResult(query), changes, parser);
+    }
+
+    /**
+     * Create a new FirestoreArray for a query that is not available yet, such as a named query
+     * from a {@link FirestoreBundle}. The array starts listening once the query resolves.
+     *
+     * @param query  task resolving to the query to listen to.
+     * @param parser parser for DocumentSnapshots.
+     * @see ObservableSnapshotArray#ObservableSnapshotArray(SnapshotParser)
+     */
+    public FirestoreArray(@NonNull Task<Query> query, @NonNull SnapshotParser<T> parser) {
+        this(query, MetadataChanges.EXCLUDE, parser);
+    }
+
+    /**
+     * @param changes metadata options for the query listen.
+     * @see #FirestoreArray(Task, SnapshotParser)
+     */
+    public FirestoreArray(@NonNull Task<Query> query,
+                          @NonNull MetadataChanges changes,
+                          @NonNull SnapshotParser<T> parser) {
         super(parser);
         mQuery = query;
         mMetadataChanges = changes;
@@ -60,14 +92,40 @@ public class FirestoreArray<T> extends ObservableSnapshotArray<T>
     @Override
     protected void onCreate() {
         super.onCreate();
-        mRegistration = mQuery.addSnapshotListener(mMetadataChanges, this);
+        if (mQuery.isComplete()) {
+            listen(mQuery);
+        } else {
+            mQuery.addOnCompleteListener(mQueryListener);
+        }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        mRegistration.remove();
-        mRegistration = null;
+        if (mRegistration != null) {
+            mRegistration.remove();
+            mRegistration = null;
+        }
+    }
+
+    private void listen(@NonNull Task<Query> task) {
+        if (!task.isSuccessful()) {
+            Exception e = task.getException();
+            notifyOnError(e instanceof FirebaseFirestoreException
+                    ? (FirebaseFirestoreException) e
+                    : new FirebaseFirestoreException("Could not resolve query",
+                    FirebaseFirestoreException.Code.UNKNOWN, e));
+            return;
+        }
+
+        Query query = task.getResult();
+        if (query == null) {
+            notifyOnError(new FirebaseFirestoreException("Query not found",
+                    FirebaseFirestoreException.Code.NOT_FOUND));
+            return;
+        }
+
+        mRegistration = query.addSnapshotListener(mMetadataChanges, this);
     }
 
     @Override
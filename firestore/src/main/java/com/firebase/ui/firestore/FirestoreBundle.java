@@ -0,0 +1,117 @@
+package com.firebase.ui.firestore;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.LoadBundleTaskProgress;
+import com.google.firebase.firestore.Query;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A Firestore bundle that can be loaded into the local cache so that adapters can render data
+ * before any server round trip.
+ * <p>
+ * The bundle is loaded at most once per instance, the first time {@link #load()} is called. Pass
+ * it to {@link FirestoreRecyclerOptions.Builder#setBundle(FirestoreBundle)} or
+ * {@link com.firebase.ui.firestore.paging.FirestorePagingOptions.Builder#setBundle(FirestoreBundle)}
+ * to prime the adapter's query from it, or use {@link #getNamedQuery(String)} to read one of the
+ * bundle's named queries.
+ */
+public final class FirestoreBundle {
+
+    private final FirebaseFirestore mFirestore;
+    private final StreamProvider mStreamProvider;
+    private final boolean mCloseStream;
+
+    private Task<LoadBundleTaskProgress> mLoadTask;
+
+    private FirestoreBundle(@NonNull FirebaseFirestore firestore,
+                            @NonNull StreamProvider streamProvider,
+                            boolean closeStream) {
+        mFirestore = firestore;
+        mStreamProvider = streamProvider;
+        mCloseStream = closeStream;
+    }
+
+    /**
+     * Create a bundle backed by a file in the app's assets.
+     */
+    @NonNull
+    public static FirestoreBundle fromAsset(@NonNull Context context,
+                                            @NonNull FirebaseFirestore firestore,
+                                            @NonNull final String assetName) {
+        final AssetManager assets = context.getApplicationContext().getAssets();
+        return new FirestoreBundle(firestore, () -> assets.open(assetName), true);
+    }
+
+    /**
+     * Create a bundle backed by a stream. The stream is read once and is not closed.
+     */
+    @NonNull
+    public static FirestoreBundle fromStream(@NonNull FirebaseFirestore firestore,
+                                             @NonNull final InputStream stream) {
+        return new FirestoreBundle(firestore, () -> stream, false);
+    }
+
+    /**
+     * Load the bundle into the local cache, or return the pending or finished load if it was
+     * already started.
+     */
+    @NonNull
+    public synchronized Task<LoadBundleTaskProgress> load() {
+        if (mLoadTask != null) {
+            return mLoadTask;
+        }
+
+        final InputStream stream;
+        try {
+            stream = mStreamProvider.open();
+        } catch (IOException e) {
+            mLoadTask = Tasks.forException(e);
+            return mLoadTask;
+        }
+
+        mLoadTask = mFirestore.loadBundle(stream);
+        if (mCloseStream) {
+            mLoadTask.addOnCompleteListener(task -> {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                    // Nothing left to read
+                }
+            });
+        }
+        return mLoadTask;
+    }
+
+    /**
+     * Load the bundle (if needed) and read one of its named queries. The task resolves to null if
+     * the query could not be found.
+     */
+    @NonNull
+    public Task<Query> getNamedQuery(@NonNull final String name) {
+        // Named queries from an earlier load stay in the cache, so try even if this load failed
+        return load().continueWithTask(task -> mFirestore.getNamedQuery(name));
+    }
+
+    /**
+     * Returns a task that resolves to the given query once the bundle has been loaded. A failed
+     * load still resolves to the query so that it can be read from the server.
+     */
+    @NonNull
+    public Task<Query> prime(@NonNull final Query query) {
+        return load().continueWith(task -> query);
+    }
+
+    private interface StreamProvider {
+        @NonNull
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,227 @@
+package com.firebase.ui.firestore;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.ObjectsCompat;
+
+/**
+ * Exposes several Firestore queries as one observable list of objects. Use this when one logical
+ * list has to be split into several queries, for example because of the limits on
+ * {@code whereIn()} and {@code or()} disjunctions.
+ * <p>
+ * Documents matched by more than one query appear once. The combined list is kept ordered by the
+ * given comparator, which should match the {@code orderBy()} clauses of the queries; ties are
+ * broken by document path. Each child event is merged in place, so listeners get the same
+ * index-based events as with a {@link FirestoreArray}.
+ */
+public class FirestoreMergedArray<T> extends ObservableSnapshotArray<T> {
+    private final List<Query> mQueries;
+    private final MetadataChanges mMetadataChanges;
+    private final Comparator<DocumentSnapshot> mComparator;
+
+    private final List<DocumentSnapshot> mSnapshots = new ArrayList<>();
+    /** Document path to the snapshot currently in {@link #mSnapshots}. */
+    private final Map<String, DocumentSnapshot> mCurrent = new HashMap<>();
+    private final List<QueryListener> mListeners = new ArrayList<>();
+
+    /**
+     * Create a new FirestoreMergedArray.
+     *
+     * @param queries    queries to listen to.
+     * @param comparator order of the combined list.
+     * @param parser     parser for DocumentSnapshots.
+     * @see ObservableSnapshotArray#ObservableSnapshotArray(SnapshotParser)
+     */
+    public FirestoreMergedArray(@NonNull List<Query> queries,
+                                @NonNull Comparator<DocumentSnapshot> comparator,
+                                @NonNull SnapshotParser<T> parser) {
+        this(queries, MetadataChanges.EXCLUDE, comparator, parser);
+    }
+
+    /**
+     * @param changes metadata options for the query listens.
+     * @see #FirestoreMergedArray(List, Comparator, SnapshotParser)
+     */
+    public FirestoreMergedArray(@NonNull List<Query> queries,
+                                @NonNull MetadataChanges changes,
+                                @NonNull final Comparator<DocumentSnapshot> comparator,
+                                @NonNull SnapshotParser<T> parser) {
+        super(parser);
+        mQueries = new ArrayList<>(queries);
+        mMetadataChanges = changes;
+        mComparator = (a, b) -> {
+            int result = comparator.compare(a, b);
+            if (result != 0) {
+                return result;
+            }
+            return getPath(a).compareTo(getPath(b));
+        };
+    }
+
+    @NonNull
+    @Override
+    protected List<DocumentSnapshot> getSnapshots() {
+        return mSnapshots;
+    }
+
+    @Override
+    protected void onCreate() {
+        super.onCreate();
+        for (Query query : mQueries) {
+            QueryListener listener = new QueryListener();
+            listener.mRegistration = query.addSnapshotListener(mMetadataChanges, listener);
+            mListeners.add(listener);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        for (QueryListener listener : mListeners) {
+            listener.mRegistration.remove();
+        }
+        mListeners.clear();
+        mCurrent.clear();
+    }
+
+    private void onDocumentAdded(@NonNull DocumentSnapshot snapshot) {
+        DocumentSnapshot current = mCurrent.get(getPath(snapshot));
+        if (current == null) {
+            int index = getInsertionIndex(snapshot);
+            mSnapshots.add(index, snapshot);
+            mCurrent.put(getPath(snapshot), snapshot);
+            notifyOnChildChanged(ChangeEventType.ADDED, snapshot, index, -1);
+        } else {
+            // Another query already has this document, possibly with older data
+            onDocumentModified(snapshot);
+        }
+    }
+
+    private void onDocumentRemoved(@NonNull DocumentSnapshot snapshot) {
+        String path = getPath(snapshot);
+        for (QueryListener listener : mListeners) {
+            if (listener.mPaths.contains(path)) {
+                // Still matched by another query
+                return;
+            }
+        }
+
+        DocumentSnapshot current = mCurrent.remove(path);
+        if (current == null) {
+            return;
+        }
+
+        int index = getIndex(current);
+        mSnapshots.remove(index);
+        notifyOnChildChanged(ChangeEventType.REMOVED, current, -1, index);
+    }
+
+    private void onDocumentModified(@NonNull DocumentSnapshot snapshot) {
+        DocumentSnapshot current = mCurrent.get(getPath(snapshot));
+        if (current == null) {
+            onDocumentAdded(snapshot);
+            return;
+        }
+
+        int oldIndex = getIndex(current);
+        if (isSameSnapshot(current, snapshot)) {
+            // Each query matching the document reports the same change, only the first one is
+            // passed on. The order only depends on the data, so the index doesn't change.
+            mSnapshots.set(oldIndex, snapshot);
+            mCurrent.put(getPath(snapshot), snapshot);
+            return;
+        }
+
+        mSnapshots.remove(oldIndex);
+        int newIndex = getInsertionIndex(snapshot);
+        mSnapshots.add(newIndex, snapshot);
+        mCurrent.put(getPath(snapshot), snapshot);
+
+        if (oldIndex == newIndex) {
+            // Document modified only
+            notifyOnChildChanged(ChangeEventType.CHANGED, snapshot, newIndex, newIndex);
+        } else {
+            // Document moved and possibly also modified
+            notifyOnChildChanged(ChangeEventType.MOVED, snapshot, newIndex, oldIndex);
+            notifyOnChildChanged(ChangeEventType.CHANGED, snapshot, newIndex, newIndex);
+        }
+    }
+
+    private boolean isSameSnapshot(@NonNull DocumentSnapshot current,
+                                   @NonNull DocumentSnapshot snapshot) {
+        return ObjectsCompat.equals(current.getData(), snapshot.getData())
+                && (mMetadataChanges == MetadataChanges.EXCLUDE
+                || ObjectsCompat.equals(current.getMetadata(), snapshot.getMetadata()));
+    }
+
+    private int getIndex(@NonNull DocumentSnapshot snapshot) {
+        return Collections.binarySearch(mSnapshots, snapshot, mComparator);
+    }
+
+    private int getInsertionIndex(@NonNull DocumentSnapshot snapshot) {
+        int index = Collections.binarySearch(mSnapshots, snapshot, mComparator);
+        return index < 0 ? -(index + 1) : index;
+    }
+
+    @NonNull
+    private static String getPath(@NonNull DocumentSnapshot snapshot) {
+        return snapshot.getReference().getPath();
+    }
+
+    /**
+     * Listener for one of the merged queries, which tracks the documents that query matches.
+     */
+    private final class QueryListener implements EventListener<QuerySnapshot> {
+        private final Set<String> mPaths = new HashSet<>();
+        private ListenerRegistration mRegistration;
+
+        @Override
+        public void onEvent(@Nullable QuerySnapshot snapshots,
+                            @Nullable FirebaseFirestoreException e) {
+            if (e != null) {
+                notifyOnError(e);
+                return;
+            }
+
+            // Break down each document event
+            List<DocumentChange> changes = snapshots.getDocumentChanges(mMetadataChanges);
+            for (DocumentChange change : changes) {
+                DocumentSnapshot snapshot = change.getDocument();
+                switch (change.getType()) {
+                    case ADDED:
+                        mPaths.add(getPath(snapshot));
+                        onDocumentAdded(snapshot);
+                        break;
+                    case REMOVED:
+                        mPaths.remove(getPath(snapshot));
+                        onDocumentRemoved(snapshot);
+                        break;
+                    case MODIFIED:
+                        onDocumentModified(snapshot);
+                        break;
+                }
+            }
+
+            notifyOnDataChanged();
+        }
+    }
+}
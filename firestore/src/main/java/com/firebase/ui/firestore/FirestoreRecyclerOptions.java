@@ -57,6 +57,11 @@ public final class FirestoreRecyclerOptions<T> {
         private ObservableSnapshotArray<T> mSnapshots;
         private LifecycleOwner mOwner;
 
+        private Query mQuery;
+        private MetadataChanges mChanges;
+        private SnapshotParser<T> mParser;
+        private FirestoreBundle mBundle;
+
         /**
          * Directly set the {@link ObservableSnapshotArray}.
          * <p>
@@ -65,6 +70,7 @@ public final class FirestoreRecyclerOptions<T> {
         @NonNull
         public Builder<T> setSnapshotArray(@NonNull ObservableSnapshotArray<T> snapshots) {
             assertNull(mSnapshots, ERR_SNAPSHOTS_SET);
+            assertNull(mQuery, ERR_SNAPSHOTS_SET);
 
             mSnapshots = snapshots;
             return this;
@@ -109,8 +115,24 @@ public final class FirestoreRecyclerOptions<T> {
                                    @NonNull MetadataChanges changes,
                                    @NonNull SnapshotParser<T> parser) {
             assertNull(mSnapshots, ERR_SNAPSHOTS_SET);
+            assertNull(mQuery, ERR_SNAPSHOTS_SET);
 
-            mSnapshots = new FirestoreArray<>(query, changes, parser);
+            mQuery = query;
+            mChanges = changes;
+            mParser = parser;
+            return this;
+        }
+
+        /**
+         * Prime the query from a {@link FirestoreBundle}. The bundle is loaded into the local
+         * cache before the query starts listening, so the first results can be rendered from
+         * local data before any server round trip.
+         * <p>
+         * Only applies to queries set with {@code setQuery}.
+         */
+        @NonNull
+        public Builder<T> setBundle(@NonNull FirestoreBundle bundle) {
+            mBundle = bundle;
             return this;
         }
 
@@ -129,6 +151,12 @@ public final class FirestoreRecyclerOptions<T> {
          */
         @NonNull
         public FirestoreRecyclerOptions<T> build() {
+            if (mQuery != null) {
+                mSnapshots = mBundle == null
+                        ? new FirestoreArray<>(mQuery, mChanges, mParser)
+                        : new FirestoreArray<>(mBundle.prime(mQuery), mChanges, mParser);
+            }
+
             assertNonNull(mSnapshots, ERR_SNAPSHOTS_NULL);
 
             return new FirestoreRecyclerOptions<>(mSnapshots, mOwner);
@@ -11,6 +11,9 @@ import androidx.recyclerview.widget.DiffUtil;
 
 /**
  * Default diff callback implementation for Firestore snapshots.
+ * <p>
+ * With the parser built by the paging options, contents are compared by fingerprint, which is
+ * computed once per snapshot. Other parsers fall back to comparing the parsed models.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class DefaultSnapshotDiffCallback<T> extends DiffUtil.ItemCallback<DocumentSnapshot> {
@@ -31,6 +34,16 @@ public class DefaultSnapshotDiffCallback<T> extends DiffUtil.ItemCallback<Docume
     @Override
     public boolean areContentsTheSame(@NonNull DocumentSnapshot oldItem,
                                       @NonNull DocumentSnapshot newItem) {
+        if (oldItem == newItem) {
+            return true;
+        }
+
+        if (mParser instanceof PagingSnapshotParser) {
+            // Fingerprints are computed once per snapshot, no parsing needed
+            PagingSnapshotParser<T> parser = (PagingSnapshotParser<T>) mParser;
+            return parser.getFingerprint(oldItem) == parser.getFingerprint(newItem);
+        }
+
         T oldModel = mParser.parseSnapshot(oldItem);
         T newModel = mParser.parseSnapshot(newItem);
 
@@ -1,11 +1,17 @@
 package com.firebase.ui.firestore.paging;
 
 import com.firebase.ui.firestore.ClassSnapshotParser;
+import com.firebase.ui.firestore.FirestoreBundle;
 import com.firebase.ui.firestore.SnapshotParser;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.Source;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.LifecycleOwner;
@@ -16,7 +22,6 @@ import androidx.paging.PagingData;
 import androidx.paging.PagingLiveData;
 import androidx.paging.PagingSource;
 import androidx.recyclerview.widget.DiffUtil;
-import kotlin.jvm.functions.Function0;
 
 import static com.firebase.ui.common.Preconditions.assertNull;
 
@@ -75,6 +80,15 @@ public final class FirestorePagingOptions<T> {
         private LifecycleOwner mOwner;
         private DiffUtil.ItemCallback<DocumentSnapshot> mDiffCallback;
 
+        private Query mQuery;
+        private Source mSource;
+        private PagingConfig mConfig;
+        private List<FieldPath> mCursorFields;
+        private boolean mCollectionGroup;
+        private PageCursor mInitialCursor;
+        private boolean mPlaceholderCounts;
+        private FirestoreBundle mBundle;
+
         /**
          * Directly set data using and parse with a {@link ClassSnapshotParser} based on the given
          * class.
@@ -96,6 +110,7 @@ public final class FirestorePagingOptions<T> {
         public Builder<T> setPagingData(@NonNull LiveData<PagingData<DocumentSnapshot>> pagingData,
                                         @NonNull SnapshotParser<T> parser) {
             assertNull(mPagingData, ERR_DATA_SET);
+            assertNull(mQuery, ERR_DATA_SET);
 
             mPagingData = pagingData;
             mParser = parser;
@@ -158,17 +173,95 @@ public final class FirestorePagingOptions<T> {
                                    @NonNull PagingConfig config,
                                    @NonNull SnapshotParser<T> parser) {
             assertNull(mPagingData, ERR_DATA_SET);
+            assertNull(mQuery, ERR_DATA_SET);
 
+            mQuery = query;
+            mSource = source;
+            mConfig = config;
             mParser = parser;
+            return this;
+        }
 
-            final Pager<PageKey, DocumentSnapshot> pager = new Pager<>(config,
-                    () -> new FirestorePagingSource(query, source));
+        /**
+         * Sets the fields the query is ordered by, in the same order as its {@code orderBy()}
+         * clauses. When set, page keys hold compact {@link PageCursor}s with just these field
+         * values instead of whole {@link DocumentSnapshot}s, which keeps memory flat in deep
+         * paging sessions.
+         * <p>
+         * Add {@link FieldPath#documentId()} as the last field (and as the last {@code orderBy()}
+         * clause) if the other fields are not unique.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setCursorFields(@NonNull FieldPath... fields) {
+            mCursorFields = Arrays.asList(fields);
+            return this;
+        }
 
-            mPagingData = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
-                    mOwner.getLifecycle());
+        /**
+         * Sets the fields a collection group query is ordered by. Same as
+         * {@link #setCursorFields(FieldPath...)}, except that {@link FieldPath#documentId()}
+         * cursor values hold the document path, which collection group queries require.
+         * <p>
+         * An initial cursor must then be created with
+         * {@link PageCursor#of(DocumentSnapshot, List, boolean)} for a collection group.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setCollectionGroupCursorFields(@NonNull FieldPath... fields) {
+            mCursorFields = Arrays.asList(fields);
+            mCollectionGroup = true;
             return this;
         }
 
+        /**
+         * Sets an optional cursor to start paging from, for example one saved in
+         * {@code onSaveInstanceState()} to restore the scroll position after process death. The
+         * first page starts right after the cursor's document and earlier pages are loaded as
+         * the user scrolls up.
+         * <p>
+         * Requires {@link #setCursorFields(FieldPath...)}.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setInitialCursor(@Nullable PageCursor cursor) {
+            mInitialCursor = cursor;
+            return this;
+        }
+
+        /**
+         * Enables counting the query results with a {@code count()} aggregate query next to the
+         * first load, so that the adapter knows how many items come before and after the loaded
+         * pages. Combined with {@link PagingConfig#enablePlaceholders} this enables placeholders,
+         * fast scrolling and a stable scrollbar.
+         * <p>
+         * The count is cached until the data is invalidated. Aggregate queries always read from
+         * the server; if counting fails the pages load without placeholders.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setPlaceholderCountsEnabled(boolean enabled) {
+            mPlaceholderCounts = enabled;
+            return this;
+        }
+
+        /**
+         * Prime the first page from a {@link FirestoreBundle}. The bundle is loaded into the
+         * local cache and the first page is read from it, so it can be shown before any server
+         * round trip. The page is then checked against the server and reloaded if it changed.
+         * Placeholder counts are not reported for the primed page.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setBundle(@NonNull FirestoreBundle bundle) {
+            mBundle = bundle;
+            return this;
+        }
 
         /**
          * Sets an optional custom {@link DiffUtil.ItemCallback} to compare {@link DocumentSnapshot}
@@ -202,16 +295,49 @@ public final class FirestorePagingOptions<T> {
          */
         @NonNull
         public FirestorePagingOptions<T> build() {
-            if (mPagingData == null || mParser == null) {
+            if ((mPagingData == null && mQuery == null) || mParser == null) {
                 throw new IllegalStateException("Must call setQuery() or setPagingData()" +
                         " before calling build().");
             }
 
+            // Shared by the adapter and the diff callback
+            SnapshotParser<T> parser = new PagingSnapshotParser<>(mParser);
+
             if (mDiffCallback == null) {
-                mDiffCallback = new DefaultSnapshotDiffCallback<>(mParser);
+                mDiffCallback = new DefaultSnapshotDiffCallback<>(parser);
             }
 
-            return new FirestorePagingOptions<>(mPagingData, mParser, mDiffCallback, mOwner);
+            if (mQuery != null) {
+                mPagingData = buildPagingData();
+            }
+
+            return new FirestorePagingOptions<>(mPagingData, parser, mDiffCallback, mOwner);
+        }
+
+        @NonNull
+        private LiveData<PagingData<DocumentSnapshot>> buildPagingData() {
+            if (mInitialCursor != null && mCursorFields == null) {
+                throw new IllegalStateException("Must call setCursorFields() when using " +
+                        "setInitialCursor().");
+            }
+
+            final Query query = mQuery;
+            final Source source = mSource;
+            final List<FieldPath> cursorFields = mCursorFields;
+            final boolean collectionGroup = mCollectionGroup;
+            final boolean placeholderCounts = mPlaceholderCounts;
+            final FirestoreBundle bundle = mBundle;
+            // Only the very first load is primed, later ones must see server data
+            final AtomicBoolean primed = new AtomicBoolean(bundle == null);
+            PageKey initialKey = mInitialCursor == null
+                    ? null : PageKey.fromCursors(mInitialCursor, null);
+
+            final Pager<PageKey, DocumentSnapshot> pager = new Pager<>(mConfig, initialKey,
+                    () -> new FirestorePagingSource(query, source, cursorFields, placeholderCounts,
+                            primed.compareAndSet(false, true) ? bundle : null, collectionGroup));
+
+            return PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
+                    mOwner.getLifecycle());
         }
     }
 
@@ -1,8 +1,12 @@
 package com.firebase.ui.firestore.paging;
 
+import com.firebase.ui.firestore.FirestoreBundle;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.Source;
@@ -12,40 +16,148 @@ import java.util.concurrent.ExecutionException;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.util.ObjectsCompat;
 import androidx.paging.PagingState;
 import androidx.paging.rxjava3.RxPagingSource;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
+/**
+ * {@link RxPagingSource} for a Firestore {@link Query}.
+ * <p>
+ * Pages forward with {@code startAfter()}/{@code limit()} and backward with
+ * {@code endBefore()}/{@code limitToLast()}. Backward paging only happens after a refresh that was
+ * anchored in the middle of the list and requires the base query to have an {@code orderBy()}
+ * clause.
+ * <p>
+ * When cursor fields are given, page keys hold compact {@link PageCursor}s instead of whole
+ * snapshots.
+ * <p>
+ * When placeholder counts are enabled, the refresh load runs {@code count()} aggregate queries
+ * next to the page query so that the result reports the number of items before and after the
+ * page. The total count is cached for the life of this source, which ends on invalidation.
+ * <p>
+ * When a {@link FirestoreBundle} is given, the first refresh loads the bundle and reads the page
+ * from the local cache so it can be shown before any server round trip. The page is then checked
+ * against the configured {@link Source} and the source is invalidated only if it changed. A primed
+ * page has no placeholder counts, they are reported from the next refresh on.
+ */
 public class FirestorePagingSource extends RxPagingSource<PageKey, DocumentSnapshot> {
 
     private final Query mQuery;
     private final Source mSource;
+    private final List<FieldPath> mCursorFields;
+    private final boolean mCollectionGroup;
+    private final boolean mPlaceholderCounts;
+    private final FirestoreBundle mBundle;
+
+    private Task<AggregateQuerySnapshot> mCountTask;
 
     public FirestorePagingSource(@NonNull Query query, @NonNull Source source) {
+        this(query, source, null);
+    }
+
+    public FirestorePagingSource(@NonNull Query query,
+                                 @NonNull Source source,
+                                 @Nullable List<FieldPath> cursorFields) {
+        this(query, source, cursorFields, false);
+    }
+
+    /**
+     * @param cursorFields the fields the query is ordered by, used to build {@link PageCursor}s.
+     *                     If null, page keys hold the boundary snapshots.
+     * @param placeholderCounts whether to count the items before and after the refreshed page
+     *                          with aggregate queries.
+     */
+    public FirestorePagingSource(@NonNull Query query,
+                                 @NonNull Source source,
+                                 @Nullable List<FieldPath> cursorFields,
+                                 boolean placeholderCounts) {
+        this(query, source, cursorFields, placeholderCounts, null);
+    }
+
+    /**
+     * @param bundle bundle to prime the first page from, or null to always read from
+     *               {@code source}.
+     * @see #FirestorePagingSource(Query, Source, List, boolean)
+     */
+    public FirestorePagingSource(@NonNull Query query,
+                                 @NonNull Source source,
+                                 @Nullable List<FieldPath> cursorFields,
+                                 boolean placeholderCounts,
+                                 @Nullable FirestoreBundle bundle) {
+        this(query, source, cursorFields, placeholderCounts, bundle, false);
+    }
+
+    /**
+     * @param collectionGroup whether {@code query} is a collection group query, which changes how
+     *                        {@link FieldPath#documentId()} cursor fields are written.
+     * @see #FirestorePagingSource(Query, Source, List, boolean, FirestoreBundle)
+     */
+    public FirestorePagingSource(@NonNull Query query,
+                                 @NonNull Source source,
+                                 @Nullable List<FieldPath> cursorFields,
+                                 boolean placeholderCounts,
+                                 @Nullable FirestoreBundle bundle,
+                                 boolean collectionGroup) {
         mQuery = query;
         mSource = source;
+        mCursorFields = cursorFields;
+        mCollectionGroup = collectionGroup;
+        mPlaceholderCounts = placeholderCounts;
+        mBundle = bundle;
     }
 
     @NonNull
     @Override
     public Single<LoadResult<PageKey, DocumentSnapshot>> loadSingle(@NonNull LoadParams<PageKey> params) {
-        final Task<QuerySnapshot> task;
-        if (params.getKey() == null) {
-            task = mQuery.limit(params.getLoadSize()).get(mSource);
-        } else {
-            task = params.getKey().getPageQuery(mQuery, params.getLoadSize()).get(mSource);
-        }
-
         return Single.fromCallable(() -> {
             try {
+                if (mBundle != null
+                        && params instanceof LoadParams.Refresh && params.getKey() == null) {
+                    LoadResult<PageKey, DocumentSnapshot> primed = loadPrimedPage(params);
+                    if (primed != null) {
+                        return primed;
+                    }
+                }
+
+                Task<QuerySnapshot> task = getPageQuery(params).get(mSource);
+
+                // Start counting while the page loads
+                Task<AggregateQuerySnapshot> countTask = null;
+                Task<AggregateQuerySnapshot> countBeforeTask = null;
+                if (mPlaceholderCounts && params instanceof LoadParams.Refresh) {
+                    countTask = getCountTask();
+                    countBeforeTask = getCountBeforeTask(params.getKey());
+                }
+
                 Tasks.await(task);
-                QuerySnapshot snapshot = task.getResult();
-                PageKey nextPage = getNextPageKey(snapshot);
-                if (snapshot.getDocuments().isEmpty()) {
-                    return toLoadResult(snapshot.getDocuments(), null);
+                List<DocumentSnapshot> data = task.getResult().getDocuments();
+                if (data.isEmpty()) {
+                    return toLoadResult(data, null, null);
+                }
+
+                if (params instanceof LoadParams.Prepend) {
+                    return toLoadResult(data, getPrevPageKey(data, params.getLoadSize()), null);
+                } else if (params instanceof LoadParams.Append) {
+                    return toLoadResult(data, null, getNextPageKey(data));
+                } else {
+                    // A refresh from the top of the query has nothing before it
+                    PageKey prevPage = params.getKey() == null ? null : getPrevPageKey(data);
+                    if (countTask == null) {
+                        return toLoadResult(data, prevPage, getNextPageKey(data));
+                    }
+
+                    long count = awaitCount(countTask);
+                    long itemsBefore = params.getKey() == null ? 0 : awaitCount(countBeforeTask);
+                    if (count < 0 || itemsBefore < 0) {
+                        return toLoadResult(data, prevPage, getNextPageKey(data));
+                    }
+
+                    long itemsAfter = Math.max(0, count - itemsBefore - data.size());
+                    return toLoadResult(data, prevPage, getNextPageKey(data),
+                            (int) itemsBefore, (int) itemsAfter);
                 }
-                return toLoadResult(snapshot.getDocuments(), nextPage);
             } catch (ExecutionException e) {
                 if (e.getCause() instanceof Exception) {
                     // throw the original Exception
@@ -58,37 +170,191 @@ public class FirestorePagingSource extends RxPagingSource<PageKey, DocumentSnaps
         }).subscribeOn(Schedulers.io()).onErrorReturn(LoadResult.Error::new);
     }
 
+    @NonNull
+    private Query getPageQuery(@NonNull LoadParams<PageKey> params) {
+        if (params.getKey() == null) {
+            return mQuery.limit(params.getLoadSize());
+        } else {
+            return params.getKey().getPageQuery(mQuery, params.getLoadSize());
+        }
+    }
+
+    /**
+     * Reads the first page from the local cache after loading the bundle. Returns null if the
+     * bundle or the cache has nothing to show, in which case the page is loaded normally.
+     */
+    @Nullable
+    private LoadResult<PageKey, DocumentSnapshot> loadPrimedPage(
+            @NonNull LoadParams<PageKey> params) throws InterruptedException {
+        Query pageQuery = getPageQuery(params);
+        List<DocumentSnapshot> data;
+        try {
+            Tasks.await(mBundle.load());
+            data = Tasks.await(pageQuery.get(Source.CACHE)).getDocuments();
+        } catch (ExecutionException e) {
+            return null;
+        }
+
+        if (data.isEmpty()) {
+            return null;
+        }
+
+        if (mSource != Source.CACHE) {
+            pageQuery.get(mSource).addOnSuccessListener(snapshot -> {
+                // Reloading an unchanged page only for its counts would show it twice
+                if (!isSamePage(data, snapshot.getDocuments())) {
+                    invalidate();
+                }
+            });
+        }
+
+        return toLoadResult(data, null, getNextPageKey(data));
+    }
+
+    private static boolean isSamePage(@NonNull List<DocumentSnapshot> cached,
+                                      @NonNull List<DocumentSnapshot> fresh) {
+        if (cached.size() != fresh.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < cached.size(); i++) {
+            DocumentSnapshot a = cached.get(i);
+            DocumentSnapshot b = fresh.get(i);
+            if (!a.getId().equals(b.getId()) || !ObjectsCompat.equals(a.getData(), b.getData())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the cached total count, starting the aggregate query on first use. A failed count
+     * is dropped so that a retried refresh counts again.
+     */
+    @NonNull
+    private synchronized Task<AggregateQuerySnapshot> getCountTask() {
+        if (mCountTask == null || (mCountTask.isComplete() && !mCountTask.isSuccessful())) {
+            mCountTask = mQuery.count().get(AggregateSource.SERVER);
+        }
+        return mCountTask;
+    }
+
+    @Nullable
+    private Task<AggregateQuerySnapshot> getCountBeforeTask(@Nullable PageKey key) {
+        if (key == null) {
+            return null;
+        }
+
+        Query countBeforeQuery = key.getCountBeforeQuery(mQuery);
+        if (countBeforeQuery == null) {
+            return null;
+        }
+
+        return countBeforeQuery.count().get(AggregateSource.SERVER);
+    }
+
+    /**
+     * @return the count, or -1 if it could not be computed. Counts are best effort and must
+     * never fail the page load.
+     */
+    private long awaitCount(@Nullable Task<AggregateQuerySnapshot> task) {
+        if (task == null) {
+            return -1;
+        }
+
+        try {
+            return Tasks.await(task).getCount();
+        } catch (ExecutionException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
     private LoadResult<PageKey, DocumentSnapshot> toLoadResult(
             @NonNull List<DocumentSnapshot> snapshots,
+            @Nullable PageKey prevPage,
             @Nullable PageKey nextPage
     ) {
-        return new LoadResult.Page<>(
-                snapshots,
-                null, // Only paging forward.
+        return toLoadResult(snapshots,
+                prevPage,
                 nextPage,
                 LoadResult.Page.COUNT_UNDEFINED,
                 LoadResult.Page.COUNT_UNDEFINED);
     }
 
+    private LoadResult<PageKey, DocumentSnapshot> toLoadResult(
+            @NonNull List<DocumentSnapshot> snapshots,
+            @Nullable PageKey prevPage,
+            @Nullable PageKey nextPage,
+            int itemsBefore,
+            int itemsAfter
+    ) {
+        return new LoadResult.Page<>(
+                snapshots,
+                prevPage,
+                nextPage,
+                itemsBefore,
+                itemsAfter);
+    }
+
+    /**
+     * Returns a key that re-loads the window around the anchor position, so that refreshing deep
+     * into a list does not re-read the query from the top. Returns null (refresh from the top)
+     * when the anchor is within the first half of the initial load.
+     */
     @Nullable
     @Override
     public PageKey getRefreshKey(@NonNull PagingState<PageKey, DocumentSnapshot> state) {
-        return null;
-    }
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
 
-    @NonNull
-    private PageKey getNextPageKey(@NonNull QuerySnapshot snapshot) {
-        List<DocumentSnapshot> data = snapshot.getDocuments();
-        DocumentSnapshot last = getLast(data);
-        return new PageKey(last, null);
+        int startPosition = anchorPosition - state.getConfig().initialLoadSize / 2;
+        if (startPosition <= 0) {
+            return null;
+        }
+
+        DocumentSnapshot startAfter = state.closestItemToPosition(startPosition - 1);
+        if (startAfter == null) {
+            return null;
+        }
+
+        return createKey(startAfter, null);
     }
 
     @Nullable
-    private DocumentSnapshot getLast(@NonNull List<DocumentSnapshot> data) {
-        if (data.isEmpty()) {
+    private PageKey getPrevPageKey(@NonNull List<DocumentSnapshot> data, int loadSize) {
+        // A short page means we reached the start of the query
+        if (data.size() < loadSize) {
             return null;
-        } else {
-            return data.get(data.size() - 1);
         }
+        return getPrevPageKey(data);
+    }
+
+    @NonNull
+    private PageKey getPrevPageKey(@NonNull List<DocumentSnapshot> data) {
+        return createKey(null, data.get(0));
+    }
+
+    @NonNull
+    private PageKey getNextPageKey(@NonNull List<DocumentSnapshot> data) {
+        return createKey(data.get(data.size() - 1), null);
+    }
+
+    @NonNull
+    private PageKey createKey(@Nullable DocumentSnapshot startAfter,
+                              @Nullable DocumentSnapshot endBefore) {
+        if (mCursorFields == null) {
+            return new PageKey(startAfter, endBefore);
+        }
+
+        return PageKey.fromCursors(
+                startAfter == null
+                        ? null : PageCursor.of(startAfter, mCursorFields, mCollectionGroup),
+                endBefore == null
+                        ? null : PageCursor.of(endBefore, mCursorFields, mCollectionGroup));
     }
 }
@@ -0,0 +1,271 @@
+package com.firebase.ui.firestore.paging;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.GeoPoint;
+
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Compact pagination cursor for a Firestore query. Holds only the path of a document and the
+ * values of the fields the query is ordered by, instead of the whole {@link DocumentSnapshot}.
+ * <p>
+ * The cursor fields must match the {@code orderBy()} clauses of the query, in the same order. Use
+ * {@link FieldPath#documentId()} as the last field to break ties between equal values. Its value is
+ * the document id, or the document path for collection group queries, as Firestore expects.
+ * <p>
+ * Cursors are {@link Parcelable} so they can be saved to a {@link android.os.Bundle} and used to
+ * restore the scroll position after process death.
+ */
+public final class PageCursor implements Parcelable {
+    public static final Creator<PageCursor> CREATOR = new Creator<PageCursor>() {
+        @Override
+        public PageCursor createFromParcel(Parcel in) {
+            String path = in.readString();
+            int[] types = in.createIntArray();
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                values[i] = readValue(in, types[i]);
+            }
+            return new PageCursor(path, types, values);
+        }
+
+        @Override
+        public PageCursor[] newArray(int size) {
+            return new PageCursor[size];
+        }
+    };
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_BOOLEAN = 1;
+    private static final int TYPE_LONG = 2;
+    private static final int TYPE_DOUBLE = 3;
+    private static final int TYPE_STRING = 4;
+    private static final int TYPE_TIMESTAMP = 5;
+    private static final int TYPE_BLOB = 6;
+    private static final int TYPE_GEO_POINT = 7;
+    private static final int TYPE_REFERENCE = 8;
+
+    private final String mPath;
+    private final int[] mTypes;
+    private final Object[] mValues;
+
+    private PageCursor(@NonNull String path, @NonNull int[] types, @NonNull Object[] values) {
+        mPath = path;
+        mTypes = types;
+        mValues = values;
+    }
+
+    /**
+     * Create a cursor for the given snapshot of a collection query.
+     *
+     * @see #of(DocumentSnapshot, List, boolean)
+     */
+    @NonNull
+    public static PageCursor of(@NonNull DocumentSnapshot snapshot,
+                                @NonNull List<FieldPath> fields) {
+        return of(snapshot, fields, false);
+    }
+
+    /**
+     * Create a cursor for the given snapshot.
+     *
+     * @param snapshot        the document the cursor points to.
+     * @param fields          the fields the query is ordered by, in order.
+     * @param collectionGroup whether the query is a collection group query, which takes the
+     *                        document path instead of its id as the value of
+     *                        {@link FieldPath#documentId()}.
+     * @throws IllegalArgumentException if one of the field values is a list or a map, which can't
+     *                                  be used as a cursor.
+     */
+    @NonNull
+    public static PageCursor of(@NonNull DocumentSnapshot snapshot,
+                                @NonNull List<FieldPath> fields,
+                                boolean collectionGroup) {
+        int[] types = new int[fields.size()];
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            FieldPath field = fields.get(i);
+            Object value;
+            if (field.equals(FieldPath.documentId())) {
+                // Firestore only accepts a string for document id cursors
+                value = collectionGroup ? snapshot.getReference().getPath() : snapshot.getId();
+            } else {
+                value = snapshot.get(field);
+            }
+
+            types[i] = getType(value);
+            values[i] = value instanceof DocumentReference
+                    ? ((DocumentReference) value).getPath() : value;
+        }
+        return new PageCursor(snapshot.getReference().getPath(), types, values);
+    }
+
+    /**
+     * @return the path of the document this cursor points to.
+     */
+    @NonNull
+    public String getPath() {
+        return mPath;
+    }
+
+    /**
+     * @return the id of the document this cursor points to.
+     */
+    @NonNull
+    public String getId() {
+        return mPath.substring(mPath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return the ordered field values, suitable for {@code startAfter()} and {@code endBefore()}.
+     */
+    @NonNull
+    public Object[] getValues(@NonNull FirebaseFirestore firestore) {
+        Object[] values = new Object[mValues.length];
+        for (int i = 0; i < mValues.length; i++) {
+            if (mTypes[i] == TYPE_REFERENCE) {
+                values[i] = firestore.document((String) mValues[i]);
+            } else {
+                values[i] = mValues[i];
+            }
+        }
+        return values;
+    }
+
+    private static int getType(@Nullable Object value) {
+        if (value == null) {
+            return TYPE_NULL;
+        } else if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        } else if (value instanceof Long) {
+            return TYPE_LONG;
+        } else if (value instanceof Double) {
+            return TYPE_DOUBLE;
+        } else if (value instanceof String) {
+            return TYPE_STRING;
+        } else if (value instanceof Timestamp) {
+            return TYPE_TIMESTAMP;
+        } else if (value instanceof Blob) {
+            return TYPE_BLOB;
+        } else if (value instanceof GeoPoint) {
+            return TYPE_GEO_POINT;
+        } else if (value instanceof DocumentReference) {
+            return TYPE_REFERENCE;
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported cursor value type: " + value.getClass().getName());
+        }
+    }
+
+    @Nullable
+    private static Object readValue(@NonNull Parcel in, int type) {
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BOOLEAN:
+                return in.readInt() != 0;
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_STRING:
+            case TYPE_REFERENCE:
+                return in.readString();
+            case TYPE_TIMESTAMP:
+                return new Timestamp(in.readLong(), in.readInt());
+            case TYPE_BLOB:
+                return Blob.fromBytes(in.createByteArray());
+            case TYPE_GEO_POINT:
+                return new GeoPoint(in.readDouble(), in.readDouble());
+            default:
+                throw new IllegalStateException("Unknown cursor value type: " + type);
+        }
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(mPath);
+        dest.writeIntArray(mTypes);
+        for (int i = 0; i < mValues.length; i++) {
+            Object value = mValues[i];
+            switch (mTypes[i]) {
+                case TYPE_NULL:
+                    break;
+                case TYPE_BOOLEAN:
+                    dest.writeInt((Boolean) value ? 1 : 0);
+                    break;
+                case TYPE_LONG:
+                    dest.writeLong((Long) value);
+                    break;
+                case TYPE_DOUBLE:
+                    dest.writeDouble((Double) value);
+                    break;
+                case TYPE_STRING:
+                case TYPE_REFERENCE:
+                    dest.writeString((String) value);
+                    break;
+                case TYPE_TIMESTAMP:
+                    Timestamp timestamp = (Timestamp) value;
+                    dest.writeLong(timestamp.getSeconds());
+                    dest.writeInt(timestamp.getNanoseconds());
+                    break;
+                case TYPE_BLOB:
+                    dest.writeByteArray(((Blob) value).toBytes());
+                    break;
+                case TYPE_GEO_POINT:
+                    GeoPoint point = (GeoPoint) value;
+                    dest.writeDouble(point.getLatitude());
+                    dest.writeDouble(point.getLongitude());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown cursor value type: " + mTypes[i]);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PageCursor cursor = (PageCursor) o;
+
+        return mPath.equals(cursor.mPath)
+                && Arrays.equals(mTypes, cursor.mTypes)
+                && Arrays.equals(mValues, cursor.mValues);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mPath.hashCode();
+        result = 31 * result + Arrays.hashCode(mTypes);
+        result = 31 * result + Arrays.hashCode(mValues);
+        return result;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "PageCursor{" +
+                "mPath='" + mPath + '\'' +
+                ", mValues=" + Arrays.toString(mValues) +
+                '}';
+    }
+}
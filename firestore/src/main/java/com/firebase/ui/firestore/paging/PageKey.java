@@ -6,9 +6,15 @@ import com.google.firebase.firestore.Query;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.core.util.ObjectsCompat;
 
 /**
- * Key for Firestore pagination. Holds the DocumentSnapshot(s) that bound the page.
+ * Key for Firestore pagination. Holds the DocumentSnapshot(s) or {@link PageCursor}(s) that bound
+ * the page.
+ * <p>
+ * A key with only a {@code startAfter} bound loads the page after that document, a key with only
+ * an {@code endBefore} bound loads the page before that document and a key with both bounds loads
+ * everything in between.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class PageKey {
@@ -16,9 +22,30 @@ public class PageKey {
     private final DocumentSnapshot mStartAfter;
     private final DocumentSnapshot mEndBefore;
 
+    private final PageCursor mStartAfterCursor;
+    private final PageCursor mEndBeforeCursor;
+
     public PageKey(@Nullable DocumentSnapshot startAfter, @Nullable DocumentSnapshot endBefore) {
+        this(startAfter, endBefore, null, null);
+    }
+
+    private PageKey(@Nullable DocumentSnapshot startAfter,
+                    @Nullable DocumentSnapshot endBefore,
+                    @Nullable PageCursor startAfterCursor,
+                    @Nullable PageCursor endBeforeCursor) {
         mStartAfter = startAfter;
         mEndBefore = endBefore;
+        mStartAfterCursor = startAfterCursor;
+        mEndBeforeCursor = endBeforeCursor;
+    }
+
+    /**
+     * Create a key bounded by compact {@link PageCursor}s instead of whole snapshots.
+     */
+    @NonNull
+    public static PageKey fromCursors(@Nullable PageCursor startAfter,
+                                      @Nullable PageCursor endBefore) {
+        return new PageKey(null, null, startAfter, endBefore);
     }
 
     @NonNull
@@ -27,37 +54,92 @@ public class PageKey {
 
         if (mStartAfter != null) {
             pageQuery = pageQuery.startAfter(mStartAfter);
+        } else if (mStartAfterCursor != null) {
+            pageQuery = pageQuery.startAfter(
+                    mStartAfterCursor.getValues(baseQuery.getFirestore()));
         }
 
         if (mEndBefore != null) {
             pageQuery = pageQuery.endBefore(mEndBefore);
-        } else {
+        } else if (mEndBeforeCursor != null) {
+            pageQuery = pageQuery.endBefore(mEndBeforeCursor.getValues(baseQuery.getFirestore()));
+        }
+
+        if (!hasEndBefore()) {
             pageQuery = pageQuery.limit(size);
+        } else if (!hasStartAfter()) {
+            // Paging backwards: take the last page that ends before the bound
+            pageQuery = pageQuery.limitToLast(size);
         }
 
         return pageQuery;
     }
 
+    /**
+     * Returns a query for the documents up to and including the {@code startAfter} bound, which
+     * can be counted to find the number of items before this page. Returns null if this key
+     * has no {@code startAfter} bound.
+     */
+    @Nullable
+    public Query getCountBeforeQuery(@NonNull Query baseQuery) {
+        if (mStartAfter != null) {
+            return baseQuery.endAt(mStartAfter);
+        } else if (mStartAfterCursor != null) {
+            return baseQuery.endAt(mStartAfterCursor.getValues(baseQuery.getFirestore()));
+        } else {
+            return null;
+        }
+    }
+
+    private boolean hasStartAfter() {
+        return mStartAfter != null || mStartAfterCursor != null;
+    }
+
+    private boolean hasEndBefore() {
+        return mEndBefore != null || mEndBeforeCursor != null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         PageKey key = (PageKey) o;
-        if (mStartAfter == null && key.mStartAfter == null &&
-                mEndBefore == null && key.mEndBefore == null)
-            return true;
-        return mStartAfter.getId().equals(key.mStartAfter.getId()) &&
-                mEndBefore.getId().equals(key.mEndBefore.getId());
+        return ObjectsCompat.equals(getStartAfterId(), key.getStartAfterId()) &&
+                ObjectsCompat.equals(getEndBeforeId(), key.getEndBeforeId());
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectsCompat.hash(getStartAfterId(), getEndBeforeId());
     }
 
     @Override
     @NonNull
     public String toString() {
-        String startAfter = mStartAfter == null ? null : mStartAfter.getId();
-        String endBefore = mEndBefore == null ? null : mEndBefore.getId();
         return "PageKey{" +
-                "StartAfter=" + startAfter +
-                ", EndBefore=" + endBefore +
+                "StartAfter=" + getStartAfterId() +
+                ", EndBefore=" + getEndBeforeId() +
                 '}';
     }
+
+    @Nullable
+    private String getStartAfterId() {
+        return getId(mStartAfter, mStartAfterCursor);
+    }
+
+    @Nullable
+    private String getEndBeforeId() {
+        return getId(mEndBefore, mEndBeforeCursor);
+    }
+
+    @Nullable
+    private static String getId(@Nullable DocumentSnapshot snapshot, @Nullable PageCursor cursor) {
+        if (snapshot != null) {
+            return snapshot.getId();
+        } else if (cursor != null) {
+            return cursor.getId();
+        } else {
+            return null;
+        }
+    }
 }
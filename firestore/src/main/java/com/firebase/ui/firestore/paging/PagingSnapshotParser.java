@@ -0,0 +1,33 @@
+package com.firebase.ui.firestore.paging;
+
+import com.firebase.ui.common.BaseKeyedCachingSnapshotParser;
+import com.firebase.ui.common.BaseSnapshotParser;
+import com.firebase.ui.common.ContentFingerprint;
+import com.firebase.ui.firestore.SnapshotParser;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Caches the models parsed for {@link FirestorePagingAdapter}, so scrolling back to an item
+ * does not parse its document again.
+ */
+class PagingSnapshotParser<T> extends BaseKeyedCachingSnapshotParser<DocumentSnapshot, T>
+        implements SnapshotParser<T> {
+
+    PagingSnapshotParser(@NonNull BaseSnapshotParser<DocumentSnapshot, T> parser) {
+        super(parser);
+    }
+
+    @NonNull
+    @Override
+    public String getId(@NonNull DocumentSnapshot snapshot) {
+        // Ids are not unique across collection group queries
+        return snapshot.getReference().getPath();
+    }
+
+    @Override
+    protected long computeFingerprint(@NonNull DocumentSnapshot snapshot) {
+        return ContentFingerprint.of(snapshot.getData());
+    }
+}
@@ -0,0 +1,15 @@
+plugins {
+    id("java-library")
+    id("com.vanniktech.maven.publish")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(Config.Libs.Test.junit)
+    testImplementation(Config.Libs.Test.truth)
+    testImplementation(Config.Libs.Test.compileTesting)
+}
@@ -0,0 +1,363 @@
+package com.firebase.ui.processor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Collects the properties of a model class the way the SDKs' {@code CustomClassMapper} does when
+ * deserializing: public fields and public setters, named after the field or setter unless
+ * annotated with {@code @PropertyName}, skipping {@code @Exclude}d members.
+ */
+final class ModelAnalyzer {
+
+    private static final String DOCUMENT_ID = "com.google.firebase.firestore.DocumentId";
+
+    private final Elements mElements;
+    private final Types mTypes;
+    private final ParserTarget mTarget;
+
+    ModelAnalyzer(ProcessingEnvironment env, ParserTarget target) {
+        mElements = env.getElementUtils();
+        mTypes = env.getTypeUtils();
+        mTarget = target;
+    }
+
+    List<ModelProperty> getProperties(TypeElement model) throws UnsupportedModelException {
+        checkInstantiable(model);
+
+        DeclaredType modelType = (DeclaredType) model.asType();
+        List<? extends Element> members = mElements.getAllMembers(model);
+        Set<String> documentIds = getDocumentIdProperties(members);
+        Map<String, ModelProperty> properties = new LinkedHashMap<>();
+
+        for (VariableElement field : ElementFilter.fieldsIn(members)) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC)
+                    || modifiers.contains(Modifier.STATIC)
+                    || modifiers.contains(Modifier.FINAL)
+                    || modifiers.contains(Modifier.TRANSIENT)
+                    || hasAnnotation(field, mTarget.getExcludeAnnotation())) {
+                continue;
+            }
+
+            String fieldName = field.getSimpleName().toString();
+            TypeMirror type = mTypes.asMemberOf(modelType, field);
+            String name = getPropertyName(field, fieldName);
+            properties.put(name, createProperty(
+                    name, fieldName, false, type, documentIds.contains(name)));
+        }
+
+        // Setters take precedence over fields of the same name
+        Set<String> setterNames = new HashSet<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+            String methodName = method.getSimpleName().toString();
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC)
+                    || modifiers.contains(Modifier.STATIC)
+                    || !methodName.startsWith("set")
+                    || methodName.length() == 3
+                    || method.getParameters().size() != 1
+                    || hasAnnotation(method, mTarget.getExcludeAnnotation())) {
+                continue;
+            }
+
+            String name = getPropertyName(method, getSerializedName(methodName.substring(3)));
+            if (!setterNames.add(name)) {
+                throw new UnsupportedModelException("conflicting setters for " + name);
+            }
+
+            ExecutableType type = (ExecutableType) mTypes.asMemberOf(modelType, method);
+            properties.put(name, createProperty(name, methodName, true,
+                    type.getParameterTypes().get(0), documentIds.contains(name)));
+        }
+
+        checkNoPrivateProperties(members, documentIds, properties.keySet());
+        return new ArrayList<>(properties.values());
+    }
+
+    /**
+     * {@code @DocumentId} may be on the field, getter or setter of a property.
+     */
+    private Set<String> getDocumentIdProperties(List<? extends Element> members) {
+        Set<String> names = new HashSet<>();
+        if (mTarget != ParserTarget.FIRESTORE) {
+            return names;
+        }
+
+        for (Element member : members) {
+            if (!hasAnnotation(member, DOCUMENT_ID)) {
+                continue;
+            }
+
+            String memberName = member.getSimpleName().toString();
+            if (member.getKind() == ElementKind.FIELD) {
+                names.add(getPropertyName(member, memberName));
+            } else if (member.getKind() == ElementKind.METHOD
+                    && stripPrefix(memberName) != null) {
+                names.add(getPropertyName(member, getSerializedName(stripPrefix(memberName))));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * CustomClassMapper also fills private fields backing a public getter, which generated code
+     * cannot do. Refuse such models rather than silently leaving those properties unset.
+     */
+    private void checkNoPrivateProperties(List<? extends Element> members,
+                                          Set<String> documentIds,
+                                          Set<String> settable) throws UnsupportedModelException {
+        Set<String> getters = new HashSet<>(documentIds);
+        for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+            String methodName = method.getSimpleName().toString();
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.PUBLIC)
+                    && !modifiers.contains(Modifier.STATIC)
+                    && method.getParameters().isEmpty()
+                    && !methodName.equals("getClass")
+                    && stripPrefix(methodName) != null
+                    && !methodName.startsWith("set")
+                    && !hasAnnotation(method, mTarget.getExcludeAnnotation())) {
+                getters.add(getPropertyName(method, getSerializedName(stripPrefix(methodName))));
+            }
+        }
+
+        for (VariableElement field : ElementFilter.fieldsIn(members)) {
+            String name = getPropertyName(field, field.getSimpleName().toString());
+            if (!field.getModifiers().contains(Modifier.STATIC)
+                    && getters.contains(name)
+                    && !settable.contains(name)) {
+                throw new UnsupportedModelException(
+                        "property " + name + " has no public setter or field");
+            }
+        }
+    }
+
+    /**
+     * @return the accessor name without its get, set or is prefix, or null if it has none.
+     */
+    private static String stripPrefix(String methodName) {
+        for (String prefix : new String[]{"get", "set", "is"}) {
+            if (methodName.startsWith(prefix) && methodName.length() > prefix.length()) {
+                return methodName.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    private void checkInstantiable(TypeElement model) throws UnsupportedModelException {
+        if (model.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new UnsupportedModelException("the class is abstract");
+        }
+        if (!model.getTypeParameters().isEmpty()) {
+            throw new UnsupportedModelException("the class is generic");
+        }
+
+        for (Element e = model; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement type = (TypeElement) e;
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new UnsupportedModelException(type + " is private");
+            }
+            if (type.getNestingKind() == NestingKind.MEMBER
+                    && !type.getModifiers().contains(Modifier.STATIC)) {
+                throw new UnsupportedModelException(type + " is an inner class");
+            }
+            if (type.getNestingKind() == NestingKind.LOCAL
+                    || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                throw new UnsupportedModelException("the class is local");
+            }
+        }
+
+        for (ExecutableElement constructor :
+                ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return;
+            }
+        }
+        throw new UnsupportedModelException("the class has no non-private no-argument constructor");
+    }
+
+    private ModelProperty createProperty(String name,
+                                         String memberName,
+                                         boolean isSetter,
+                                         TypeMirror type,
+                                         boolean isDocumentId) throws UnsupportedModelException {
+        if (isDocumentId) {
+            switch (type.toString()) {
+                case "java.lang.String":
+                    return new ModelProperty(
+                            name, memberName, isSetter, "snapshot.getId()", true, false);
+                case "com.google.firebase.firestore.DocumentReference":
+                    return new ModelProperty(
+                            name, memberName, isSetter, "snapshot.getReference()", true, false);
+                default:
+                    throw new UnsupportedModelException(
+                            "@DocumentId must be a String or DocumentReference: " + memberName);
+            }
+        }
+
+        return new ModelProperty(name, memberName, isSetter, getConversion(type, memberName),
+                false, type.getKind().isPrimitive());
+    }
+
+    /**
+     * @return an expression converting the raw snapshot value, with {@code %s} for the value.
+     */
+    private String getConversion(TypeMirror type,
+                                 String memberName) throws UnsupportedModelException {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "(java.lang.Boolean) %s";
+            case INT:
+                return "((java.lang.Number) %s).intValue()";
+            case LONG:
+                return "((java.lang.Number) %s).longValue()";
+            case DOUBLE:
+                return "((java.lang.Number) %s).doubleValue()";
+            case FLOAT:
+                return "((java.lang.Number) %s).floatValue()";
+            case DECLARED:
+                break;
+            default:
+                throw unsupportedType(type, memberName);
+        }
+
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String name = element.getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.Object":
+                return "%s";
+            case "java.lang.String":
+            case "java.lang.Boolean":
+                return "(" + name + ") %s";
+            case "java.lang.Integer":
+                return "((java.lang.Number) %s).intValue()";
+            case "java.lang.Long":
+                return "((java.lang.Number) %s).longValue()";
+            case "java.lang.Double":
+                return "((java.lang.Number) %s).doubleValue()";
+            case "java.lang.Float":
+                return "((java.lang.Number) %s).floatValue()";
+            case "java.util.List":
+            case "java.util.Map":
+                checkCollection((DeclaredType) type, memberName);
+                return "(" + type + ") %s";
+            default:
+                // Continue below
+        }
+
+        if (element.getKind() == ElementKind.ENUM) {
+            for (VariableElement constant : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+                if (hasAnnotation(constant, mTarget.getPropertyNameAnnotation())) {
+                    throw new UnsupportedModelException(
+                            "enum constants with @PropertyName: " + memberName);
+                }
+            }
+            return name + ".valueOf((java.lang.String) %s)";
+        }
+
+        String conversion = mTarget.mConversions.get(name);
+        if (conversion == null) {
+            throw unsupportedType(type, memberName);
+        }
+        return conversion;
+    }
+
+    /**
+     * The SDKs return lists and maps of raw values, so only collections whose elements need no
+     * conversion can be cast directly.
+     */
+    private void checkCollection(DeclaredType type,
+                                 String memberName) throws UnsupportedModelException {
+        List<? extends TypeMirror> arguments = type.getTypeArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            TypeMirror argument = arguments.get(i);
+            boolean isMapKey = arguments.size() == 2 && i == 0;
+            if (isMapKey ? !argument.toString().equals("java.lang.String")
+                    : !isRawElementType(argument)) {
+                throw unsupportedType(type, memberName);
+            }
+        }
+    }
+
+    private static boolean isRawElementType(TypeMirror type) {
+        if (type.getKind() == TypeKind.WILDCARD) {
+            return ((WildcardType) type).getExtendsBound() == null
+                    && ((WildcardType) type).getSuperBound() == null;
+        }
+
+        String name = type.toString();
+        return name.equals("java.lang.Object")
+                || name.equals("java.lang.String")
+                || name.equals("java.lang.Boolean");
+    }
+
+    private String getPropertyName(Element member, String defaultName) {
+        AnnotationMirror annotation = getAnnotation(member, mTarget.getPropertyNameAnnotation());
+        if (annotation == null) {
+            return defaultName;
+        }
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return (String) entry.getValue().getValue();
+            }
+        }
+        return defaultName;
+    }
+
+    /**
+     * Mirrors CustomClassMapper, which lowercases the leading run of capitals of a setter name so
+     * {@code setURL} maps to {@code url} and {@code setName} to {@code name}.
+     */
+    private static String getSerializedName(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length && Character.isUpperCase(chars[i]); i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static boolean hasAnnotation(Element element, String annotation) {
+        return getAnnotation(element, annotation) != null;
+    }
+
+    private static AnnotationMirror getAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static UnsupportedModelException unsupportedType(TypeMirror type, String memberName) {
+        return new UnsupportedModelException("unsupported type " + type + " for " + memberName);
+    }
+}
@@ -0,0 +1,44 @@
+package com.firebase.ui.processor;
+
+/**
+ * A property of a model class and how the generated parser assigns it.
+ */
+final class ModelProperty {
+    /** The key of the property in the snapshot. */
+    final String mName;
+    /** The field or setter to assign. */
+    final String mMemberName;
+    final boolean mIsSetter;
+    /**
+     * Expression converting the raw value, with {@code %s} for the value. For document ids, the
+     * expression reading the id from the snapshot.
+     */
+    final String mConversion;
+    /** True if the property is filled with the document id instead of a field. */
+    final boolean mIsDocumentId;
+    /** True if the property cannot be assigned null. */
+    final boolean mIsPrimitive;
+
+    ModelProperty(String name,
+                  String memberName,
+                  boolean isSetter,
+                  String conversion,
+                  boolean isDocumentId,
+                  boolean isPrimitive) {
+        mName = name;
+        mMemberName = memberName;
+        mIsSetter = isSetter;
+        mConversion = conversion;
+        mIsDocumentId = isDocumentId;
+        mIsPrimitive = isPrimitive;
+    }
+
+    /**
+     * @return the statement assigning the given expression to this property.
+     */
+    String assign(String expression) {
+        return mIsSetter
+                ? "model." + mMemberName + "(" + expression + ");"
+                : "model." + mMemberName + " = " + expression + ";";
+    }
+}
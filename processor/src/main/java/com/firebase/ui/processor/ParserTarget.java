@@ -0,0 +1,69 @@
+package com.firebase.ui.processor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Firebase SDKs a parser can be generated for. A parser is only generated for the SDKs found
+ * on the compile classpath.
+ */
+enum ParserTarget {
+    FIRESTORE("Cloud Firestore",
+            "com.google.firebase.firestore",
+            "com.google.firebase.firestore.DocumentSnapshot",
+            "com.firebase.ui.firestore.SnapshotParser",
+            "_FirestoreSnapshotParser",
+            firestoreConversions()),
+
+    DATABASE("Realtime Database",
+            "com.google.firebase.database",
+            "com.google.firebase.database.DataSnapshot",
+            "com.firebase.ui.database.SnapshotParser",
+            "_DatabaseSnapshotParser",
+            Collections.emptyMap());
+
+    final String mDisplayName;
+    final String mSdkPackage;
+    final String mSnapshotClass;
+    final String mParserInterface;
+    /** Must match the suffix looked up by the module's ClassSnapshotParser. */
+    final String mSuffix;
+    /** Conversions from the raw value to SDK specific types, with {@code %s} for the value. */
+    final Map<String, String> mConversions;
+
+    ParserTarget(String displayName,
+                 String sdkPackage,
+                 String snapshotClass,
+                 String parserInterface,
+                 String suffix,
+                 Map<String, String> conversions) {
+        mDisplayName = displayName;
+        mSdkPackage = sdkPackage;
+        mSnapshotClass = snapshotClass;
+        mParserInterface = parserInterface;
+        mSuffix = suffix;
+        mConversions = conversions;
+    }
+
+    String getPropertyNameAnnotation() {
+        return mSdkPackage + ".PropertyName";
+    }
+
+    String getExcludeAnnotation() {
+        return mSdkPackage + ".Exclude";
+    }
+
+    private static Map<String, String> firestoreConversions() {
+        Map<String, String> conversions = new HashMap<>();
+        conversions.put("com.google.firebase.Timestamp", "(com.google.firebase.Timestamp) %s");
+        conversions.put("java.util.Date", "((com.google.firebase.Timestamp) %s).toDate()");
+        conversions.put("com.google.firebase.firestore.Blob",
+                "(com.google.firebase.firestore.Blob) %s");
+        conversions.put("com.google.firebase.firestore.DocumentReference",
+                "(com.google.firebase.firestore.DocumentReference) %s");
+        conversions.put("com.google.firebase.firestore.GeoPoint",
+                "(com.google.firebase.firestore.GeoPoint) %s");
+        return Collections.unmodifiableMap(conversions);
+    }
+}
@@ -0,0 +1,166 @@
+package com.firebase.ui.processor;
+
+import java.util.List;
+
+/**
+ * Writes the source of a generated parser. Every type is fully qualified so the generated code
+ * cannot clash with the model's own names.
+ * <p>
+ * Like CustomClassMapper, properties missing from the snapshot keep the value set by the model's
+ * constructor, while properties explicitly set to null are assigned null. An explicit null for a
+ * primitive property throws, as the SDKs do when they fail to assign it.
+ */
+final class ParserWriter {
+
+    private final ParserTarget mTarget;
+    private final String mPackageName;
+    private final String mParserName;
+    private final String mModelName;
+    private final List<ModelProperty> mProperties;
+
+    /**
+     * @param packageName the package of the model, empty for the default package.
+     * @param parserName  the simple name of the parser to generate.
+     * @param modelName   the canonical name of the model.
+     */
+    ParserWriter(ParserTarget target,
+                 String packageName,
+                 String parserName,
+                 String modelName,
+                 List<ModelProperty> properties) {
+        mTarget = target;
+        mPackageName = packageName;
+        mParserName = parserName;
+        mModelName = modelName;
+        mProperties = properties;
+    }
+
+    String write() {
+        StringBuilder out = new StringBuilder()
+                .append("// Generated by firebase-ui-processor. Do not edit.\n");
+        if (!mPackageName.isEmpty()) {
+            out.append("package ").append(mPackageName).append(";\n");
+        }
+        out.append('\n')
+                .append("public final class ").append(mParserName).append('\n')
+                .append("        implements ").append(mTarget.mParserInterface)
+                .append('<').append(mModelName).append("> {\n");
+
+        if (mTarget == ParserTarget.FIRESTORE) {
+            writeFieldPaths(out);
+        }
+
+        out.append("    @Override\n")
+                .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public ").append(mModelName).append(" parseSnapshot(")
+                .append(mTarget.mSnapshotClass).append(" snapshot) {\n");
+
+        if (mTarget == ParserTarget.FIRESTORE) {
+            // Matches DocumentSnapshot#toObject
+            out.append("        if (!snapshot.exists()) {\n")
+                    .append("            return null;\n")
+                    .append("        }\n");
+        } else {
+            // Matches DataSnapshot#getValue(Class)
+            out.append("        java.lang.Object data = snapshot.getValue();\n")
+                    .append("        if (data == null) {\n")
+                    .append("            return null;\n")
+                    .append("        }\n")
+                    .append("        if (!(data instanceof java.util.Map)) {\n")
+                    .append("            throw new java.lang.IllegalArgumentException(\"Can't convert \"\n")
+                    .append("                    + data.getClass().getName() + \" to ")
+                    .append(mModelName).append("\");\n")
+                    .append("        }\n")
+                    .append("        java.util.Map<java.lang.String, java.lang.Object> map =\n")
+                    .append("                (java.util.Map<java.lang.String, java.lang.Object>) data;\n");
+        }
+
+        out.append("        ").append(mModelName).append(" model = new ")
+                .append(mModelName).append("();\n")
+                .append("        java.lang.Object value;\n");
+
+        for (int i = 0; i < mProperties.size(); i++) {
+            ModelProperty property = mProperties.get(i);
+            if (property.mIsDocumentId) {
+                out.append("        ").append(property.assign(property.mConversion)).append('\n');
+                continue;
+            }
+
+            String contains;
+            out.append("        value = ");
+            if (mTarget == ParserTarget.FIRESTORE) {
+                out.append("snapshot.get(").append(getFieldPathName(i)).append(");\n");
+                contains = "snapshot.contains(" + getFieldPathName(i) + ")";
+            } else {
+                out.append("map.get(").append(quote(property.mName)).append(");\n");
+                contains = "map.containsKey(" + quote(property.mName) + ")";
+            }
+            out.append("        if (value != null) {\n")
+                    .append("            ")
+                    .append(property.assign(String.format(property.mConversion, "value")))
+                    .append('\n')
+                    .append("        } else if (").append(contains).append(") {\n")
+                    .append("            ");
+            if (property.mIsPrimitive) {
+                out.append("throw new java.lang.IllegalArgumentException(")
+                        .append(quote("Can't assign null to primitive property " + property.mName))
+                        .append(");\n");
+            } else {
+                out.append(property.assign("null")).append('\n');
+            }
+            out.append("        }\n");
+        }
+
+        out.append("        return model;\n")
+                .append("    }\n")
+                .append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * FieldPath.of does not parse dots, unlike DocumentSnapshot#get(String), so property names
+     * are used as is. The paths are created once per parser class.
+     */
+    private void writeFieldPaths(StringBuilder out) {
+        for (int i = 0; i < mProperties.size(); i++) {
+            ModelProperty property = mProperties.get(i);
+            if (property.mIsDocumentId) {
+                continue;
+            }
+
+            out.append("    private static final com.google.firebase.firestore.FieldPath ")
+                    .append(getFieldPathName(i)).append(" =\n")
+                    .append("            com.google.firebase.firestore.FieldPath.of(")
+                    .append(quote(property.mName)).append(");\n");
+        }
+        out.append('\n');
+    }
+
+    private static String getFieldPathName(int index) {
+        return "FIELD_" + index;
+    }
+
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.firebase.ui.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code SnapshotParser} for every class annotated with
+ * {@code @GenerateSnapshotParser}, for each of the Cloud Firestore and Realtime Database SDKs on
+ * the classpath. The generated parsers read properties straight from the snapshot instead of going
+ * through the SDKs' reflection-based {@code CustomClassMapper}, and are picked up by
+ * {@code ClassSnapshotParser}.
+ * <p>
+ * Models the generated code cannot handle (private-only properties, custom nested classes...)
+ * produce a warning and keep using reflection.
+ */
+public class SnapshotParserProcessor extends AbstractProcessor {
+
+    private static final String ANNOTATION = "com.firebase.ui.common.GenerateSnapshotParser";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "@GenerateSnapshotParser can only be used on classes", element);
+                    continue;
+                }
+
+                for (ParserTarget target : getTargets((TypeElement) element)) {
+                    generate((TypeElement) element, target);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parsers are generated for the SDKs on the classpath. If the model uses annotations of only
+     * one SDK ({@code @IgnoreExtraProperties}, {@code @PropertyName}...), it is only meant for
+     * that SDK.
+     */
+    private Set<ParserTarget> getTargets(TypeElement model) {
+        Set<ParserTarget> available = EnumSet.noneOf(ParserTarget.class);
+        for (ParserTarget target : ParserTarget.values()) {
+            if (processingEnv.getElementUtils().getTypeElement(target.mSnapshotClass) != null) {
+                available.add(target);
+            }
+        }
+
+        Set<ParserTarget> used = EnumSet.noneOf(ParserTarget.class);
+        List<Element> elements = new ArrayList<>(model.getEnclosedElements());
+        elements.add(model);
+        for (Element element : elements) {
+            for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+                String name = annotation.getAnnotationType().toString();
+                for (ParserTarget target : available) {
+                    if (name.startsWith(target.mSdkPackage + ".")) {
+                        used.add(target);
+                    }
+                }
+            }
+        }
+
+        return used.isEmpty() ? available : used;
+    }
+
+    private void generate(TypeElement model, ParserTarget target) {
+        List<ModelProperty> properties;
+        try {
+            properties = new ModelAnalyzer(processingEnv, target).getProperties(model);
+        } catch (UnsupportedModelException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Not generating a " + target.mDisplayName + " parser for " + model
+                            + ", it will be parsed with reflection: " + e.getMessage(),
+                    model);
+            return;
+        }
+
+        String packageName = processingEnv.getElementUtils()
+                .getPackageOf(model).getQualifiedName().toString();
+        // The binary name keeps nested classes unique, e.g. Outer$Inner_FirestoreSnapshotParser
+        String binaryName = processingEnv.getElementUtils().getBinaryName(model).toString();
+        String parserName = (packageName.isEmpty()
+                ? binaryName : binaryName.substring(packageName.length() + 1)) + target.mSuffix;
+        String qualifiedName = packageName.isEmpty() ? parserName : packageName + "." + parserName;
+
+        String source = new ParserWriter(target,
+                packageName,
+                parserName,
+                model.getQualifiedName().toString(),
+                properties).write();
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, model);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + qualifiedName + ": " + e.getMessage(), model);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.firebase.ui.processor;
+
+/**
+ * Thrown when a model uses a feature the generated parsers do not support, in which case parsing
+ * falls back to the SDK's reflection-based mapper.
+ */
+final class UnsupportedModelException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedModelException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,304 @@
+package com.firebase.ui.processor;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+public class SnapshotParserProcessorTest {
+
+    private static final JavaFileObject GENERATE_SNAPSHOT_PARSER = JavaFileObjects.forSourceLines(
+            "com.firebase.ui.common.GenerateSnapshotParser",
+            "package com.firebase.ui.common;",
+            "public @interface GenerateSnapshotParser {}");
+
+    // Minimal stand-ins for the SDK classes referenced by the generated code
+    private static final List<JavaFileObject> FIRESTORE = Arrays.asList(
+            JavaFileObjects.forSourceLines("com.google.firebase.firestore.DocumentSnapshot",
+                    "package com.google.firebase.firestore;",
+                    "public class DocumentSnapshot {",
+                    "    public boolean exists() { return true; }",
+                    "    public boolean contains(FieldPath path) { return false; }",
+                    "    public Object get(FieldPath path) { return null; }",
+                    "    public String getId() { return null; }",
+                    "    public DocumentReference getReference() { return null; }",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.google.firebase.firestore.DocumentReference",
+                    "package com.google.firebase.firestore;",
+                    "public class DocumentReference {}"),
+            JavaFileObjects.forSourceLines("com.google.firebase.firestore.FieldPath",
+                    "package com.google.firebase.firestore;",
+                    "public class FieldPath {",
+                    "    public static FieldPath of(String... names) { return null; }",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.google.firebase.firestore.PropertyName",
+                    "package com.google.firebase.firestore;",
+                    "public @interface PropertyName { String value(); }"),
+            JavaFileObjects.forSourceLines("com.google.firebase.firestore.Exclude",
+                    "package com.google.firebase.firestore;",
+                    "public @interface Exclude {}"),
+            JavaFileObjects.forSourceLines("com.google.firebase.firestore.DocumentId",
+                    "package com.google.firebase.firestore;",
+                    "public @interface DocumentId {}"),
+            JavaFileObjects.forSourceLines("com.firebase.ui.firestore.SnapshotParser",
+                    "package com.firebase.ui.firestore;",
+                    "public interface SnapshotParser<T> {",
+                    "    T parseSnapshot(com.google.firebase.firestore.DocumentSnapshot s);",
+                    "}"));
+
+    private static final List<JavaFileObject> DATABASE = Arrays.asList(
+            JavaFileObjects.forSourceLines("com.google.firebase.database.DataSnapshot",
+                    "package com.google.firebase.database;",
+                    "public class DataSnapshot {",
+                    "    public Object getValue() { return null; }",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.firebase.ui.database.SnapshotParser",
+                    "package com.firebase.ui.database;",
+                    "public interface SnapshotParser<T> {",
+                    "    T parseSnapshot(com.google.firebase.database.DataSnapshot s);",
+                    "}"));
+
+    @Test
+    public void testPublicFields() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Chat",
+                "package test;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public class Chat {",
+                "    public String name;",
+                "    public long count;",
+                "    public java.util.List<String> tags;",
+                "    public java.util.Map<String, Object> extras;",
+                "    @com.google.firebase.firestore.DocumentId public String id;",
+                "    public static int sStatic;",
+                "    public transient String mTransient;",
+                "}"));
+
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("model.name = (java.lang.String) value;");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("model.count = ((java.lang.Number) value).longValue();");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("model.tags = (java.util.List<java.lang.String>) value;");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("model.extras = "
+                        + "(java.util.Map<java.lang.String,java.lang.Object>) value;");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("model.id = snapshot.getId();");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .doesNotContain("sStatic");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .doesNotContain("mTransient");
+    }
+
+    @Test
+    public void testSetters_takePrecedenceOverFields() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Chat",
+                "package test;",
+                "import com.google.firebase.firestore.Exclude;",
+                "import com.google.firebase.firestore.PropertyName;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public class Chat {",
+                "    public String name;",
+                "    private String mUrl;",
+                "    public void setName(String name) { this.name = name; }",
+                "    public String getURL() { return mUrl; }",
+                "    public void setURL(String url) { mUrl = url; }",
+                "    @PropertyName(\"user_id\") public void setUid(String uid) {}",
+                "    @Exclude public void setIgnored(String ignored) {}",
+                "}"));
+
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("model.setName((java.lang.String) value);");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .doesNotContain("model.name =");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("FieldPath.of(\"url\")");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("FieldPath.of(\"user_id\")");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .doesNotContain("setIgnored");
+    }
+
+    @Test
+    public void testNestedClass_usesBinaryName() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Outer",
+                "package test;",
+                "public class Outer {",
+                "    @com.firebase.ui.common.GenerateSnapshotParser",
+                "    public static class Inner {",
+                "        public String name;",
+                "    }",
+                "}"));
+
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation)
+                .generatedSourceFile("test.Outer$Inner_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("public test.Outer.Inner parseSnapshot(");
+    }
+
+    @Test
+    public void testExplicitNull_assignsNullLikeCustomClassMapper() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Chat",
+                "package test;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public class Chat {",
+                "    public String name = \"default\";",
+                "    public int count;",
+                "}"));
+
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("} else if (snapshot.contains(FIELD_0)) {\n"
+                        + "            model.name = null;\n");
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_FirestoreSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("} else if (snapshot.contains(FIELD_1)) {\n"
+                        + "            throw new java.lang.IllegalArgumentException(");
+    }
+
+    @Test
+    public void testDatabase_explicitNull() {
+        List<JavaFileObject> sources = new ArrayList<>(DATABASE);
+        sources.add(GENERATE_SNAPSHOT_PARSER);
+        sources.add(JavaFileObjects.forSourceLines("test.Chat",
+                "package test;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public class Chat {",
+                "    public String name;",
+                "}"));
+        Compilation compilation = compile(sources);
+
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation)
+                .generatedSourceFile("test.Chat_DatabaseSnapshotParser")
+                .contentsAsUtf8String()
+                .contains("} else if (map.containsKey(\"name\")) {\n"
+                        + "            model.name = null;\n");
+    }
+
+    @Test
+    public void testUnsupportedType_warnsAndSkips() {
+        Compilation compilation = compileForFirestore(
+                JavaFileObjects.forSourceLines("test.Address",
+                        "package test;",
+                        "public class Address {}"),
+                JavaFileObjects.forSourceLines("test.Chat",
+                        "package test;",
+                        "@com.firebase.ui.common.GenerateSnapshotParser",
+                        "public class Chat {",
+                        "    public Address address;",
+                        "}"));
+
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining(
+                "unsupported type test.Address for address");
+        assertThat(compilation.generatedSourceFiles()).isEmpty();
+    }
+
+    @Test
+    public void testUnsupportedCollectionElement_warnsAndSkips() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Chat",
+                "package test;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public class Chat {",
+                "    public java.util.List<Long> counts;",
+                "}"));
+
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("unsupported type");
+        assertThat(compilation.generatedSourceFiles()).isEmpty();
+    }
+
+    @Test
+    public void testPrivatePropertyWithGetter_warnsAndSkips() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Chat",
+                "package test;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public class Chat {",
+                "    private String name;",
+                "    public String getName() { return name; }",
+                "}"));
+
+        assertThat(compilation).succeeded();
+        assertThat(compilation)
+                .hadWarningContaining("property name has no public setter or field");
+        assertThat(compilation.generatedSourceFiles()).isEmpty();
+    }
+
+    @Test
+    public void testGenericClass_warnsAndSkips() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Box",
+                "package test;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public class Box<T> {",
+                "    public T value;",
+                "}"));
+
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("the class is generic");
+        assertThat(compilation.generatedSourceFiles()).isEmpty();
+    }
+
+    @Test
+    public void testInterface_fails() {
+        Compilation compilation = compileForFirestore(JavaFileObjects.forSourceLines("test.Chat",
+                "package test;",
+                "@com.firebase.ui.common.GenerateSnapshotParser",
+                "public interface Chat {}"));
+
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining(
+                "@GenerateSnapshotParser can only be used on classes");
+    }
+
+    private static Compilation compileForFirestore(JavaFileObject... models) {
+        List<JavaFileObject> sources = new ArrayList<>(FIRESTORE);
+        sources.add(GENERATE_SNAPSHOT_PARSER);
+        sources.addAll(Arrays.asList(models));
+        return compile(sources);
+    }
+
+    private static Compilation compile(List<JavaFileObject> sources) {
+        return javac().withProcessors(new SnapshotParserProcessor()).compile(sources);
+    }
+}
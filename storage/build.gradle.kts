@@ -46,9 +46,21 @@ android {
 
 dependencies {
     api(Config.Libs.Misc.glide)
+    // Only needed by StorageReferencePreloader and UploadQueue, apps using them add these
+    compileOnly(Config.Libs.Misc.glideRecyclerView)
+    compileOnly(Config.Libs.Androidx.recyclerView)
+    compileOnly(Config.Libs.Androidx.lifecycleLiveData)
+    implementation(Config.Libs.Androidx.exifInterface)
 
     implementation(platform(Config.Libs.Firebase.bom))
     api(Config.Libs.Firebase.storage)
     // Override Play Services
     implementation(Config.Libs.Androidx.legacySupportv4)
+
+    testImplementation(Config.Libs.Test.junit)
+    testImplementation(Config.Libs.Test.truth)
+    testImplementation(Config.Libs.Test.mockito)
+    testImplementation(Config.Libs.Test.core)
+    testImplementation(Config.Libs.Test.robolectric)
+    testImplementation(Config.Libs.Androidx.lifecycleLiveData)
 }
@@ -0,0 +1,185 @@
+package com.firebase.ui.storage.images;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Persistent cache of Cloud Storage download URLs, used by {@link FirebaseUrlImageLoader} so that
+ * a URL is resolved with {@link StorageReference#getDownloadUrl()} once per time-to-live instead
+ * of on every load. URLs are kept in {@link SharedPreferences} and survive process restarts.
+ * <p>
+ * The cache is bounded: once it grows beyond the maximum number of entries, expired URLs are
+ * pruned and then the least recently used ones are dropped.
+ */
+public class DownloadUrlCache {
+
+    private static final String SHARED_PREF_NAME =
+            "com.firebase.ui.storage.images.DownloadUrlCache";
+
+    private static final String KEY_URL_PREFIX = "url:";
+    private static final String KEY_EXPIRES_PREFIX = "expires:";
+    private static final String KEY_USED_PREFIX = "used:";
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    // Avoids a SharedPreferences write on every cache hit
+    private static final long USED_GRANULARITY_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final SharedPreferences mPrefs;
+    private final long mTtlMillis;
+    private final int mMaxEntries;
+    // Number of persisted URLs, guarded by this. Counted on first use.
+    private int mCount = -1;
+
+    /**
+     * @param ttl  how long a download URL is trusted before it is resolved again.
+     * @param unit the unit of {@code ttl}.
+     */
+    public DownloadUrlCache(@NonNull Context context, long ttl, @NonNull TimeUnit unit) {
+        this(context, ttl, unit, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries the maximum number of download URLs to keep.
+     * @see #DownloadUrlCache(Context, long, TimeUnit)
+     */
+    public DownloadUrlCache(@NonNull Context context,
+                            long ttl,
+                            @NonNull TimeUnit unit,
+                            int maxEntries) {
+        mPrefs = context.getApplicationContext()
+                .getSharedPreferences(SHARED_PREF_NAME, Context.MODE_PRIVATE);
+        mTtlMillis = unit.toMillis(ttl);
+        mMaxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the download URL of the object, resolving it if it is not cached or expired. Blocks,
+     * so must not be called on the main thread.
+     *
+     * @throws ExecutionException if the URL could not be resolved.
+     */
+    @NonNull
+    @WorkerThread
+    public Uri getDownloadUrl(@NonNull StorageReference reference)
+            throws ExecutionException, InterruptedException {
+        String key = getKey(reference);
+        String url = mPrefs.getString(KEY_URL_PREFIX + key, null);
+        long expires = mPrefs.getLong(KEY_EXPIRES_PREFIX + key, 0);
+        long now = System.currentTimeMillis();
+        if (url != null && now < expires) {
+            if (now - mPrefs.getLong(KEY_USED_PREFIX + key, 0) >= USED_GRANULARITY_MS) {
+                mPrefs.edit().putLong(KEY_USED_PREFIX + key, now).apply();
+            }
+            return Uri.parse(url);
+        }
+
+        Uri uri = Tasks.await(reference.getDownloadUrl());
+        put(key, uri, System.currentTimeMillis());
+        return uri;
+    }
+
+    private synchronized void put(@NonNull String key, @NonNull Uri uri, long now) {
+        if (mCount < 0) {
+            mCount = 0;
+            for (String pref : mPrefs.getAll().keySet()) {
+                if (pref.startsWith(KEY_URL_PREFIX)) { mCount++; }
+            }
+        }
+
+        if (!mPrefs.contains(KEY_URL_PREFIX + key)) {
+            mCount++;
+        }
+        SharedPreferences.Editor editor = mPrefs.edit()
+                .putString(KEY_URL_PREFIX + key, uri.toString())
+                .putLong(KEY_EXPIRES_PREFIX + key, now + mTtlMillis)
+                .putLong(KEY_USED_PREFIX + key, now);
+        if (mCount > mMaxEntries) {
+            trim(editor, key, now);
+        }
+        editor.apply();
+    }
+
+    /**
+     * Drops expired URLs, then the least recently used ones down to three quarters of the maximum
+     * number of entries so that this full scan only runs once in a while.
+     */
+    private void trim(@NonNull SharedPreferences.Editor editor, @NonNull String keep, long now) {
+        List<Entry> entries = new ArrayList<>();
+        for (String pref : mPrefs.getAll().keySet()) {
+            if (!pref.startsWith(KEY_URL_PREFIX)) { continue; }
+
+            String other = pref.substring(KEY_URL_PREFIX.length());
+            if (other.equals(keep)) { continue; }
+
+            if (now >= mPrefs.getLong(KEY_EXPIRES_PREFIX + other, 0)) {
+                remove(editor, other);
+            } else {
+                entries.add(new Entry(other, mPrefs.getLong(KEY_USED_PREFIX + other, 0)));
+            }
+        }
+
+        int excess = entries.size() + 1 - mMaxEntries * 3 / 4;
+        if (excess > 0) {
+            Collections.sort(entries, (a, b) -> Long.compare(a.mUsed, b.mUsed));
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                remove(editor, entries.get(i).mKey);
+            }
+        }
+        mCount = entries.size() + 1 - Math.max(0, Math.min(excess, entries.size()));
+    }
+
+    /**
+     * Forget the download URL of an object, for example because its token was revoked.
+     */
+    public synchronized void invalidate(@NonNull StorageReference reference) {
+        String key = getKey(reference);
+        if (mPrefs.contains(KEY_URL_PREFIX + key)) {
+            remove(mPrefs.edit(), key).apply();
+            if (mCount > 0) { mCount--; }
+        }
+    }
+
+    /**
+     * Forget all download URLs.
+     */
+    public synchronized void clear() {
+        mPrefs.edit().clear().apply();
+        mCount = 0;
+    }
+
+    @NonNull
+    private static SharedPreferences.Editor remove(@NonNull SharedPreferences.Editor editor,
+                                                   @NonNull String key) {
+        return editor.remove(KEY_URL_PREFIX + key)
+                .remove(KEY_EXPIRES_PREFIX + key)
+                .remove(KEY_USED_PREFIX + key);
+    }
+
+    @NonNull
+    private static String getKey(@NonNull StorageReference reference) {
+        return reference.getBucket() + "/" + reference.getPath();
+    }
+
+    private static final class Entry {
+        final String mKey;
+        final long mUsed;
+
+        Entry(String key, long used) {
+            mKey = key;
+            mUsed = used;
+        }
+    }
+}
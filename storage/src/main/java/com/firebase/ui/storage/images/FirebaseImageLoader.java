@@ -10,15 +10,16 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoaderFactory;
 import com.bumptech.glide.load.model.MultiModelLoaderFactory;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
+import com.bumptech.glide.signature.ObjectKey;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.StreamDownloadTask;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
+import java.util.UUID;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -52,16 +53,110 @@ public class FirebaseImageLoader implements ModelLoader<StorageReference, InputS
 
     private static final String TAG = "FirebaseImageLoader";
 
+    private final StorageMetadataCache mMetadataCache;
+    private final VariantResolver mVariantResolver;
+    private final StorageDownloadScheduler mScheduler;
+    private final VariantStatusCache mVariantStatus;
+
+    public FirebaseImageLoader() {
+        this(null, null);
+    }
+
+    /**
+     * @param metadataCache   if non-null, disk cache keys include the object's version from this
+     *                        cache. See {@link Factory#setMetadataCache(StorageMetadataCache)}.
+     * @param variantResolver if non-null, picks pre-resized variants for the target size. See
+     *                        {@link Factory#setVariantResolver(VariantResolver)}.
+     */
+    public FirebaseImageLoader(@Nullable StorageMetadataCache metadataCache,
+                               @Nullable VariantResolver variantResolver) {
+        this(metadataCache, variantResolver, null);
+    }
+
+    /**
+     * @param scheduler if non-null, downloads go through this scheduler. See
+     *                  {@link Factory#setDownloadScheduler(StorageDownloadScheduler)}.
+     * @see #FirebaseImageLoader(StorageMetadataCache, VariantResolver)
+     */
+    public FirebaseImageLoader(@Nullable StorageMetadataCache metadataCache,
+                               @Nullable VariantResolver variantResolver,
+                               @Nullable StorageDownloadScheduler scheduler) {
+        this(metadataCache, variantResolver, scheduler, new VariantStatusCache());
+    }
+
+    FirebaseImageLoader(@Nullable StorageMetadataCache metadataCache,
+                        @Nullable VariantResolver variantResolver,
+                        @Nullable StorageDownloadScheduler scheduler,
+                        @NonNull VariantStatusCache variantStatus) {
+        mMetadataCache = metadataCache;
+        mVariantResolver = variantResolver;
+        mScheduler = scheduler;
+        mVariantStatus = variantStatus;
+    }
 
     /**
      * Factory to create {@link FirebaseImageLoader}.
      */
     public static class Factory implements ModelLoaderFactory<StorageReference, InputStream> {
 
+        private StorageMetadataCache mMetadataCache;
+        private VariantResolver mVariantResolver;
+        private StorageDownloadScheduler mScheduler;
+        // Shared by all loaders built by this factory
+        private final VariantStatusCache mVariantStatus = new VariantStatusCache();
+
+        /**
+         * Key the disk cache on the version of each object (its generation or MD5 hash, and its
+         * bucket) in addition to its path. Without this, an object overwritten at the same path
+         * keeps being served from the disk cache.
+         * <p>
+         * Versions are looked up in the given cache, which fetches them in the background with
+         * {@link StorageReference#getMetadata()} when they are unknown or expired.
+         * Loads of objects whose version isn't known yet skip the disk cache.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Factory setMetadataCache(@Nullable StorageMetadataCache metadataCache) {
+            mMetadataCache = metadataCache;
+            return this;
+        }
+
+        /**
+         * Download pre-resized variants of images that fit the size of the target, instead of
+         * the originals.
+         * <p>
+         * A variant is only used once it is known to exist, its existence is checked in the
+         * background with {@link StorageReference#getMetadata()}. Until then, and while it is
+         * missing, the original is downloaded and cached under its own key.
+         *
+         * @return this, for chaining.
+         * @see ResizedImageVariantResolver
+         */
+        @NonNull
+        public Factory setVariantResolver(@Nullable VariantResolver variantResolver) {
+            mVariantResolver = variantResolver;
+            return this;
+        }
+
+        /**
+         * Route downloads through a {@link StorageDownloadScheduler}, which shares one download
+         * between concurrent requests for the same object and starts downloads in order of Glide
+         * {@link Priority}, with bounded parallelism.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Factory setDownloadScheduler(@Nullable StorageDownloadScheduler scheduler) {
+            mScheduler = scheduler;
+            return this;
+        }
+
         @NonNull
         @Override
         public ModelLoader<StorageReference, InputStream> build(@NonNull MultiModelLoaderFactory factory) {
-            return new FirebaseImageLoader();
+            return new FirebaseImageLoader(
+                    mMetadataCache, mVariantResolver, mScheduler, mVariantStatus);
         }
 
         @Override
@@ -73,12 +168,37 @@ public class FirebaseImageLoader implements ModelLoader<StorageReference, InputS
     @Nullable
     @Override
     public LoadData<InputStream> buildLoadData(@NonNull StorageReference reference,
-                                               int height,
                                                int width,
+                                               int height,
                                                @NonNull Options options) {
+        StorageReference variant = mVariantResolver == null
+                ? null : mVariantResolver.getVariant(reference, width, height);
+        // Never fall back from a variant to the original while loading, or the original's bytes
+        // would be cached under the variant's key
+        boolean useVariant = variant != null && mVariantStatus.exists(variant);
+        StorageReference target = useVariant ? variant : reference;
+
+        // Glide looks up its disk cache with this key on a single thread, so this must not block
+        Key key;
+        if (mMetadataCache == null) {
+            key = new FirebaseStorageKey(target, null);
+        } else {
+            String version = mMetadataCache.getCacheVersion(target);
+            // The path-only key may hold a stale image, so until the version is known the load
+            // bypasses the disk cache. The next load is keyed on the version.
+            key = version == null ? newUncachedKey(target) : new FirebaseStorageKey(target, version);
+        }
         return new LoadData<>(
-                new FirebaseStorageKey(reference),
-                new FirebaseStorageFetcher(reference));
+                key,
+                new FirebaseStorageFetcher(target, useVariant ? mVariantStatus : null, mScheduler));
+    }
+
+    /**
+     * Returns a key which matches no cache entry, for loads that must not hit the disk cache.
+     */
+    @NonNull
+    static Key newUncachedKey(@NonNull StorageReference reference) {
+        return new ObjectKey(reference.getPath() + "#" + UUID.randomUUID());
     }
 
     @Override
@@ -89,14 +209,19 @@ public class FirebaseImageLoader implements ModelLoader<StorageReference, InputS
     private static class FirebaseStorageKey implements Key {
 
         private StorageReference mRef;
+        private String mVersion;
 
-        public FirebaseStorageKey(StorageReference ref) {
+        public FirebaseStorageKey(StorageReference ref, @Nullable String version) {
             mRef = ref;
+            mVersion = version;
         }
 
         @Override
         public void updateDiskCacheKey(@NonNull MessageDigest digest) {
             digest.update(mRef.getPath().getBytes(Charset.defaultCharset()));
+            if (mVersion != null) {
+                digest.update(mVersion.getBytes(Charset.defaultCharset()));
+            }
         }
 
         @Override
@@ -106,35 +231,76 @@ public class FirebaseImageLoader implements ModelLoader<StorageReference, InputS
 
             FirebaseStorageKey key = (FirebaseStorageKey) o;
 
-            return mRef.equals(key.mRef);
+            return mRef.equals(key.mRef)
+                    && (mVersion == null ? key.mVersion == null : mVersion.equals(key.mVersion));
         }
 
         @Override
         public int hashCode() {
-            return mRef.hashCode();
+            int result = mRef.hashCode();
+            result = 31 * result + (mVersion == null ? 0 : mVersion.hashCode());
+            return result;
         }
     }
 
     private static class FirebaseStorageFetcher implements DataFetcher<InputStream> {
 
         private StorageReference mRef;
+        private VariantStatusCache mVariantStatus;
+        private StorageDownloadScheduler mScheduler;
         private StreamDownloadTask mStreamTask;
+        private StorageDownloadScheduler.Request mRequest;
         private InputStream mInputStream;
 
-        public FirebaseStorageFetcher(StorageReference ref) {
+        /**
+         * @param variantStatus non-null if the reference is a variant, to remember that it is
+         *                      missing if its download fails.
+         */
+        public FirebaseStorageFetcher(StorageReference ref,
+                                      @Nullable VariantStatusCache variantStatus,
+                                      @Nullable StorageDownloadScheduler scheduler) {
             mRef = ref;
+            mVariantStatus = variantStatus;
+            mScheduler = scheduler;
         }
 
         @Override
         public void loadData(@NonNull Priority priority,
                              @NonNull final DataCallback<? super InputStream> callback) {
+            if (mScheduler != null) {
+                mRequest = mScheduler.enqueue(mRef, priority,
+                        new StorageDownloadScheduler.Callback() {
+                        @Override
+                        public void onSuccess(@NonNull byte[] data) {
+                            mInputStream = new ByteArrayInputStream(data);
+                            callback.onDataReady(mInputStream);
+                        }
+
+                        @Override
+                        public void onFailure(@NonNull Exception e) {
+                            onLoadFailed(callback, e);
+                        }
+                    });
+                return;
+            }
+
             mStreamTask = mRef.getStream();
             mStreamTask
                     .addOnSuccessListener(snapshot -> {
                         mInputStream = snapshot.getStream();
                         callback.onDataReady(mInputStream);
                     })
-                    .addOnFailureListener(e -> callback.onLoadFailed(e));
+                    .addOnFailureListener(e -> onLoadFailed(callback, e));
+        }
+
+        private void onLoadFailed(@NonNull DataCallback<? super InputStream> callback,
+                                  @NonNull Exception e) {
+            if (mVariantStatus != null && VariantStatusCache.isNotFound(e)) {
+                // The variant was deleted, later loads use the original. This one fails so Glide
+                // shows the error or thumbnail request instead of caching the wrong bytes.
+                mVariantStatus.setMissing(mRef);
+            }
+            callback.onLoadFailed(e);
         }
 
         @Override
@@ -156,6 +322,11 @@ public class FirebaseImageLoader implements ModelLoader<StorageReference, InputS
             if (mStreamTask != null && mStreamTask.isInProgress()) {
                 mStreamTask.cancel();
             }
+
+            // Only cancels the shared download if nobody else waits on it
+            if (mRequest != null) {
+                mRequest.cancel();
+            }
         }
 
         @NonNull
@@ -0,0 +1,224 @@
+package com.firebase.ui.storage.images;
+
+import android.net.Uri;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * ModelLoader implementation that downloads images from FirebaseStorage through their download
+ * URLs, using whichever HTTP stack is registered with Glide for {@link GlideUrl}s.
+ * <p>
+ * Unlike {@link FirebaseImageLoader}, which streams every image with
+ * {@link StorageReference#getStream()}, this benefits from the HTTP stack's connection reuse and
+ * HTTP cache. Download URLs are resolved once and kept in a {@link DownloadUrlCache}.
+ * <p>
+ * Repeat downloads are only revalidated with {@code If-None-Match} when the HTTP stack has an HTTP
+ * cache, for example with Glide's OkHttp integration and an OkHttp {@code Cache}. Glide's default
+ * {@code HttpUrlFetcher} never revalidates and transfers the whole image again.
+ * <p>
+ * Register it in your AppGlideModule instead of {@link FirebaseImageLoader}:
+ * <pre>
+ *         {@literal @}Override
+ *         public void registerComponents(Context context, Glide glide, Registry registry) {
+ *             registry.append(StorageReference.class, InputStream.class,
+ *                     new FirebaseUrlImageLoader.Factory(
+ *                             new DownloadUrlCache(context, 7, TimeUnit.DAYS)));
+ *         }
+ * </pre>
+ */
+public class FirebaseUrlImageLoader implements ModelLoader<StorageReference, InputStream> {
+
+    private final ModelLoader<GlideUrl, InputStream> mUrlLoader;
+    private final DownloadUrlCache mUrlCache;
+    private final StorageMetadataCache mMetadataCache;
+
+    public FirebaseUrlImageLoader(@NonNull ModelLoader<GlideUrl, InputStream> urlLoader,
+                                  @NonNull DownloadUrlCache urlCache) {
+        this(urlLoader, urlCache, null);
+    }
+
+    /**
+     * @param metadataCache if non-null, disk cache keys include the object's version from this
+     *                      cache. See {@link Factory#setMetadataCache(StorageMetadataCache)}.
+     */
+    public FirebaseUrlImageLoader(@NonNull ModelLoader<GlideUrl, InputStream> urlLoader,
+                                  @NonNull DownloadUrlCache urlCache,
+                                  @Nullable StorageMetadataCache metadataCache) {
+        mUrlLoader = urlLoader;
+        mUrlCache = urlCache;
+        mMetadataCache = metadataCache;
+    }
+
+    /**
+     * Factory to create {@link FirebaseUrlImageLoader}. Downloads go through the loader Glide has
+     * registered for {@link GlideUrl}s, so register the OkHttp integration with a {@code Cache}
+     * first if repeat downloads should be revalidated rather than transferred again.
+     */
+    public static class Factory implements ModelLoaderFactory<StorageReference, InputStream> {
+
+        private final DownloadUrlCache mUrlCache;
+        private StorageMetadataCache mMetadataCache;
+
+        public Factory(@NonNull DownloadUrlCache urlCache) {
+            mUrlCache = urlCache;
+        }
+
+        /**
+         * Key the disk cache on the version of each object in addition to its path, so that an
+         * object overwritten at the same path isn't served from the disk cache forever. See
+         * {@link FirebaseImageLoader.Factory#setMetadataCache(StorageMetadataCache)}.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Factory setMetadataCache(@Nullable StorageMetadataCache metadataCache) {
+            mMetadataCache = metadataCache;
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<StorageReference, InputStream> build(@NonNull MultiModelLoaderFactory factory) {
+            return new FirebaseUrlImageLoader(
+                    factory.build(GlideUrl.class, InputStream.class), mUrlCache, mMetadataCache);
+        }
+
+        @Override
+        public void teardown() {
+            // No-op
+        }
+    }
+
+    @Nullable
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull StorageReference reference,
+                                               int width,
+                                               int height,
+                                               @NonNull Options options) {
+        // Keyed on the path rather than the URL, so cache hits never need the URL. The version
+        // lookup never blocks, which matters since Glide checks its disk cache on a single thread.
+        String path = reference.getBucket() + "/" + reference.getPath();
+        Key key;
+        if (mMetadataCache == null) {
+            key = new ObjectKey(path);
+        } else {
+            // As in FirebaseImageLoader, never use the path-only key once versions are enabled
+            String version = mMetadataCache.getCacheVersion(reference);
+            key = version == null
+                    ? FirebaseImageLoader.newUncachedKey(reference)
+                    : new ObjectKey(path + "@" + version);
+        }
+        return new LoadData<>(key, new DownloadUrlFetcher(reference, width, height, options));
+    }
+
+    @Override
+    public boolean handles(@NonNull StorageReference reference) {
+        return true;
+    }
+
+    private class DownloadUrlFetcher implements DataFetcher<InputStream> {
+
+        private final StorageReference mRef;
+        private final int mWidth;
+        private final int mHeight;
+        private final Options mOptions;
+
+        private volatile DataFetcher<InputStream> mDelegate;
+        private volatile boolean mCancelled;
+
+        public DownloadUrlFetcher(StorageReference ref, int width, int height, Options options) {
+            mRef = ref;
+            mWidth = width;
+            mHeight = height;
+            mOptions = options;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority,
+                             @NonNull final DataCallback<? super InputStream> callback) {
+            // Glide calls this on its source executor, so blocking here is fine
+            Uri url;
+            try {
+                url = mUrlCache.getDownloadUrl(mRef);
+            } catch (ExecutionException e) {
+                callback.onLoadFailed(e.getCause() instanceof Exception
+                        ? (Exception) e.getCause() : e);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callback.onLoadFailed(e);
+                return;
+            }
+
+            LoadData<InputStream> loadData =
+                    mUrlLoader.buildLoadData(new GlideUrl(url.toString()), mWidth, mHeight, mOptions);
+            if (loadData == null) {
+                callback.onLoadFailed(new IOException("No loader for " + url));
+                return;
+            }
+
+            mDelegate = loadData.fetcher;
+            if (mCancelled) {
+                return;
+            }
+
+            mDelegate.loadData(priority, new DataCallback<InputStream>() {
+                @Override
+                public void onDataReady(@Nullable InputStream data) {
+                    callback.onDataReady(data);
+                }
+
+                @Override
+                public void onLoadFailed(@NonNull Exception e) {
+                    // The token may have been revoked, resolve the URL again next time
+                    mUrlCache.invalidate(mRef);
+                    callback.onLoadFailed(e);
+                }
+            });
+        }
+
+        @Override
+        public void cleanup() {
+            if (mDelegate != null) {
+                mDelegate.cleanup();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+            if (mDelegate != null) {
+                mDelegate.cancel();
+            }
+        }
+
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return InputStream.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.REMOTE;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.firebase.ui.storage.images;
+
+import com.google.firebase.storage.StorageReference;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * {@link VariantResolver} for images resized into {@code name_WIDTHxHEIGHT.ext} objects, the
+ * naming used by the Resize Images extension and similar pipelines. Picks the smallest configured
+ * size that covers the target in both dimensions, and falls back to the original when the target
+ * is larger than every size or unknown.
+ */
+public class ResizedImageVariantResolver implements VariantResolver {
+
+    private final int[][] mSizes;
+    private String mResizedImagesPath;
+
+    /**
+     * @param sizes the sizes images are resized to, such as {@code "200x200"}.
+     */
+    public ResizedImageVariantResolver(@NonNull String... sizes) {
+        mSizes = new int[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            String[] parts = sizes[i].split("x");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid size: " + sizes[i]);
+            }
+            mSizes[i] = new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        }
+
+        // Smallest first, so the first match is the cheapest
+        Arrays.sort(mSizes, (a, b) -> Long.compare((long) a[0] * a[1], (long) b[0] * b[1]));
+    }
+
+    /**
+     * Sets the path of the resized images relative to the folder of the original, for example
+     * {@code "thumbnails"}. By default resized images are next to the original.
+     *
+     * @return this, for chaining.
+     */
+    @NonNull
+    public ResizedImageVariantResolver setResizedImagesPath(@Nullable String path) {
+        mResizedImagesPath = path;
+        return this;
+    }
+
+    @Nullable
+    @Override
+    public StorageReference getVariant(@NonNull StorageReference original,
+                                       int width,
+                                       int height) {
+        StorageReference parent = original.getParent();
+        if (width <= 0 || height <= 0 || parent == null) {
+            return null;
+        }
+
+        for (int[] size : mSizes) {
+            if (size[0] >= width && size[1] >= height) {
+                if (mResizedImagesPath != null) {
+                    parent = parent.child(mResizedImagesPath);
+                }
+                return parent.child(getVariantName(original.getName(), size[0], size[1]));
+            }
+        }
+
+        return null;
+    }
+
+    @NonNull
+    private static String getVariantName(@NonNull String name, int width, int height) {
+        String suffix = "_" + width + "x" + height;
+        int extension = name.lastIndexOf('.');
+        if (extension <= 0) {
+            return name + suffix;
+        }
+        return name.substring(0, extension) + suffix + name.substring(extension);
+    }
+}
@@ -0,0 +1,229 @@
+package com.firebase.ui.storage.images;
+
+import com.bumptech.glide.Priority;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.StreamDownloadTask;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Schedules Cloud Storage downloads for {@link FirebaseImageLoader}.
+ * <p>
+ * Concurrent requests for the same object share one download, and at most a fixed number of
+ * downloads run at once. Queued downloads start in order of the highest Glide {@link Priority} of
+ * their requests, so visible images are not stuck behind off-screen prefetches. Cancelling a
+ * request only cancels the shared download once no other request waits on it.
+ * <p>
+ * Shared downloads are buffered in memory, so this is meant for images and other small objects.
+ */
+public class StorageDownloadScheduler {
+
+    /**
+     * Receives the result of a download request.
+     */
+    public interface Callback {
+        void onSuccess(@NonNull byte[] data);
+
+        void onFailure(@NonNull Exception e);
+    }
+
+    private static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final int mMaxConcurrentDownloads;
+
+    // Guards all of the state below
+    private final Object mLock = new Object();
+    private final Map<String, Download> mDownloads = new HashMap<>();
+    private final PriorityQueue<Download> mQueue = new PriorityQueue<>(11, (a, b) -> {
+        int result = a.mPriority.compareTo(b.mPriority);
+        return result == 0 ? Long.compare(a.mSequence, b.mSequence) : result;
+    });
+    private int mRunning;
+    private long mSequence;
+
+    public StorageDownloadScheduler() {
+        this(DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+    }
+
+    /**
+     * @param maxConcurrentDownloads the maximum number of downloads to run at once.
+     */
+    public StorageDownloadScheduler(int maxConcurrentDownloads) {
+        if (maxConcurrentDownloads <= 0) {
+            throw new IllegalArgumentException("maxConcurrentDownloads must be positive");
+        }
+        mMaxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    /**
+     * Request the contents of an object. The callback is invoked on a background thread, unless
+     * the request is cancelled first.
+     */
+    @NonNull
+    public Request enqueue(@NonNull StorageReference reference,
+                           @NonNull Priority priority,
+                           @NonNull Callback callback) {
+        List<Download> toStart;
+        Request request;
+        synchronized (mLock) {
+            String key = reference.getBucket() + "/" + reference.getPath();
+            Download download = mDownloads.get(key);
+            if (download == null) {
+                download = new Download(key, reference, priority, mSequence++);
+                mDownloads.put(key, download);
+                mQueue.add(download);
+            } else if (download.mTask == null && priority.compareTo(download.mPriority) < 0) {
+                // Still queued, move it up
+                mQueue.remove(download);
+                download.mPriority = priority;
+                mQueue.add(download);
+            }
+
+            request = new Request(download, callback);
+            download.mRequests.add(request);
+            toStart = pollStartable();
+        }
+
+        start(toStart);
+        return request;
+    }
+
+    /**
+     * Starts as many queued downloads as allowed. Must hold {@link #mLock}.
+     */
+    @NonNull
+    private List<Download> pollStartable() {
+        List<Download> toStart = new ArrayList<>();
+        while (mRunning < mMaxConcurrentDownloads && !mQueue.isEmpty()) {
+            Download download = mQueue.poll();
+            // Mark as running before releasing the lock
+            download.mTask = download.mReference.getStream(
+                    (state, stream) -> download.mData = readFully(stream));
+            mRunning++;
+            toStart.add(download);
+        }
+        return toStart;
+    }
+
+    private void start(@NonNull List<Download> downloads) {
+        for (Download download : downloads) {
+            download.mTask.addOnCompleteListener(Runnable::run, task -> finish(download));
+        }
+    }
+
+    private void finish(@NonNull Download download) {
+        List<Request> requests;
+        List<Download> toStart;
+        synchronized (mLock) {
+            mRunning--;
+            // A cancelled download may already have been replaced by a new one
+            if (mDownloads.get(download.mKey) == download) {
+                mDownloads.remove(download.mKey);
+            }
+            requests = new ArrayList<>(download.mRequests);
+            download.mRequests.clear();
+            toStart = pollStartable();
+        }
+
+        start(toStart);
+
+        StreamDownloadTask task = download.mTask;
+        for (Request request : requests) {
+            if (task.isSuccessful() && download.mData != null) {
+                request.mCallback.onSuccess(download.mData);
+            } else {
+                Exception e = task.getException();
+                request.mCallback.onFailure(
+                        e == null ? new IOException("Download cancelled") : e);
+            }
+        }
+    }
+
+    private void cancel(@NonNull Request request) {
+        Download download = request.mDownload;
+        StreamDownloadTask toCancel = null;
+        synchronized (mLock) {
+            if (!download.mRequests.remove(request) || !download.mRequests.isEmpty()) {
+                // Already finished, or others still waiting
+                return;
+            }
+
+            if (mDownloads.get(download.mKey) == download) {
+                mDownloads.remove(download.mKey);
+            }
+            if (download.mTask == null) {
+                mQueue.remove(download);
+            } else {
+                toCancel = download.mTask;
+            }
+        }
+
+        if (toCancel != null && toCancel.isInProgress()) {
+            toCancel.cancel();
+        }
+    }
+
+    @NonNull
+    private static byte[] readFully(@NonNull InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        stream.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * A pending request for the contents of an object.
+     */
+    public final class Request {
+        private final Download mDownload;
+        private final Callback mCallback;
+
+        private Request(@NonNull Download download, @NonNull Callback callback) {
+            mDownload = download;
+            mCallback = callback;
+        }
+
+        /**
+         * Stop waiting for the download. The callback will not be invoked, unless the download
+         * is already delivering its result.
+         */
+        public void cancel() {
+            StorageDownloadScheduler.this.cancel(this);
+        }
+    }
+
+    private static final class Download {
+        final String mKey;
+        final StorageReference mReference;
+        final long mSequence;
+        final List<Request> mRequests = new ArrayList<>();
+
+        Priority mPriority;
+        StreamDownloadTask mTask;
+        volatile byte[] mData;
+
+        Download(@NonNull String key,
+                 @NonNull StorageReference reference,
+                 @NonNull Priority priority,
+                 long sequence) {
+            mKey = key;
+            mReference = reference;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.firebase.ui.storage.images;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Cache of {@link StorageMetadata} versions, used by {@link FirebaseImageLoader} to key Glide's
+ * disk cache on the version of an object instead of only its path. When an object is overwritten
+ * at the same path its version changes, so the stale cached image is missed, while unchanged images
+ * keep hitting the disk cache.
+ * <p>
+ * Lookups never block: versions are fetched in the background when they are unknown or expired,
+ * and loads use the last known version until then. Known versions are kept in
+ * {@link SharedPreferences}, so that they survive process restarts and the first load of an object
+ * in a new process can still hit the disk cache. If fetching fails, the last known version keeps
+ * being used and the failure is remembered for a short while, so that missing objects or a lack of
+ * network don't cause a metadata request on every load.
+ */
+public class StorageMetadataCache {
+
+    /**
+     * The part of the object metadata that identifies a version of the object.
+     */
+    public enum Version {
+        /** The object generation, which changes every time the object is overwritten. */
+        GENERATION,
+        /** The MD5 hash of the object, which only changes if the content changes. */
+        MD5_HASH
+    }
+
+    private static final String TAG = "StorageMetadataCache";
+
+    private static final String SHARED_PREF_NAME =
+            "com.firebase.ui.storage.images.StorageMetadataCache";
+
+    private static final String KEY_VERSION_PREFIX = "version:";
+    private static final String KEY_FETCHED_PREFIX = "fetched:";
+
+    private static final int DEFAULT_MAX_SIZE = 256;
+    private static final long FAILURE_TTL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final SharedPreferences mPrefs;
+    private final Version mVersion;
+    private final long mTtlMillis;
+    private final int mMaxSize;
+    private final Map<String, Entry> mEntries;
+    // Guarded by mEntries
+    private final Set<String> mFetching = new HashSet<>();
+    // Number of persisted versions, guarded by mEntries. Counted on first use.
+    private int mPersistedCount = -1;
+
+    /**
+     * @param version which metadata field to use as the object version.
+     * @param ttl     how long a version is trusted before it is fetched again.
+     * @param unit    the unit of {@code ttl}.
+     */
+    public StorageMetadataCache(@NonNull Context context,
+                                @NonNull Version version,
+                                long ttl,
+                                @NonNull TimeUnit unit) {
+        this(context, version, ttl, unit, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the maximum number of objects to remember.
+     * @see #StorageMetadataCache(Context, Version, long, TimeUnit)
+     */
+    public StorageMetadataCache(@NonNull Context context,
+                                @NonNull Version version,
+                                long ttl,
+                                @NonNull TimeUnit unit,
+                                final int maxSize) {
+        mPrefs = context.getApplicationContext()
+                .getSharedPreferences(SHARED_PREF_NAME, Context.MODE_PRIVATE);
+        mVersion = version;
+        mTtlMillis = unit.toMillis(ttl);
+        mMaxSize = maxSize;
+        mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns a string identifying the bucket and version of the object. If the cached version
+     * is unknown or expired, its metadata is fetched in the background for later lookups.
+     *
+     * @return the last known version, or null if it is unknown.
+     */
+    @Nullable
+    public String getCacheVersion(@NonNull StorageReference reference) {
+        String path = reference.getPath();
+        Entry entry;
+        boolean fetch;
+        synchronized (mEntries) {
+            entry = mEntries.get(path);
+            if (entry == null) {
+                entry = restore(path);
+            }
+            fetch = (entry == null || entry.isExpired(SystemClock.elapsedRealtime()))
+                    && mFetching.add(path);
+        }
+
+        if (fetch) {
+            fetch(reference, entry == null ? null : entry.mVersion);
+        }
+        return entry == null ? null : entry.mVersion;
+    }
+
+    private void fetch(@NonNull StorageReference reference, @Nullable final String lastVersion) {
+        final String path = reference.getPath();
+        reference.getMetadata().addOnCompleteListener(task -> {
+            Entry entry;
+            if (task.isSuccessful()) {
+                StorageMetadata metadata = task.getResult();
+                entry = new Entry(metadata.getBucket() + "/" + getVersion(metadata),
+                        SystemClock.elapsedRealtime(), mTtlMillis);
+            } else {
+                Log.w(TAG, "Could not fetch metadata for " + path, task.getException());
+                // Better a stale version than a cache miss
+                entry = new Entry(lastVersion,
+                        SystemClock.elapsedRealtime(), Math.min(mTtlMillis, FAILURE_TTL_MS));
+            }
+
+            synchronized (mEntries) {
+                mFetching.remove(path);
+                mEntries.put(path, entry);
+                if (task.isSuccessful() && entry.mVersion != null) {
+                    persist(path, entry.mVersion);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the version persisted by an earlier process, expired so that it is fetched again.
+     */
+    @Nullable
+    private Entry restore(@NonNull String path) {
+        String version = mPrefs.getString(KEY_VERSION_PREFIX + path, null);
+        if (version == null) { return null; }
+
+        Entry entry = new Entry(version, 0, 0);
+        mEntries.put(path, entry);
+        return entry;
+    }
+
+    private void persist(@NonNull String path, @NonNull String version) {
+        if (mPersistedCount < 0) {
+            mPersistedCount = 0;
+            for (String key : mPrefs.getAll().keySet()) {
+                if (key.startsWith(KEY_VERSION_PREFIX)) { mPersistedCount++; }
+            }
+        }
+
+        SharedPreferences.Editor editor = mPrefs.edit();
+        if (!mPrefs.contains(KEY_VERSION_PREFIX + path)) {
+            mPersistedCount++;
+        }
+        editor.putString(KEY_VERSION_PREFIX + path, version)
+                .putLong(KEY_FETCHED_PREFIX + path, System.currentTimeMillis());
+        if (mPersistedCount > mMaxSize) {
+            trim(editor, path);
+        }
+        editor.apply();
+    }
+
+    /**
+     * Drops the least recently fetched versions, down to three quarters of the maximum size so
+     * that this full scan only runs once in a while.
+     */
+    private void trim(@NonNull SharedPreferences.Editor editor, @NonNull String keep) {
+        List<String> paths = new ArrayList<>();
+        for (String key : mPrefs.getAll().keySet()) {
+            if (key.startsWith(KEY_VERSION_PREFIX)) {
+                String path = key.substring(KEY_VERSION_PREFIX.length());
+                if (!path.equals(keep)) { paths.add(path); }
+            }
+        }
+        Collections.sort(paths, (a, b) -> Long.compare(
+                mPrefs.getLong(KEY_FETCHED_PREFIX + a, 0),
+                mPrefs.getLong(KEY_FETCHED_PREFIX + b, 0)));
+
+        int excess = paths.size() + 1 - mMaxSize * 3 / 4;
+        for (int i = 0; i < excess && i < paths.size(); i++) {
+            remove(editor, paths.get(i));
+        }
+        mPersistedCount = paths.size() + 1 - Math.max(0, Math.min(excess, paths.size()));
+    }
+
+    /**
+     * Forget the version of an object, for example right after uploading a new version of it.
+     */
+    public void invalidate(@NonNull StorageReference reference) {
+        synchronized (mEntries) {
+            mEntries.remove(reference.getPath());
+            if (mPrefs.contains(KEY_VERSION_PREFIX + reference.getPath())) {
+                remove(mPrefs.edit(), reference.getPath()).apply();
+                if (mPersistedCount > 0) { mPersistedCount--; }
+            }
+        }
+    }
+
+    /**
+     * Forget all versions.
+     */
+    public void clear() {
+        synchronized (mEntries) {
+            mEntries.clear();
+            mPrefs.edit().clear().apply();
+            mPersistedCount = 0;
+        }
+    }
+
+    @NonNull
+    private static SharedPreferences.Editor remove(@NonNull SharedPreferences.Editor editor,
+                                                   @NonNull String path) {
+        return editor.remove(KEY_VERSION_PREFIX + path).remove(KEY_FETCHED_PREFIX + path);
+    }
+
+    @Nullable
+    private String getVersion(@NonNull StorageMetadata metadata) {
+        switch (mVersion) {
+            case GENERATION:
+                return metadata.getGeneration();
+            case MD5_HASH:
+                return metadata.getMd5Hash();
+            default:
+                throw new IllegalStateException("Unknown version: " + mVersion);
+        }
+    }
+
+    private static final class Entry {
+        final String mVersion;
+        final long mFetchedAt;
+        final long mTtlMillis;
+
+        Entry(@Nullable String version, long fetchedAt, long ttlMillis) {
+            mVersion = version;
+            mFetchedAt = fetchedAt;
+            mTtlMillis = ttlMillis;
+        }
+
+        boolean isExpired(long now) {
+            return now - mFetchedAt >= mTtlMillis;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.firebase.ui.storage.images;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Preloads the images of upcoming RecyclerView rows into Glide's memory and disk caches while the
+ * user scrolls, for example in a {@code FirebaseRecyclerAdapter} or
+ * {@code FirestoreRecyclerAdapter}. Images are loaded through the {@link StorageReference} loader
+ * registered with Glide, such as {@link FirebaseImageLoader}.
+ * <p>
+ * For preloaded images to be used, the preload request must match the request that displays the
+ * image: pass the same options (transformations, placeholders, ...) as a template, and a size
+ * provider that returns the size of the displayed image.
+ * <p>
+ * Requires {@code androidx.recyclerview:recyclerview} and Glide's
+ * {@code recyclerview-integration}, which FirebaseUI doesn't add to your app.
+ * <pre>
+ *     StorageReferencePreloader preloader = new StorageReferencePreloader(
+ *             Glide.with(this), position -&gt; Collections.singletonList(getRef(position)));
+ *     recyclerView.addOnScrollListener(preloader.createScrollListener(
+ *             new ViewPreloadSizeProvider&lt;&gt;(), 10));
+ * </pre>
+ */
+public class StorageReferencePreloader
+        implements ListPreloader.PreloadModelProvider<StorageReference> {
+
+    /**
+     * Maps an adapter position to the images of that row.
+     */
+    public interface ReferenceProvider {
+        @NonNull
+        List<StorageReference> getReferences(int position);
+    }
+
+    private final RequestManager mRequestManager;
+    private final RequestBuilder<?> mRequestTemplate;
+    private final ReferenceProvider mReferenceProvider;
+
+    /**
+     * Preload images with Glide's default drawable request.
+     */
+    public StorageReferencePreloader(@NonNull RequestManager requestManager,
+                                     @NonNull ReferenceProvider referenceProvider) {
+        this(requestManager, requestManager.asDrawable(), referenceProvider);
+    }
+
+    /**
+     * @param requestTemplate request to clone for every preloaded image. Must use the same options
+     *                        as the request displaying the image.
+     */
+    public StorageReferencePreloader(@NonNull RequestManager requestManager,
+                                     @NonNull RequestBuilder<?> requestTemplate,
+                                     @NonNull ReferenceProvider referenceProvider) {
+        mRequestManager = requestManager;
+        mRequestTemplate = requestTemplate;
+        mReferenceProvider = referenceProvider;
+    }
+
+    /**
+     * Create a scroll listener to add to the RecyclerView with
+     * {@code RecyclerView#addOnScrollListener}.
+     *
+     * @param sizeProvider the size of the displayed images.
+     * @param maxPreload   the number of rows ahead of the visible ones to preload.
+     */
+    @NonNull
+    public RecyclerViewPreloader<StorageReference> createScrollListener(
+            @NonNull ListPreloader.PreloadSizeProvider<StorageReference> sizeProvider,
+            int maxPreload) {
+        return new RecyclerViewPreloader<>(mRequestManager, this, sizeProvider, maxPreload);
+    }
+
+    @NonNull
+    @Override
+    public List<StorageReference> getPreloadItems(int position) {
+        return mReferenceProvider.getReferences(position);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull StorageReference reference) {
+        return mRequestTemplate.clone().load(reference);
+    }
+}
@@ -0,0 +1,24 @@
+package com.firebase.ui.storage.images;
+
+import com.google.firebase.storage.StorageReference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Picks a pre-resized variant of an image for the size Glide needs, so that small targets don't
+ * download the full-size original. See {@link ResizedImageVariantResolver} for the naming used by
+ * common resize pipelines.
+ */
+public interface VariantResolver {
+
+    /**
+     * @param original the image requested by the app.
+     * @param width    the target width in pixels, or a non-positive value if unknown.
+     * @param height   the target height in pixels, or a non-positive value if unknown.
+     * @return the variant to download, or null to download the original. The original is also
+     * downloaded until the variant is known to exist.
+     */
+    @Nullable
+    StorageReference getVariant(@NonNull StorageReference original, int width, int height);
+}
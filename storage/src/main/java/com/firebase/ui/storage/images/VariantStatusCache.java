@@ -0,0 +1,111 @@
+package com.firebase.ui.storage.images;
+
+import android.os.SystemClock;
+
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Remembers which pre-resized variants exist, so that {@link FirebaseImageLoader} only keys and
+ * downloads a variant once it is known to exist. Falling back to the original after a variant
+ * download failed would cache the original's bytes under the variant's key.
+ * <p>
+ * Unknown and expired variants are checked in the background with
+ * {@link StorageReference#getMetadata()}.
+ */
+final class VariantStatusCache {
+    private static final int MAX_SIZE = 512;
+    private static final long FOUND_TTL_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long MISSING_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long FAILURE_TTL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<String, Entry> mEntries =
+            new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_SIZE;
+                }
+            };
+    // Guarded by mEntries
+    private final Set<String> mChecking = new HashSet<>();
+
+    /**
+     * @return whether the variant is known to exist. Never blocks, unknown or expired variants
+     * are checked in the background for later loads.
+     */
+    public boolean exists(@NonNull StorageReference variant) {
+        String path = variant.getPath();
+        Entry entry;
+        boolean check;
+        synchronized (mEntries) {
+            entry = mEntries.get(path);
+            check = (entry == null || entry.isExpired(SystemClock.elapsedRealtime()))
+                    && mChecking.add(path);
+        }
+
+        if (check) {
+            check(variant, entry != null && entry.mExists);
+        }
+        return entry != null && entry.mExists;
+    }
+
+    /**
+     * Remember that a variant doesn't exist, e.g. after its download failed because it was
+     * deleted.
+     */
+    public void setMissing(@NonNull StorageReference variant) {
+        synchronized (mEntries) {
+            mEntries.put(variant.getPath(),
+                    new Entry(false, SystemClock.elapsedRealtime(), MISSING_TTL_MS));
+        }
+    }
+
+    private void check(@NonNull StorageReference variant, final boolean lastExists) {
+        final String path = variant.getPath();
+        variant.getMetadata().addOnCompleteListener(task -> {
+            long now = SystemClock.elapsedRealtime();
+            Entry entry;
+            if (task.isSuccessful()) {
+                entry = new Entry(true, now, FOUND_TTL_MS);
+            } else if (isNotFound(task.getException())) {
+                entry = new Entry(false, now, MISSING_TTL_MS);
+            } else {
+                entry = new Entry(lastExists, now, FAILURE_TTL_MS);
+            }
+
+            synchronized (mEntries) {
+                mChecking.remove(path);
+                mEntries.put(path, entry);
+            }
+        });
+    }
+
+    static boolean isNotFound(Exception e) {
+        return e instanceof StorageException && ((StorageException) e).getErrorCode()
+                == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
+
+    private static final class Entry {
+        final boolean mExists;
+        final long mCheckedAt;
+        final long mTtlMillis;
+
+        Entry(boolean exists, long checkedAt, long ttlMillis) {
+            mExists = exists;
+            mCheckedAt = checkedAt;
+            mTtlMillis = ttlMillis;
+        }
+
+        boolean isExpired(long now) {
+            return now - mCheckedAt >= mTtlMillis;
+        }
+    }
+}
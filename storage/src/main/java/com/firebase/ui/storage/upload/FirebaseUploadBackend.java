@@ -0,0 +1,74 @@
+package com.firebase.ui.storage.upload;
+
+import android.net.Uri;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * {@link UploadBackend} uploading to Cloud Storage with {@link StorageReference#putFile(Uri,
+ * StorageMetadata, Uri)}, so that uploads resume from their session instead of starting over.
+ */
+public class FirebaseUploadBackend implements UploadBackend {
+
+    private final FirebaseApp mApp;
+
+    public FirebaseUploadBackend() {
+        this(FirebaseApp.getInstance());
+    }
+
+    public FirebaseUploadBackend(@NonNull FirebaseApp app) {
+        mApp = app;
+    }
+
+    @NonNull
+    @Override
+    public Upload start(@NonNull UploadJob job,
+                        @Nullable Uri sessionUri,
+                        @NonNull final Callback callback) {
+        StorageReference reference = FirebaseStorage.getInstance(mApp, "gs://" + job.getBucket())
+                .getReference(job.getPath());
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(job.getContentType())
+                .build();
+
+        final UploadTask task = reference.putFile(job.getFile(), metadata, sessionUri);
+        task.addOnProgressListener(snapshot -> {
+            Uri session = snapshot.getUploadSessionUri();
+            if (session != null) {
+                callback.onSessionStarted(session);
+            }
+            callback.onProgress(snapshot.getBytesTransferred(), snapshot.getTotalByteCount());
+        }).addOnCompleteListener(result -> {
+            if (result.isSuccessful()) {
+                callback.onSuccess();
+            } else if (result.isCanceled()) {
+                callback.onFailure(new IOException("Upload cancelled"), false);
+            } else {
+                Exception e = result.getException();
+                callback.onFailure(e, isRetryable(e));
+            }
+        });
+
+        return () -> task.cancel();
+    }
+
+    private static boolean isRetryable(@NonNull Exception e) {
+        if (e instanceof StorageException) {
+            StorageException storageException = (StorageException) e;
+            return storageException.getIsRecoverableException()
+                    || storageException.getErrorCode() == StorageException.ERROR_RETRY_LIMIT_EXCEEDED
+                    || storageException.getCause() instanceof IOException;
+        }
+        return e instanceof IOException;
+    }
+}
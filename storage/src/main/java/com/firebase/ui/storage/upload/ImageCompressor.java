@@ -0,0 +1,318 @@
+package com.firebase.ui.storage.upload;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.Build;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.exifinterface.media.ExifInterface;
+
+/**
+ * Shrinks images before they are uploaded.
+ * <p>
+ * Images are decoded with subsampling so that a full-resolution bitmap is never held in memory,
+ * rotated according to their EXIF orientation, scaled down to a maximum dimension and re-encoded
+ * to a temporary file. Re-encoding drops all EXIF metadata, including the location. The resulting
+ * file can be uploaded with {@link UploadQueue#enqueue(com.google.firebase.storage.StorageReference,
+ * Uri, String, boolean)}:
+ * <pre>
+ *     compressor.compress(context, uri).addOnSuccessListener(file -&gt; queue.enqueue(
+ *             reference, Uri.fromFile(file), compressor.getContentType(), true));
+ * </pre>
+ */
+public final class ImageCompressor {
+
+    /**
+     * The format images are re-encoded to.
+     */
+    public enum Format {
+        JPEG("image/jpeg", ".jpg"),
+        WEBP("image/webp", ".webp");
+
+        private final String mContentType;
+        private final String mExtension;
+
+        Format(String contentType, String extension) {
+            mContentType = contentType;
+            mExtension = extension;
+        }
+    }
+
+    private static final String OUTPUT_DIR = "fui_uploads";
+
+    private static Executor sDefaultExecutor;
+
+    private final int mMaxDimension;
+    private final Format mFormat;
+    private final int mQuality;
+    private final Executor mExecutor;
+
+    private ImageCompressor(int maxDimension,
+                            @NonNull Format format,
+                            int quality,
+                            @NonNull Executor executor) {
+        mMaxDimension = maxDimension;
+        mFormat = format;
+        mQuality = quality;
+        mExecutor = executor;
+    }
+
+    /**
+     * @return the MIME type of the files written by this compressor.
+     */
+    @NonNull
+    public String getContentType() {
+        return mFormat.mContentType;
+    }
+
+    /**
+     * Compress an image on this compressor's executor.
+     *
+     * @return a task resolving to the compressed file. The caller owns the file and should delete
+     * it once it is no longer needed.
+     */
+    @NonNull
+    public Task<File> compress(@NonNull Context context, @NonNull final Uri image) {
+        final Context appContext = context.getApplicationContext();
+        final TaskCompletionSource<File> source = new TaskCompletionSource<>();
+        mExecutor.execute(() -> {
+            try {
+                source.setResult(compressBlocking(appContext, image));
+            } catch (IOException | RuntimeException e) {
+                source.setException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    /**
+     * Compress an image on the calling thread.
+     *
+     * @see #compress(Context, Uri)
+     */
+    @NonNull
+    @WorkerThread
+    public File compressBlocking(@NonNull Context context, @NonNull Uri image) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, image)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Could not decode " + image);
+        }
+
+        int orientation;
+        try (InputStream in = open(resolver, image)) {
+            orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        }
+
+        options.inSampleSize = getSampleSize(Math.max(options.outWidth, options.outHeight));
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap;
+        try (InputStream in = open(resolver, image)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Could not decode " + image);
+        }
+
+        bitmap = transform(bitmap, orientation);
+
+        File dir = new File(context.getFilesDir(), OUTPUT_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            bitmap.recycle();
+            throw new IOException("Could not create " + dir);
+        }
+
+        File file = File.createTempFile("upload", mFormat.mExtension, dir);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            if (!bitmap.compress(getCompressFormat(), mQuality, out)) {
+                throw new IOException("Could not encode " + image);
+            }
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            throw e;
+        } finally {
+            bitmap.recycle();
+        }
+        return file;
+    }
+
+    /**
+     * The largest power of two which keeps the decoded image at least as large as the target, so
+     * the final scaling step never upscales.
+     */
+    private int getSampleSize(int largestDimension) {
+        int sampleSize = 1;
+        while (largestDimension / (sampleSize * 2) >= mMaxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scales the bitmap down to the max dimension and applies the EXIF orientation in one pass.
+     */
+    @NonNull
+    private Bitmap transform(@NonNull Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        int largestDimension = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (largestDimension > mMaxDimension) {
+            float scale = (float) mMaxDimension / largestDimension;
+            matrix.postScale(scale, scale);
+        }
+
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            default:
+                // Nothing to do
+        }
+
+        if (matrix.isIdentity()) {
+            return bitmap;
+        }
+
+        Bitmap transformed = Bitmap.createBitmap(
+                bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (transformed != bitmap) {
+            bitmap.recycle();
+        }
+        return transformed;
+    }
+
+    @NonNull
+    @SuppressWarnings("deprecation")
+    private Bitmap.CompressFormat getCompressFormat() {
+        switch (mFormat) {
+            case JPEG:
+                return Bitmap.CompressFormat.JPEG;
+            case WEBP:
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                        ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+            default:
+                throw new IllegalStateException("Unknown format: " + mFormat);
+        }
+    }
+
+    @NonNull
+    private static InputStream open(@NonNull ContentResolver resolver,
+                                    @NonNull Uri image) throws IOException {
+        InputStream in = resolver.openInputStream(image);
+        if (in == null) {
+            throw new FileNotFoundException("Could not open " + image);
+        }
+        return in;
+    }
+
+    /**
+     * Shared by every compressor without its own executor. Its thread is only kept alive while
+     * there are images to compress, so it never needs to be shut down.
+     */
+    @NonNull
+    private static synchronized Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sDefaultExecutor = executor;
+        }
+        return sDefaultExecutor;
+    }
+
+    /**
+     * Builder for {@link ImageCompressor}.
+     */
+    public static final class Builder {
+        private int mMaxDimension = 2048;
+        private Format mFormat = Format.JPEG;
+        private int mQuality = 80;
+        private Executor mExecutor;
+
+        /**
+         * Set the maximum width and height of the compressed images, 2048 by default. Smaller
+         * images are not scaled up.
+         */
+        @NonNull
+        public Builder setMaxDimension(int maxDimension) {
+            if (maxDimension <= 0) {
+                throw new IllegalArgumentException("maxDimension must be positive");
+            }
+            mMaxDimension = maxDimension;
+            return this;
+        }
+
+        /**
+         * Set the format and quality of the compressed images, JPEG at 80 by default.
+         */
+        @NonNull
+        public Builder setFormat(@NonNull Format format, @IntRange(from = 0, to = 100) int quality) {
+            mFormat = format;
+            mQuality = quality;
+            return this;
+        }
+
+        /**
+         * Set the executor images are compressed on. Defaults to a single background thread shared
+         * by all compressors, so only one image is in memory at a time.
+         */
+        @NonNull
+        public Builder setExecutor(@NonNull Executor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        @NonNull
+        public ImageCompressor build() {
+            Executor executor = mExecutor == null ? getDefaultExecutor() : mExecutor;
+            return new ImageCompressor(mMaxDimension, mFormat, mQuality, executor);
+        }
+    }
+}
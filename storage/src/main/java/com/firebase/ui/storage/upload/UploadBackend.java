@@ -0,0 +1,55 @@
+package com.firebase.ui.storage.upload;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Performs the uploads scheduled by an {@link UploadQueue}. {@link FirebaseUploadBackend} uploads
+ * to Cloud Storage, tests can provide a fake implementation.
+ */
+public interface UploadBackend {
+
+    /**
+     * Receives the events of one upload. May be called on any thread.
+     */
+    interface Callback {
+        /**
+         * A resumable session was created. It is persisted so the upload can be resumed with
+         * {@link #start} after the process dies.
+         */
+        void onSessionStarted(@NonNull Uri sessionUri);
+
+        /**
+         * @param totalBytes the size of the file, or -1 if unknown.
+         */
+        void onProgress(long bytesTransferred, long totalBytes);
+
+        void onSuccess();
+
+        /**
+         * @param retryable true if the error is transient (network drop, server error...) and the
+         *                  upload should be tried again later.
+         */
+        void onFailure(@NonNull Exception e, boolean retryable);
+    }
+
+    /**
+     * A running upload.
+     */
+    interface Upload {
+        /**
+         * Stop uploading. The callback must not report success after this.
+         */
+        void cancel();
+    }
+
+    /**
+     * Start or resume an upload.
+     *
+     * @param sessionUri the session reported by a previous attempt, or null to start from scratch.
+     */
+    @NonNull
+    Upload start(@NonNull UploadJob job, @Nullable Uri sessionUri, @NonNull Callback callback);
+}
@@ -0,0 +1,320 @@
+package com.firebase.ui.storage.upload;
+
+import android.net.Uri;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.ObjectsCompat;
+
+/**
+ * Immutable snapshot of an upload managed by an {@link UploadQueue}.
+ */
+public final class UploadJob {
+
+    /**
+     * The lifecycle of an upload.
+     */
+    public enum State {
+        /** Waiting for a free upload slot. */
+        QUEUED,
+        /** Uploading. */
+        RUNNING,
+        /** Failed with a recoverable error, will be retried after a backoff delay. */
+        WAITING_TO_RETRY,
+        /** Uploaded. */
+        SUCCEEDED,
+        /** Failed with an unrecoverable error or ran out of attempts. */
+        FAILED,
+        /** Cancelled with {@link UploadQueue#cancel(String)}. */
+        CANCELLED;
+
+        /**
+         * @return true if the upload will not make any more progress.
+         */
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private static final String KEY_ID = "id";
+    private static final String KEY_BUCKET = "bucket";
+    private static final String KEY_PATH = "path";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_CONTENT_TYPE = "contentType";
+    private static final String KEY_SESSION_URI = "sessionUri";
+    private static final String KEY_ATTEMPTS = "attempts";
+    private static final String KEY_DELETE_FILE = "deleteFile";
+    private static final String KEY_SEQUENCE = "sequence";
+    private static final String KEY_FAILED = "failed";
+
+    private final String mId;
+    private final String mBucket;
+    private final String mPath;
+    private final Uri mFile;
+    private final String mContentType;
+    private final boolean mDeleteFile;
+    private final long mSequence;
+
+    private final State mState;
+    private final Uri mSessionUri;
+    private final int mAttempts;
+    private final long mBytesTransferred;
+    private final long mTotalBytes;
+    private final Exception mError;
+
+    UploadJob(@NonNull String id,
+              @NonNull String bucket,
+              @NonNull String path,
+              @NonNull Uri file,
+              @Nullable String contentType,
+              boolean deleteFile,
+              long sequence) {
+        this(id, bucket, path, file, contentType, deleteFile, sequence,
+                State.QUEUED, null, 0, 0, -1, null);
+    }
+
+    private UploadJob(@NonNull String id,
+                      @NonNull String bucket,
+                      @NonNull String path,
+                      @NonNull Uri file,
+                      @Nullable String contentType,
+                      boolean deleteFile,
+                      long sequence,
+                      @NonNull State state,
+                      @Nullable Uri sessionUri,
+                      int attempts,
+                      long bytesTransferred,
+                      long totalBytes,
+                      @Nullable Exception error) {
+        mId = id;
+        mBucket = bucket;
+        mPath = path;
+        mFile = file;
+        mContentType = contentType;
+        mDeleteFile = deleteFile;
+        mSequence = sequence;
+        mState = state;
+        mSessionUri = sessionUri;
+        mAttempts = attempts;
+        mBytesTransferred = bytesTransferred;
+        mTotalBytes = totalBytes;
+        mError = error;
+    }
+
+    /**
+     * @return the id returned by {@link UploadQueue#enqueue}.
+     */
+    @NonNull
+    public String getId() {
+        return mId;
+    }
+
+    @NonNull
+    public String getBucket() {
+        return mBucket;
+    }
+
+    @NonNull
+    public String getPath() {
+        return mPath;
+    }
+
+    /**
+     * @return the local file being uploaded.
+     */
+    @NonNull
+    public Uri getFile() {
+        return mFile;
+    }
+
+    @Nullable
+    public String getContentType() {
+        return mContentType;
+    }
+
+    /**
+     * @return true if the file is deleted once the upload succeeds or is cancelled.
+     */
+    public boolean isDeleteFile() {
+        return mDeleteFile;
+    }
+
+    /**
+     * @return the position of the upload in the order uploads were enqueued.
+     */
+    long getSequence() {
+        return mSequence;
+    }
+
+    @NonNull
+    public State getState() {
+        return mState;
+    }
+
+    /**
+     * @return the resumable upload session, or null if the upload has not started a session yet.
+     */
+    @Nullable
+    public Uri getSessionUri() {
+        return mSessionUri;
+    }
+
+    /**
+     * @return how many times the upload was started, including the current attempt.
+     */
+    public int getAttempts() {
+        return mAttempts;
+    }
+
+    public long getBytesTransferred() {
+        return mBytesTransferred;
+    }
+
+    /**
+     * @return the size of the file, or -1 if it is not known yet.
+     */
+    public long getTotalBytes() {
+        return mTotalBytes;
+    }
+
+    /**
+     * @return the last error, if the upload is waiting to retry or failed. Errors are not
+     * persisted, so this is null for an upload which failed before the process restarted.
+     */
+    @Nullable
+    public Exception getError() {
+        return mError;
+    }
+
+    @NonNull
+    UploadJob withState(@NonNull State state, @Nullable Exception error) {
+        return copy(state, mSessionUri, mAttempts, mBytesTransferred, mTotalBytes, error);
+    }
+
+    @NonNull
+    UploadJob withNewAttempt() {
+        return copy(State.RUNNING, mSessionUri, mAttempts + 1, mBytesTransferred, mTotalBytes, null);
+    }
+
+    @NonNull
+    UploadJob withSessionUri(@Nullable Uri sessionUri) {
+        return copy(mState, sessionUri, mAttempts, mBytesTransferred, mTotalBytes, mError);
+    }
+
+    @NonNull
+    UploadJob withProgress(long bytesTransferred, long totalBytes) {
+        return copy(mState, mSessionUri, mAttempts, bytesTransferred, totalBytes, mError);
+    }
+
+    @NonNull
+    UploadJob withAttempts(int attempts) {
+        return copy(mState, mSessionUri, attempts, mBytesTransferred, mTotalBytes, mError);
+    }
+
+    @NonNull
+    private UploadJob copy(@NonNull State state,
+                           @Nullable Uri sessionUri,
+                           int attempts,
+                           long bytesTransferred,
+                           long totalBytes,
+                           @Nullable Exception error) {
+        return new UploadJob(mId, mBucket, mPath, mFile, mContentType, mDeleteFile, mSequence,
+                state, sessionUri, attempts, bytesTransferred, totalBytes, error);
+    }
+
+    @NonNull
+    String toJson() {
+        try {
+            JSONObject json = new JSONObject()
+                    .put(KEY_ID, mId)
+                    .put(KEY_BUCKET, mBucket)
+                    .put(KEY_PATH, mPath)
+                    .put(KEY_FILE, mFile.toString())
+                    .put(KEY_ATTEMPTS, mAttempts)
+                    .put(KEY_DELETE_FILE, mDeleteFile)
+                    .put(KEY_SEQUENCE, mSequence)
+                    .put(KEY_FAILED, mState == State.FAILED);
+            if (mContentType != null) {
+                json.put(KEY_CONTENT_TYPE, mContentType);
+            }
+            if (mSessionUri != null) {
+                json.put(KEY_SESSION_URI, mSessionUri.toString());
+            }
+            return json.toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Restores a persisted job, either failed or queued. Progress is not persisted, it is reported
+     * again once the upload resumes.
+     */
+    @NonNull
+    static UploadJob fromJson(@NonNull String value) throws JSONException {
+        JSONObject json = new JSONObject(value);
+        String sessionUri = json.optString(KEY_SESSION_URI, null);
+        return new UploadJob(
+                json.getString(KEY_ID),
+                json.getString(KEY_BUCKET),
+                json.getString(KEY_PATH),
+                Uri.parse(json.getString(KEY_FILE)),
+                json.optString(KEY_CONTENT_TYPE, null),
+                json.optBoolean(KEY_DELETE_FILE),
+                json.optLong(KEY_SEQUENCE),
+                json.optBoolean(KEY_FAILED) ? State.FAILED : State.QUEUED,
+                sessionUri == null ? null : Uri.parse(sessionUri),
+                json.optInt(KEY_ATTEMPTS),
+                0,
+                -1,
+                null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        UploadJob job = (UploadJob) o;
+
+        return mDeleteFile == job.mDeleteFile
+                && mSequence == job.mSequence
+                && mAttempts == job.mAttempts
+                && mBytesTransferred == job.mBytesTransferred
+                && mTotalBytes == job.mTotalBytes
+                && mId.equals(job.mId)
+                && mBucket.equals(job.mBucket)
+                && mPath.equals(job.mPath)
+                && mFile.equals(job.mFile)
+                && ObjectsCompat.equals(mContentType, job.mContentType)
+                && mState == job.mState
+                && ObjectsCompat.equals(mSessionUri, job.mSessionUri)
+                && ObjectsCompat.equals(mError, job.mError);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mId.hashCode();
+        result = 31 * result + mState.hashCode();
+        result = 31 * result + mAttempts;
+        result = 31 * result + (int) (mBytesTransferred ^ (mBytesTransferred >>> 32));
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "UploadJob{" +
+                "mId='" + mId + '\'' +
+                ", mBucket='" + mBucket + '\'' +
+                ", mPath='" + mPath + '\'' +
+                ", mState=" + mState +
+                ", mAttempts=" + mAttempts +
+                ", mBytesTransferred=" + mBytesTransferred +
+                ", mTotalBytes=" + mTotalBytes +
+                '}';
+    }
+}
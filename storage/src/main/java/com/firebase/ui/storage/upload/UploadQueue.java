@@ -0,0 +1,414 @@
+package com.firebase.ui.storage.upload;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.storage.StorageReference;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+/**
+ * Persistent queue of uploads to Cloud Storage.
+ * <p>
+ * Pending uploads are saved to disk along with their resumable session, so an upload interrupted
+ * by a network drop or by the process dying continues where it stopped instead of starting from
+ * zero. At most a fixed number of uploads run at once, and uploads failing with a transient error
+ * are retried with exponential backoff. Progress is observable with {@link #getJob(String)} and
+ * {@link #getJobs()}.
+ * <p>
+ * Create a single queue per process, for example in your {@code Application}, so that pending
+ * uploads resume when the app starts. Uploaded files must stay readable across restarts: prefer
+ * files in your app's storage over {@code content://} URIs whose permission grants expire. All
+ * methods must be called on the main thread.
+ * <p>
+ * Requires {@code androidx.lifecycle:lifecycle-livedata}, which FirebaseUI doesn't add to your app.
+ */
+public class UploadQueue {
+
+    private static final String TAG = "UploadQueue";
+
+    private static final String SHARED_PREF_NAME = "com.firebase.ui.storage.upload.UploadQueue";
+
+    private static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 2;
+    private static final int DEFAULT_MAX_ATTEMPTS = 8;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+
+    private final SharedPreferences mPrefs;
+    private final UploadBackend mBackend;
+    private final int mMaxConcurrentUploads;
+    private final int mMaxAttempts;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Only accessed on the main thread
+    private final Map<String, UploadJob> mJobs = new LinkedHashMap<>();
+    private final Map<String, MutableLiveData<UploadJob>> mJobData = new HashMap<>();
+    private final MutableLiveData<List<UploadJob>> mAllJobs = new MutableLiveData<>();
+    private final ArrayDeque<String> mQueue = new ArrayDeque<>();
+    private final Map<String, Attempt> mRunning = new HashMap<>();
+    private final Map<String, Runnable> mRetries = new HashMap<>();
+    private long mNextSequence;
+
+    /**
+     * Upload to Cloud Storage with the default {@code FirebaseApp}.
+     */
+    @MainThread
+    public UploadQueue(@NonNull Context context) {
+        this(context, new FirebaseUploadBackend());
+    }
+
+    @MainThread
+    public UploadQueue(@NonNull Context context, @NonNull UploadBackend backend) {
+        this(context, backend, DEFAULT_MAX_CONCURRENT_UPLOADS, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param maxConcurrentUploads the maximum number of uploads to run at once.
+     * @param maxAttempts          how many times an upload is started before it is marked as
+     *                             {@link UploadJob.State#FAILED}.
+     */
+    @MainThread
+    public UploadQueue(@NonNull Context context,
+                       @NonNull UploadBackend backend,
+                       int maxConcurrentUploads,
+                       int maxAttempts) {
+        if (maxConcurrentUploads <= 0) {
+            throw new IllegalArgumentException("maxConcurrentUploads must be positive");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+
+        mPrefs = context.getApplicationContext()
+                .getSharedPreferences(SHARED_PREF_NAME, Context.MODE_PRIVATE);
+        mBackend = backend;
+        mMaxConcurrentUploads = maxConcurrentUploads;
+        mMaxAttempts = maxAttempts;
+
+        restore();
+        startUploads();
+    }
+
+    /**
+     * Upload a file to the given reference.
+     *
+     * @param contentType the MIME type of the file, or null to let Cloud Storage infer it.
+     * @return the id of the upload.
+     */
+    @NonNull
+    @MainThread
+    public String enqueue(@NonNull StorageReference reference,
+                          @NonNull Uri file,
+                          @Nullable String contentType) {
+        return enqueue(reference.getBucket(), reference.getPath(), file, contentType, false);
+    }
+
+    /**
+     * Upload a temporary file, for example one written by {@link ImageCompressor}.
+     *
+     * @param deleteFile true to delete the file once the upload succeeds or is cancelled, or when
+     *                   a failed upload is cleared with {@link #clearFinished()}. Only applies to
+     *                   {@code file://} URIs.
+     * @see #enqueue(StorageReference, Uri, String)
+     */
+    @NonNull
+    @MainThread
+    public String enqueue(@NonNull StorageReference reference,
+                          @NonNull Uri file,
+                          @Nullable String contentType,
+                          boolean deleteFile) {
+        return enqueue(reference.getBucket(), reference.getPath(), file, contentType, deleteFile);
+    }
+
+    /**
+     * @see #enqueue(StorageReference, Uri, String, boolean)
+     */
+    @NonNull
+    @MainThread
+    public String enqueue(@NonNull String bucket,
+                          @NonNull String path,
+                          @NonNull Uri file,
+                          @Nullable String contentType,
+                          boolean deleteFile) {
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(),
+                bucket, path, file, contentType, deleteFile, mNextSequence++);
+        update(job, true);
+        mQueue.add(job.getId());
+        startUploads();
+        return job.getId();
+    }
+
+    /**
+     * Stop an upload and forget its session. Does nothing if the upload already finished.
+     */
+    @MainThread
+    public void cancel(@NonNull String id) {
+        UploadJob job = mJobs.get(id);
+        if (job == null || job.getState().isFinished()) {
+            return;
+        }
+
+        mQueue.remove(id);
+        Runnable retry = mRetries.remove(id);
+        if (retry != null) {
+            mHandler.removeCallbacks(retry);
+        }
+        Attempt attempt = mRunning.remove(id);
+        if (attempt != null && attempt.mUpload != null) {
+            attempt.mUpload.cancel();
+        }
+
+        finish(job, UploadJob.State.CANCELLED, null);
+        startUploads();
+    }
+
+    /**
+     * Start a failed upload again, with a fresh set of attempts. Does nothing for other uploads.
+     */
+    @MainThread
+    public void retry(@NonNull String id) {
+        UploadJob job = mJobs.get(id);
+        if (job == null || job.getState() != UploadJob.State.FAILED) {
+            return;
+        }
+
+        update(job.withAttempts(0).withSessionUri(null).withState(UploadJob.State.QUEUED, null),
+                true);
+        mQueue.add(id);
+        startUploads();
+    }
+
+    /**
+     * Forget the uploads that finished, so they are no longer reported by {@link #getJobs()}.
+     */
+    @MainThread
+    public void clearFinished() {
+        Iterator<UploadJob> it = mJobs.values().iterator();
+        while (it.hasNext()) {
+            UploadJob job = it.next();
+            if (job.getState().isFinished()) {
+                if (job.getState() == UploadJob.State.FAILED) {
+                    mPrefs.edit().remove(job.getId()).apply();
+                    deleteFile(job);
+                }
+                it.remove();
+                mJobData.remove(job.getId());
+            }
+        }
+        mAllJobs.setValue(new ArrayList<>(mJobs.values()));
+    }
+
+    /**
+     * Observe an upload. The value is null if the id is unknown.
+     */
+    @NonNull
+    @MainThread
+    public LiveData<UploadJob> getJob(@NonNull String id) {
+        MutableLiveData<UploadJob> data = mJobData.get(id);
+        if (data == null) {
+            data = new MutableLiveData<>();
+            data.setValue(mJobs.get(id));
+            mJobData.put(id, data);
+        }
+        return data;
+    }
+
+    /**
+     * Observe all uploads, in the order they were enqueued.
+     */
+    @NonNull
+    @MainThread
+    public LiveData<List<UploadJob>> getJobs() {
+        return mAllJobs;
+    }
+
+    private void restore() {
+        List<UploadJob> jobs = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            try {
+                jobs.add(UploadJob.fromJson((String) entry.getValue()));
+            } catch (JSONException | ClassCastException e) {
+                Log.w(TAG, "Dropping unreadable upload " + entry.getKey(), e);
+                mPrefs.edit().remove(entry.getKey()).apply();
+            }
+        }
+
+        // SharedPreferences don't keep the order of their entries
+        Collections.sort(jobs, (a, b) -> Long.compare(a.getSequence(), b.getSequence()));
+        for (UploadJob job : jobs) {
+            mJobs.put(job.getId(), job);
+            if (job.getState() != UploadJob.State.FAILED) {
+                mQueue.add(job.getId());
+            }
+            mNextSequence = Math.max(mNextSequence, job.getSequence() + 1);
+        }
+        mAllJobs.setValue(new ArrayList<>(mJobs.values()));
+    }
+
+    private void startUploads() {
+        while (mRunning.size() < mMaxConcurrentUploads && !mQueue.isEmpty()) {
+            UploadJob job = mJobs.get(mQueue.poll()).withNewAttempt();
+            update(job, true);
+
+            // Registered before starting in case the backend calls back synchronously
+            Attempt attempt = new Attempt(job.getId());
+            mRunning.put(job.getId(), attempt);
+            attempt.mUpload = mBackend.start(job, job.getSessionUri(), attempt);
+        }
+    }
+
+    private void onSessionStarted(@NonNull String id, @NonNull Uri sessionUri) {
+        UploadJob job = mJobs.get(id);
+        if (!sessionUri.equals(job.getSessionUri())) {
+            update(job.withSessionUri(sessionUri), true);
+        }
+    }
+
+    private void onProgress(@NonNull String id, long bytesTransferred, long totalBytes) {
+        update(mJobs.get(id).withProgress(bytesTransferred, totalBytes), false);
+    }
+
+    private void onSuccess(@NonNull String id) {
+        mRunning.remove(id);
+        finish(mJobs.get(id), UploadJob.State.SUCCEEDED, null);
+        startUploads();
+    }
+
+    private void onFailure(@NonNull final String id, @NonNull Exception e, boolean retryable) {
+        mRunning.remove(id);
+
+        UploadJob job = mJobs.get(id);
+        if (!retryable && job.getSessionUri() != null) {
+            // The session may have expired, start over with a new one
+            job = job.withSessionUri(null);
+            retryable = true;
+        }
+
+        if (retryable && job.getAttempts() < mMaxAttempts) {
+            Log.w(TAG, "Upload " + id + " failed, retrying", e);
+            update(job.withState(UploadJob.State.WAITING_TO_RETRY, e), true);
+
+            Runnable retry = () -> {
+                mRetries.remove(id);
+                update(mJobs.get(id).withState(UploadJob.State.QUEUED, null), false);
+                mQueue.add(id);
+                startUploads();
+            };
+            mRetries.put(id, retry);
+            mHandler.postDelayed(retry, getBackoffMillis(job.getAttempts()));
+        } else {
+            finish(job, UploadJob.State.FAILED, e);
+        }
+
+        startUploads();
+    }
+
+    private void finish(@NonNull UploadJob job,
+                        @NonNull UploadJob.State state,
+                        @Nullable Exception error) {
+        if (state == UploadJob.State.FAILED) {
+            // Failed uploads stay persisted with their file, so they can be retried after a
+            // restart until they are cleared
+            update(job.withState(state, error), true);
+            return;
+        }
+
+        mPrefs.edit().remove(job.getId()).apply();
+        deleteFile(job);
+        update(job.withState(state, error), false);
+    }
+
+    private static void deleteFile(@NonNull UploadJob job) {
+        Uri file = job.getFile();
+        if (job.isDeleteFile() && "file".equals(file.getScheme()) && file.getPath() != null) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(file.getPath()).delete();
+        }
+    }
+
+    private void update(@NonNull UploadJob job, boolean persist) {
+        if (persist) {
+            mPrefs.edit().putString(job.getId(), job.toJson()).apply();
+        }
+
+        mJobs.put(job.getId(), job);
+        MutableLiveData<UploadJob> data = mJobData.get(job.getId());
+        if (data != null) {
+            data.setValue(job);
+        }
+        mAllJobs.setValue(new ArrayList<>(mJobs.values()));
+    }
+
+    private static long getBackoffMillis(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(INITIAL_BACKOFF_MS << shift, MAX_BACKOFF_MS);
+    }
+
+    /**
+     * Forwards the backend events of one attempt to the main thread, dropping them once the
+     * attempt is no longer current (cancelled or superseded).
+     */
+    private final class Attempt implements UploadBackend.Callback {
+        private final String mId;
+        UploadBackend.Upload mUpload;
+
+        Attempt(@NonNull String id) {
+            mId = id;
+        }
+
+        @Override
+        public void onSessionStarted(@NonNull Uri sessionUri) {
+            runIfCurrent(() -> UploadQueue.this.onSessionStarted(mId, sessionUri));
+        }
+
+        @Override
+        public void onProgress(long bytesTransferred, long totalBytes) {
+            runIfCurrent(() -> UploadQueue.this.onProgress(mId, bytesTransferred, totalBytes));
+        }
+
+        @Override
+        public void onSuccess() {
+            runIfCurrent(() -> UploadQueue.this.onSuccess(mId));
+        }
+
+        @Override
+        public void onFailure(@NonNull Exception e, boolean retryable) {
+            runIfCurrent(() -> UploadQueue.this.onFailure(mId, e, retryable));
+        }
+
+        private void runIfCurrent(@NonNull Runnable runnable) {
+            Runnable guarded = () -> {
+                if (mRunning.get(mId) == this) {
+                    runnable.run();
+                }
+            };
+
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                guarded.run();
+            } else {
+                mHandler.post(guarded);
+            }
+        }
+    }
+}
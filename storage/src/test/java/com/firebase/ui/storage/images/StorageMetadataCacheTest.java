@@ -0,0 +1,148 @@
+package com.firebase.ui.storage.images;
+
+import android.content.Context;
+import android.os.Looper;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class StorageMetadataCacheTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void testGetCacheVersion_fetchesInBackground() {
+        StorageMetadataCache cache = newCache();
+        StorageReference reference = mockReference("images/a.jpg", "1");
+
+        assertThat(cache.getCacheVersion(reference)).isNull();
+        idle();
+
+        assertThat(cache.getCacheVersion(reference)).isEqualTo("bucket/1");
+        verify(reference, times(1)).getMetadata();
+    }
+
+    @Test
+    public void testGetCacheVersion_restoresVersionAfterRestart() {
+        StorageReference reference = mockReference("images/a.jpg", "1");
+        newCache().getCacheVersion(reference);
+        idle();
+
+        // A new process starts with an empty memory cache
+        StorageReference restarted = mockReference("images/a.jpg", "2");
+        StorageMetadataCache cache = newCache();
+
+        assertThat(cache.getCacheVersion(restarted)).isEqualTo("bucket/1");
+        idle();
+        assertThat(cache.getCacheVersion(restarted)).isEqualTo("bucket/2");
+    }
+
+    @Test
+    public void testInvalidate_forgetsPersistedVersion() {
+        StorageReference reference = mockReference("images/a.jpg", "1");
+        StorageMetadataCache cache = newCache();
+        cache.getCacheVersion(reference);
+        idle();
+
+        cache.invalidate(reference);
+
+        assertThat(newCache().getCacheVersion(mockReference("images/a.jpg", "1"))).isNull();
+    }
+
+    @Test
+    public void testPersist_dropsOldestBeyondMaxSize() {
+        StorageMetadataCache cache = new StorageMetadataCache(
+                mContext, StorageMetadataCache.Version.GENERATION, 1, TimeUnit.HOURS, 4);
+        for (int i = 0; i < 5; i++) {
+            cache.getCacheVersion(mockReference("images/" + i, "1"));
+            // Each version is fetched a second later than the previous one
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(1));
+        }
+
+        StorageMetadataCache restarted = newCache();
+        assertThat(restarted.getCacheVersion(mockReference("images/0", "1"))).isNull();
+        assertThat(restarted.getCacheVersion(mockReference("images/4", "1")))
+                .isEqualTo("bucket/1");
+    }
+
+    @Test
+    public void testLoader_unknownVersion_skipsDiskCache() {
+        ModelLoader<StorageReference, InputStream> loader =
+                new FirebaseImageLoader(newCache(), null);
+        StorageReference reference = mockReference("images/a.jpg", "1");
+
+        // Both loads must miss the stale entry cached under the path alone
+        ModelLoader.LoadData<InputStream> first =
+                loader.buildLoadData(reference, 100, 100, new Options());
+        ModelLoader.LoadData<InputStream> second =
+                loader.buildLoadData(reference, 100, 100, new Options());
+        assertThat(first.sourceKey).isNotEqualTo(second.sourceKey);
+
+        idle();
+        ModelLoader.LoadData<InputStream> versioned =
+                loader.buildLoadData(reference, 100, 100, new Options());
+        assertThat(versioned.sourceKey)
+                .isEqualTo(loader.buildLoadData(reference, 100, 100, new Options()).sourceKey);
+    }
+
+    @Test
+    public void testLoader_withoutMetadataCache_neverFetchesMetadata() {
+        ModelLoader<StorageReference, InputStream> loader = new FirebaseImageLoader();
+        StorageReference reference = mockReference("images/a.jpg", "1");
+
+        assertThat(loader.buildLoadData(reference, 100, 100, new Options()).sourceKey)
+                .isEqualTo(loader.buildLoadData(reference, 100, 100, new Options()).sourceKey);
+        verify(reference, never()).getMetadata();
+    }
+
+    private StorageMetadataCache newCache() {
+        return new StorageMetadataCache(
+                mContext, StorageMetadataCache.Version.GENERATION, 1, TimeUnit.HOURS);
+    }
+
+    private static StorageReference mockReference(String path, String generation) {
+        StorageMetadata metadata = mock(StorageMetadata.class);
+        when(metadata.getBucket()).thenReturn("bucket");
+        when(metadata.getGeneration()).thenReturn(generation);
+
+        StorageReference reference = mock(StorageReference.class);
+        when(reference.getPath()).thenReturn(path);
+        when(reference.getBucket()).thenReturn("bucket");
+        when(reference.getMetadata()).thenReturn(Tasks.forResult(metadata));
+        return reference;
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,59 @@
+package com.firebase.ui.storage.upload;
+
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Records the uploads started by an {@link UploadQueue} so tests can complete them by hand.
+ */
+public class FakeUploadBackend implements UploadBackend {
+
+    public static class FakeUpload implements Upload {
+        public final UploadJob job;
+        public final Uri sessionUri;
+        public final Callback callback;
+        public boolean cancelled;
+
+        FakeUpload(UploadJob job, Uri sessionUri, Callback callback) {
+            this.job = job;
+            this.sessionUri = sessionUri;
+            this.callback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    public final List<FakeUpload> uploads = new ArrayList<>();
+
+    @NonNull
+    @Override
+    public Upload start(@NonNull UploadJob job,
+                        @Nullable Uri sessionUri,
+                        @NonNull Callback callback) {
+        FakeUpload upload = new FakeUpload(job, sessionUri, callback);
+        uploads.add(upload);
+        return upload;
+    }
+
+    @NonNull
+    public FakeUpload getLast() {
+        return uploads.get(uploads.size() - 1);
+    }
+
+    @NonNull
+    public List<String> getStartedIds() {
+        List<String> ids = new ArrayList<>();
+        for (FakeUpload upload : uploads) {
+            ids.add(upload.job.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,188 @@
+package com.firebase.ui.storage.upload;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.net.Uri;
+
+import com.google.android.gms.tasks.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import androidx.exifinterface.media.ExifInterface;
+import androidx.test.core.app.ApplicationProvider;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ImageCompressorTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void testCompress_scalesDownToMaxDimension() throws IOException {
+        ImageCompressor compressor = newBuilder().setMaxDimension(100).build();
+
+        File file = compress(compressor, writeImage(newHalvesBitmap(400, 200)));
+
+        BitmapFactory.Options bounds = decodeBounds(file);
+        assertThat(bounds.outWidth).isEqualTo(100);
+        assertThat(bounds.outHeight).isEqualTo(50);
+    }
+
+    @Test
+    public void testCompress_subsamplesLargeImagesWithoutUndershooting() throws IOException {
+        ImageCompressor compressor = newBuilder().setMaxDimension(300).build();
+
+        // Decoded at a quarter of its size, then scaled down the rest of the way
+        File file = compress(compressor, writeImage(newHalvesBitmap(2000, 1000)));
+
+        BitmapFactory.Options bounds = decodeBounds(file);
+        assertThat(bounds.outWidth).isEqualTo(300);
+        assertThat(bounds.outHeight).isEqualTo(150);
+    }
+
+    @Test
+    public void testCompress_doesNotScaleUpSmallImages() throws IOException {
+        ImageCompressor compressor = newBuilder().setMaxDimension(100).build();
+
+        File file = compress(compressor, writeImage(newHalvesBitmap(80, 40)));
+
+        BitmapFactory.Options bounds = decodeBounds(file);
+        assertThat(bounds.outWidth).isEqualTo(80);
+        assertThat(bounds.outHeight).isEqualTo(40);
+    }
+
+    @Test
+    public void testCompress_appliesExifOrientation() throws IOException {
+        ImageCompressor compressor = newBuilder().setMaxDimension(100).build();
+        Uri image = writeImage(newHalvesBitmap(400, 200));
+        setOrientation(image, ExifInterface.ORIENTATION_ROTATE_90);
+
+        File file = compress(compressor, image);
+
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        assertThat(bitmap.getWidth()).isEqualTo(50);
+        assertThat(bitmap.getHeight()).isEqualTo(100);
+        // Rotating clockwise moves the red left half to the top
+        assertThat(Color.red(bitmap.getPixel(25, 10))).isGreaterThan(200);
+        assertThat(Color.blue(bitmap.getPixel(25, 90))).isGreaterThan(200);
+
+        // The orientation was applied to the pixels, so it must not be applied again
+        assertThat(new ExifInterface(file.getPath()).getAttributeInt(
+                ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED))
+                .isAnyOf(ExifInterface.ORIENTATION_UNDEFINED, ExifInterface.ORIENTATION_NORMAL);
+    }
+
+    @Test
+    public void testCompress_encodesToConfiguredFormat() throws IOException {
+        ImageCompressor compressor = newBuilder()
+                .setFormat(ImageCompressor.Format.WEBP, 80)
+                .build();
+
+        File file = compress(compressor, writeImage(newHalvesBitmap(80, 40)));
+
+        assertThat(compressor.getContentType()).isEqualTo("image/webp");
+        assertThat(file.getName()).endsWith(".webp");
+        assertThat(decodeBounds(file).outMimeType).isEqualTo("image/webp");
+    }
+
+    @Test
+    public void testCompress_usesConfiguredQuality() throws IOException {
+        Uri image = writeImage(newNoiseBitmap(200, 200));
+
+        File low = compress(
+                newBuilder().setFormat(ImageCompressor.Format.JPEG, 10).build(), image);
+        File high = compress(
+                newBuilder().setFormat(ImageCompressor.Format.JPEG, 95).build(), image);
+
+        assertThat(decodeBounds(low).outMimeType).isEqualTo("image/jpeg");
+        assertThat(low.length()).isLessThan(high.length());
+    }
+
+    @Test
+    public void testCompress_failsForUndecodableImages() throws IOException {
+        File garbage = File.createTempFile("garbage", ".jpg", mContext.getCacheDir());
+        try (OutputStream out = new FileOutputStream(garbage)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        Task<File> task = newBuilder().build().compress(mContext, Uri.fromFile(garbage));
+
+        assertThat(task.isSuccessful()).isFalse();
+        assertThat(task.getException()).isInstanceOf(IOException.class);
+    }
+
+    /** Compresses on the calling thread so that the task is complete when it is returned. */
+    private ImageCompressor.Builder newBuilder() {
+        return new ImageCompressor.Builder().setExecutor(Runnable::run);
+    }
+
+    private File compress(ImageCompressor compressor, Uri image) {
+        Task<File> task = compressor.compress(mContext, image);
+        assertThat(task.isSuccessful()).isTrue();
+        return task.getResult();
+    }
+
+    private Uri writeImage(Bitmap bitmap) throws IOException {
+        File file = File.createTempFile("source", ".jpg", mContext.getCacheDir());
+        try (OutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 100, out);
+        }
+        return Uri.fromFile(file);
+    }
+
+    private static void setOrientation(Uri image, int orientation) throws IOException {
+        ExifInterface exif = new ExifInterface(image.getPath());
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(orientation));
+        exif.saveAttributes();
+    }
+
+    private static BitmapFactory.Options decodeBounds(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        return options;
+    }
+
+    /** A bitmap with a red left half and a blue right half. */
+    private static Bitmap newHalvesBitmap(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setColor(Color.RED);
+        canvas.drawRect(0, 0, width / 2f, height, paint);
+        paint.setColor(Color.BLUE);
+        canvas.drawRect(width / 2f, 0, width, height, paint);
+        return bitmap;
+    }
+
+    /** Noise compresses poorly, so the quality makes a visible difference in size. */
+    private static Bitmap newNoiseBitmap(int width, int height) {
+        Random random = new Random(42);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt() | 0xFF000000;
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,237 @@
+package com.firebase.ui.storage.upload;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class UploadQueueTest {
+
+    private static final String BUCKET = "bucket";
+    private static final Uri FILE = Uri.parse("file:///data/photo.jpg");
+    private static final Uri SESSION_URI = Uri.parse("https://example.com/upload?id=session");
+
+    private Context mContext;
+    private FakeUploadBackend mBackend;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mBackend = new FakeUploadBackend();
+    }
+
+    @Test
+    public void testEnqueue_startsUpToMaxConcurrentUploads() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 2, 3);
+
+        String first = enqueue(queue, "a");
+        String second = enqueue(queue, "b");
+        String third = enqueue(queue, "c");
+
+        assertThat(mBackend.getStartedIds()).containsExactly(first, second).inOrder();
+        assertThat(getState(queue, first)).isEqualTo(UploadJob.State.RUNNING);
+        assertThat(getState(queue, third)).isEqualTo(UploadJob.State.QUEUED);
+
+        mBackend.uploads.get(0).callback.onSuccess();
+
+        assertThat(getState(queue, first)).isEqualTo(UploadJob.State.SUCCEEDED);
+        assertThat(mBackend.getStartedIds()).containsExactly(first, second, third).inOrder();
+    }
+
+    @Test
+    public void testRetryableFailure_retriesWithExponentialBackoff() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String id = enqueue(queue, "a");
+
+        mBackend.getLast().callback.onFailure(new IOException(), true);
+        assertThat(getState(queue, id)).isEqualTo(UploadJob.State.WAITING_TO_RETRY);
+
+        idleFor(999);
+        assertThat(mBackend.uploads).hasSize(1);
+        idleFor(1);
+        assertThat(mBackend.uploads).hasSize(2);
+        assertThat(getState(queue, id)).isEqualTo(UploadJob.State.RUNNING);
+
+        // The delay doubles with every attempt
+        mBackend.getLast().callback.onFailure(new IOException(), true);
+        idleFor(1999);
+        assertThat(mBackend.uploads).hasSize(2);
+        idleFor(1);
+        assertThat(mBackend.uploads).hasSize(3);
+
+        // Out of attempts
+        mBackend.getLast().callback.onFailure(new IOException(), true);
+        assertThat(getState(queue, id)).isEqualTo(UploadJob.State.FAILED);
+        assertThat(queue.getJob(id).getValue().getAttempts()).isEqualTo(3);
+    }
+
+    @Test
+    public void testNonRetryableFailure_failsAndCanBeRetried() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String id = enqueue(queue, "a");
+
+        mBackend.getLast().callback.onFailure(new IOException(), false);
+        assertThat(getState(queue, id)).isEqualTo(UploadJob.State.FAILED);
+
+        queue.retry(id);
+        assertThat(mBackend.uploads).hasSize(2);
+        assertThat(queue.getJob(id).getValue().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNonRetryableFailureWithSession_startsNewSession() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String id = enqueue(queue, "a");
+        mBackend.getLast().callback.onSessionStarted(SESSION_URI);
+
+        mBackend.getLast().callback.onFailure(new IOException(), false);
+        assertThat(getState(queue, id)).isEqualTo(UploadJob.State.WAITING_TO_RETRY);
+
+        idleFor(1000);
+        assertThat(mBackend.uploads).hasSize(2);
+        assertThat(mBackend.getLast().sessionUri).isNull();
+    }
+
+    @Test
+    public void testCancel_stopsUploadAndIgnoresLateCallbacks() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String first = enqueue(queue, "a");
+        String second = enqueue(queue, "b");
+        FakeUploadBackend.FakeUpload upload = mBackend.getLast();
+
+        queue.cancel(first);
+
+        assertThat(upload.cancelled).isTrue();
+        assertThat(getState(queue, first)).isEqualTo(UploadJob.State.CANCELLED);
+        assertThat(getState(queue, second)).isEqualTo(UploadJob.State.RUNNING);
+
+        upload.callback.onSuccess();
+        assertThat(getState(queue, first)).isEqualTo(UploadJob.State.CANCELLED);
+    }
+
+    @Test
+    public void testCancel_waitingToRetry_isNotRetried() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String id = enqueue(queue, "a");
+        mBackend.getLast().callback.onFailure(new IOException(), true);
+
+        queue.cancel(id);
+        idleFor(60_000);
+
+        assertThat(mBackend.uploads).hasSize(1);
+        assertThat(getState(queue, id)).isEqualTo(UploadJob.State.CANCELLED);
+    }
+
+    @Test
+    public void testRestore_resumesSession() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String id = enqueue(queue, "a");
+        mBackend.getLast().callback.onSessionStarted(SESSION_URI);
+
+        // The process dies and a new queue is created on the next start
+        FakeUploadBackend backend = new FakeUploadBackend();
+        UploadQueue restored = new UploadQueue(mContext, backend, 1, 3);
+
+        assertThat(backend.getStartedIds()).containsExactly(id);
+        assertThat(backend.getLast().sessionUri).isEqualTo(SESSION_URI);
+        assertThat(backend.getLast().job.getPath()).isEqualTo("a");
+        assertThat(getState(restored, id)).isEqualTo(UploadJob.State.RUNNING);
+    }
+
+    @Test
+    public void testRestore_keepsEnqueueOrder() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(enqueue(queue, "image" + i));
+        }
+
+        UploadQueue restored = new UploadQueue(mContext, new FakeUploadBackend(), 1, 3);
+
+        List<String> restoredIds = new ArrayList<>();
+        for (UploadJob job : restored.getJobs().getValue()) {
+            restoredIds.add(job.getId());
+        }
+        assertThat(restoredIds).containsExactlyElementsIn(ids).inOrder();
+
+        // Uploads enqueued after the restore go last
+        String last = enqueue(restored, "last");
+        List<UploadJob> jobs = restored.getJobs().getValue();
+        assertThat(jobs.get(jobs.size() - 1).getId()).isEqualTo(last);
+        assertThat(jobs.get(jobs.size() - 1).getSequence())
+                .isGreaterThan(jobs.get(jobs.size() - 2).getSequence());
+    }
+
+    @Test
+    public void testRestore_skipsFinishedUploads() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        enqueue(queue, "a");
+        mBackend.getLast().callback.onSuccess();
+
+        UploadQueue restored = new UploadQueue(mContext, new FakeUploadBackend(), 1, 3);
+
+        assertThat(restored.getJobs().getValue()).isEmpty();
+    }
+
+    @Test
+    public void testRestore_keepsFailedUploads() {
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String id = enqueue(queue, "a");
+        mBackend.getLast().callback.onFailure(new IOException(), false);
+
+        FakeUploadBackend backend = new FakeUploadBackend();
+        UploadQueue restored = new UploadQueue(mContext, backend, 1, 3);
+
+        // Not started again on its own, but can still be retried
+        assertThat(backend.uploads).isEmpty();
+        assertThat(getState(restored, id)).isEqualTo(UploadJob.State.FAILED);
+        restored.retry(id);
+        assertThat(backend.getStartedIds()).containsExactly(id);
+    }
+
+    @Test
+    public void testClearFinished_forgetsFailedUploadsAndDeletesTheirFile() throws IOException {
+        File file = File.createTempFile("upload", ".jpg", mContext.getCacheDir());
+        UploadQueue queue = new UploadQueue(mContext, mBackend, 1, 3);
+        String id = queue.enqueue(BUCKET, "a", Uri.fromFile(file), "image/jpeg", true);
+        mBackend.getLast().callback.onFailure(new IOException(), false);
+        assertThat(file.exists()).isTrue();
+
+        queue.clearFinished();
+
+        assertThat(file.exists()).isFalse();
+        assertThat(queue.getJob(id).getValue()).isNull();
+        UploadQueue restored = new UploadQueue(mContext, new FakeUploadBackend(), 1, 3);
+        assertThat(restored.getJobs().getValue()).isEmpty();
+    }
+
+    private static String enqueue(UploadQueue queue, String path) {
+        return queue.enqueue(BUCKET, path, FILE, "image/jpeg", false);
+    }
+
+    private static UploadJob.State getState(UploadQueue queue, String id) {
+        return queue.getJob(id).getValue().getState();
+    }
+
+    private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+}